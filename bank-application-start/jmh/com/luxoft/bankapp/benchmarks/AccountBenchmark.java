@@ -0,0 +1,111 @@
+package com.luxoft.bankapp.benchmarks;
+
+import com.luxoft.bankapp.domain.Bank;
+import com.luxoft.bankapp.domain.CheckingAccount;
+import com.luxoft.bankapp.domain.Client;
+import com.luxoft.bankapp.domain.Gender;
+import com.luxoft.bankapp.domain.SavingAccount;
+import com.luxoft.bankapp.exceptions.NotEnoughFundsException;
+import com.luxoft.bankapp.service.EmailService;
+import com.luxoft.bankapp.utils.ClientEventBus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AccountBenchmark {
+    private SavingAccount saving;
+    private CheckingAccount checking;
+    private CheckingAccount empty;
+    private SavingAccount inBank;
+    private EmailService emailService;
+
+    // Fresh accounts every iteration, so withdrawals never run out of money
+    @Setup(Level.Iteration)
+    public void setUp() {
+        BenchmarkData.quietLogs();
+        saving = new SavingAccount(1, 0);
+        checking = new CheckingAccount(2, 100_000_000, 100);
+        empty = new CheckingAccount(3, 0, 100);
+
+        // Accounts of a bank also tell its listeners and enter a write section for its snapshots
+        inBank = new SavingAccount(4, 0);
+        Client client = new Client("John", Gender.MALE);
+        client.addAccount(inBank);
+        emailService = new EmailService();
+        new Bank(emailService, new ClientEventBus(false)).restoreClients(List.of(client));
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        emailService.close();
+    }
+
+    @Benchmark
+    public long deposit() {
+        saving.deposit(0.01);
+        return saving.getBalanceInMinorUnits();
+    }
+
+    @Benchmark
+    public long depositInBank() {
+        inBank.deposit(0.01);
+        return inBank.getBalanceInMinorUnits();
+    }
+
+    @Benchmark
+    public long withdraw() throws NotEnoughFundsException {
+        checking.withdraw(0.01);
+        return checking.getBalanceInMinorUnits();
+    }
+
+    @Benchmark
+    public boolean withdrawDeclined() {
+        try {
+            empty.withdraw(1_000);
+            return true;
+        } catch (NotEnoughFundsException e) {
+            return false;
+        }
+    }
+
+    @Benchmark
+    public boolean tryWithdrawDeclined() {
+        return empty.tryWithdraw(1_000).isApproved();
+    }
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        private SavingAccount account;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            account = new SavingAccount(1, 0);
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long depositContended(Shared shared) {
+        shared.account.deposit(0.01);
+        return shared.account.getBalanceInMinorUnits();
+    }
+}
@@ -0,0 +1,71 @@
+package com.luxoft.bankapp.benchmarks;
+
+import com.luxoft.bankapp.domain.Account;
+import com.luxoft.bankapp.domain.AccountSet;
+import com.luxoft.bankapp.domain.Client;
+import com.luxoft.bankapp.utils.BankDataGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Summing the balances of 100k clients with 1-3 accounts: the former HashSet layout against AccountSet
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccountSetBenchmark {
+    private static final int CLIENTS = 100_000;
+
+    private List<Client> clients;
+    private final List<Set<Account>> hashSets = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        clients = new BankDataGenerator(BenchmarkData.SEED).withAccountsPerClient(1, 3).clientList(CLIENTS);
+        for (Client client : clients) {
+            hashSets.add(Collections.unmodifiableSet(new HashSet<>(client.getAccounts())));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CLIENTS)
+    public double sumHashSet() {
+        double total = 0;
+        for (Set<Account> accounts : hashSets) {
+            for (Account account : accounts) {
+                total += account.getBalance();
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CLIENTS)
+    public double sumAccountSet() {
+        double total = 0;
+        for (Client client : clients) {
+            AccountSet accounts = client.getAccounts();
+            for (int i = 0; i < accounts.size(); i++) {
+                total += accounts.get(i).getBalance();
+            }
+        }
+        return total;
+    }
+}
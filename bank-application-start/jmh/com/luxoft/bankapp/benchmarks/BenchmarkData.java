@@ -0,0 +1,34 @@
+package com.luxoft.bankapp.benchmarks;
+
+import com.luxoft.bankapp.domain.Bank;
+import com.luxoft.bankapp.log.Level;
+import com.luxoft.bankapp.log.Log;
+import com.luxoft.bankapp.service.EmailService;
+import com.luxoft.bankapp.utils.BankDataGenerator;
+
+// Shared set-up of the benchmarks
+final class BenchmarkData {
+    static final long SEED = 42;
+
+    private BenchmarkData() {
+    }
+
+    // Registration listeners and the email service log every client and email
+    static void quietLogs() {
+        Log.setLevel(Level.WARN);
+    }
+
+    // A bank of generated clients holding about the given number of accounts
+    static Bank bank(int accounts) {
+        quietLogs();
+        EmailService emailService = new EmailService();
+        try {
+            Bank bank = new Bank(emailService);
+            BankDataGenerator generator = new BankDataGenerator(SEED);
+            generator.populate(bank, generator.clientsForAccounts(accounts));
+            return bank;
+        } finally {
+            emailService.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.luxoft.bankapp.benchmarks;
+
+import com.luxoft.bankapp.domain.Email;
+import com.luxoft.bankapp.service.EmailService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Time to send a burst of emails through the simulated transport, per email
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Thread)
+public class EmailServiceBenchmark {
+    private static final int EMAILS = 400;
+
+    @Param({"1", "2", "4", "8"})
+    int workers;
+
+    @Param({"1", "10"})
+    int batchSize;
+
+    @Param({"false", "true"})
+    boolean virtualThreads;
+
+    private EmailService emailService;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        BenchmarkData.quietLogs();
+        emailService = new EmailService(workers, batchSize, virtualThreads);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+        emailService.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EMAILS)
+    public long send() throws InterruptedException {
+        for (int i = 0; i < EMAILS; i++) {
+            emailService.sendNotificationEmail(new Email("Client " + i, "Friend"));
+        }
+        while (emailService.getMetrics().getSentEmails() < EMAILS) {
+            Thread.sleep(5);
+        }
+        return emailService.getMetrics().getSentEmails();
+    }
+}
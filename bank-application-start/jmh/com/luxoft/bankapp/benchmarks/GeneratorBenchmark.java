@@ -0,0 +1,39 @@
+package com.luxoft.bankapp.benchmarks;
+
+import com.luxoft.bankapp.utils.BankDataGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GeneratorBenchmark {
+    private static final int CLIENTS = 100_000;
+
+    private final BankDataGenerator generator = new BankDataGenerator(BenchmarkData.SEED);
+
+    @Benchmark
+    @OperationsPerInvocation(CLIENTS)
+    public long clients() {
+        return generator.clients(CLIENTS).mapToLong(client -> client.getAccounts().size()).sum();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CLIENTS)
+    public long clientsParallel() {
+        return generator.clients(CLIENTS).parallel().mapToLong(client -> client.getAccounts().size()).sum();
+    }
+}
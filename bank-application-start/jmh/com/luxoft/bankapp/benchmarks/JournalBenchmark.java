@@ -0,0 +1,92 @@
+package com.luxoft.bankapp.benchmarks;
+
+import com.luxoft.bankapp.domain.Bank;
+import com.luxoft.bankapp.domain.Client;
+import com.luxoft.bankapp.domain.SavingAccount;
+import com.luxoft.bankapp.exceptions.ClientExistsException;
+import com.luxoft.bankapp.persistence.BankJournal;
+import com.luxoft.bankapp.service.EmailService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Deposits journaled with a sync per operation; concurrent writers share syncs through group commit
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JournalBenchmark {
+    private static final int MAX_THREADS = 4;
+
+    private Path file;
+    private EmailService emailService;
+    private Bank bank;
+    private BankJournal journal;
+    private SavingAccount[] accounts;
+    private final AtomicInteger nextAccount = new AtomicInteger();
+
+    @Setup
+    public void setUp() throws IOException, ClientExistsException {
+        BenchmarkData.quietLogs();
+        file = Files.createTempFile("bench", ".journal");
+        emailService = new EmailService();
+        bank = new Bank(emailService);
+        journal = BankJournal.open(file, bank);
+        Client client = new Client("Benchmark", null);
+        accounts = new SavingAccount[MAX_THREADS];
+        for (int t = 0; t < MAX_THREADS; t++) {
+            accounts[t] = new SavingAccount(t, 0);
+            client.addAccount(accounts[t]);
+        }
+        bank.addClient(client);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        bank.removeChangeListener(journal);
+        journal.close();
+        emailService.shutdownNow();
+        Files.deleteIfExists(file);
+    }
+
+    // Each thread deposits to an account of its own
+    @State(Scope.Thread)
+    public static class Depositor {
+        private SavingAccount account;
+
+        @Setup
+        public void setUp(JournalBenchmark benchmark) {
+            account = benchmark.accounts[benchmark.nextAccount.getAndIncrement() % MAX_THREADS];
+        }
+    }
+
+    @Benchmark
+    public long depositSync(Depositor depositor) {
+        depositor.account.deposit(0.01);
+        return depositor.account.getBalanceInMinorUnits();
+    }
+
+    @Benchmark
+    @Threads(MAX_THREADS)
+    public long depositSyncConcurrent(Depositor depositor) {
+        depositor.account.deposit(0.01);
+        return depositor.account.getBalanceInMinorUnits();
+    }
+}
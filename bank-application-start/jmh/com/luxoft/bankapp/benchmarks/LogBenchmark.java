@@ -0,0 +1,75 @@
+package com.luxoft.bankapp.benchmarks;
+
+import com.luxoft.bankapp.log.AsyncLogSink;
+import com.luxoft.bankapp.log.FlushPolicy;
+import com.luxoft.bankapp.log.Level;
+import com.luxoft.bankapp.log.LogSink;
+import com.luxoft.bankapp.log.StreamSink;
+import com.luxoft.bankapp.utils.BackpressurePolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+// Four threads log registration lines to a discarding stream; the time includes the final flush
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LogBenchmark {
+    private static final int THREADS = 4;
+    private static final int MESSAGES = 400_000;
+
+    @Param({"StreamSink", "AsyncLogSink"})
+    String sink;
+
+    private LogSink logSink;
+
+    @Setup
+    public void setUp() {
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream(), true);
+        logSink = sink.equals("AsyncLogSink")
+                ? AsyncLogSink.start(() -> discard, AsyncLogSink.DEFAULT_CAPACITY, BackpressurePolicy.BLOCK,
+                        AsyncLogSink.DEFAULT_BATCH_SIZE, AsyncLogSink.DEFAULT_FLUSH_INTERVAL_MILLIS, FlushPolicy.WHEN_IDLE)
+                : new StreamSink(() -> discard);
+    }
+
+    @TearDown
+    public void tearDown() {
+        logSink.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void write() throws InterruptedException {
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < threads.length; t++) {
+            String name = "Client " + t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < MESSAGES / THREADS; i++) {
+                    logSink.write(Level.INFO, "Notification email for client %s to be sent", name);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        logSink.flush();
+    }
+}
@@ -0,0 +1,71 @@
+package com.luxoft.bankapp.benchmarks;
+
+import com.luxoft.bankapp.utils.Queue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Producers and consumers passing a million elements through a small queue. The threads are
+ * started by the benchmark, as blocking producers and consumers cannot be stopped at an arbitrary
+ * point the way JMH ends an iteration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueueBenchmark {
+    private static final int ELEMENTS = 1_000_000;
+
+    @Param({"1", "4"})
+    int pairs;
+
+    @Benchmark
+    @OperationsPerInvocation(ELEMENTS)
+    public long producerConsumer() throws InterruptedException {
+        Queue<Integer> queue = new Queue<>(1_024);
+        int perThread = ELEMENTS / pairs;
+        long[] sums = new long[pairs];
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < pairs; p++) {
+            int index = p;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    queue.add(i);
+                }
+            }));
+            threads.add(new Thread(() -> {
+                long sum = 0;
+                for (int i = 0; i < perThread; i++) {
+                    sum += queue.poll();
+                }
+                sums[index] = sum;
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long total = 0;
+        for (long sum : sums) {
+            total += sum;
+        }
+        return total;
+    }
+}
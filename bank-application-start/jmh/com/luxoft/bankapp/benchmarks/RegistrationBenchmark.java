@@ -0,0 +1,70 @@
+package com.luxoft.bankapp.benchmarks;
+
+import com.luxoft.bankapp.domain.Bank;
+import com.luxoft.bankapp.domain.Client;
+import com.luxoft.bankapp.domain.ClientImportResult;
+import com.luxoft.bankapp.exceptions.ClientExistsException;
+import com.luxoft.bankapp.service.EmailService;
+import com.luxoft.bankapp.utils.BankDataGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registers a batch of clients one by one and in bulk. Each invocation starts from an empty bank;
+ * try {@code -p clients=1000000} for a large import.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Thread)
+public class RegistrationBenchmark {
+    @Param({"10000"})
+    int clients;
+
+    private EmailService emailService;
+    private Bank bank;
+    private List<Client> batch;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        BenchmarkData.quietLogs();
+        // Room for one email per client so registration is not throttled by the send backlog
+        emailService = new EmailService(EmailService.DEFAULT_WORKERS, EmailService.DEFAULT_BATCH_SIZE, false, clients);
+        bank = new Bank(emailService);
+        batch = new BankDataGenerator(BenchmarkData.SEED).clientList(clients);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+        emailService.shutdownNow();
+    }
+
+    @Benchmark
+    public int addClient() throws ClientExistsException {
+        for (Client client : batch) {
+            bank.addClient(client);
+        }
+        return bank.getClients().size();
+    }
+
+    @Benchmark
+    public ClientImportResult addClients() {
+        return bank.addClients(batch);
+    }
+}
@@ -0,0 +1,105 @@
+package com.luxoft.bankapp.benchmarks;
+
+import com.luxoft.bankapp.domain.Account;
+import com.luxoft.bankapp.domain.Bank;
+import com.luxoft.bankapp.domain.BankReport;
+import com.luxoft.bankapp.domain.BankReportInterface;
+import com.luxoft.bankapp.domain.BankReportLive;
+import com.luxoft.bankapp.domain.BankReportParallel;
+import com.luxoft.bankapp.domain.BankReportStreams;
+import com.luxoft.bankapp.domain.CachedBankReport;
+import com.luxoft.bankapp.domain.Client;
+import com.luxoft.bankapp.domain.InstrumentedBankReport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every report of every implementation over a generated bank. Large banks, e.g.
+ * {@code -p accounts=10000000}, need a large heap.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReportBenchmark {
+    @Param({"1000", "100000"})
+    int accounts;
+
+    // The instrumented BankReport shows the cost of the latency histograms
+    @Param({"BankReport", "BankReportStreams", "BankReportParallel", "BankReportLive", "InstrumentedBankReport", "CachedBankReport"})
+    String report;
+
+    private Bank bank;
+    private BankReportInterface implementation;
+
+    @Setup
+    public void setUp() {
+        bank = BenchmarkData.bank(accounts);
+        implementation = switch (report) {
+            case "BankReport" -> new BankReport();
+            case "BankReportStreams" -> new BankReportStreams();
+            case "BankReportParallel" -> new BankReportParallel();
+            case "BankReportLive" -> new BankReportLive();
+            case "InstrumentedBankReport" -> new InstrumentedBankReport(new BankReport());
+            case "CachedBankReport" -> new CachedBankReport();
+            default -> throw new IllegalArgumentException("Unknown report " + report);
+        };
+    }
+
+    @Benchmark
+    public int getNumberOfClients() {
+        return implementation.getNumberOfClients(bank);
+    }
+
+    @Benchmark
+    public int getNumberOfAccounts() {
+        return implementation.getNumberOfAccounts(bank);
+    }
+
+    @Benchmark
+    public SortedSet<Client> getClientsSorted() {
+        return implementation.getClientsSorted(bank);
+    }
+
+    @Benchmark
+    public double getTotalSumInAccounts() {
+        return implementation.getTotalSumInAccounts(bank);
+    }
+
+    @Benchmark
+    public SortedSet<Account> getAccountsSortedBySum() {
+        return implementation.getAccountsSortedBySum(bank);
+    }
+
+    @Benchmark
+    public double getBankCreditSum() {
+        return implementation.getBankCreditSum(bank);
+    }
+
+    @Benchmark
+    public Map<Client, Collection<Account>> getCustomerAccounts() {
+        return implementation.getCustomerAccounts(bank);
+    }
+
+    @Benchmark
+    public Map<String, List<Client>> getClientsByCity() {
+        return implementation.getClientsByCity(bank);
+    }
+}
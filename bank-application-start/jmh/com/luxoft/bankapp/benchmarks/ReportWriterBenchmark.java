@@ -0,0 +1,77 @@
+package com.luxoft.bankapp.benchmarks;
+
+import com.luxoft.bankapp.domain.Account;
+import com.luxoft.bankapp.domain.Bank;
+import com.luxoft.bankapp.domain.Client;
+import com.luxoft.bankapp.service.BankReportWriter;
+import com.luxoft.bankapp.service.ReportFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+// Whole-bank balance reports to a discarding channel, against the former format() per line
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReportWriterBenchmark {
+    @Param({"1000", "100000"})
+    int accounts;
+
+    private final PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+    private final WritableByteChannel channel = Channels.newChannel(OutputStream.nullOutputStream());
+    private Bank bank;
+
+    @Setup
+    public void setUp() {
+        bank = BenchmarkData.bank(accounts);
+    }
+
+    @State(Scope.Benchmark)
+    public static class Writer {
+        @Param({"TEXT", "CSV", "JSON_LINES"})
+        ReportFormat format;
+
+        private BankReportWriter writer;
+
+        @Setup
+        public void setUp() {
+            writer = new BankReportWriter(format);
+        }
+    }
+
+    @Benchmark
+    public long writeBalances(Writer writer) throws IOException {
+        return writer.writer.writeBalances(bank, channel);
+    }
+
+    @Benchmark
+    public long printStreamFormat() {
+        long lines = 0;
+        for (Client client : bank.getClients()) {
+            discard.println("Client: " + client);
+            for (Account account : client.getAccounts()) {
+                discard.format("Account %d : %.2f%n", account.getId(), account.getBalance());
+                lines++;
+            }
+        }
+        return lines;
+    }
+}
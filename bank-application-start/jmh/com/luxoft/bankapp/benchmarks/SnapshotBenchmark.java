@@ -0,0 +1,69 @@
+package com.luxoft.bankapp.benchmarks;
+
+import com.luxoft.bankapp.domain.Bank;
+import com.luxoft.bankapp.domain.Client;
+import com.luxoft.bankapp.persistence.BankSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Point-in-time copies of a bank, in memory and in a snapshot file
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SnapshotBenchmark {
+    @Param({"1000", "100000"})
+    int accounts;
+
+    private Bank bank;
+    private Path written;
+    private Path loaded;
+
+    @Setup
+    public void setUp() throws IOException {
+        bank = BenchmarkData.bank(accounts);
+        written = Files.createTempFile("bench", ".snapshot");
+        loaded = Files.createTempFile("bench", ".snapshot");
+        BankSnapshot.write(bank, loaded);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(written);
+        Files.deleteIfExists(loaded);
+    }
+
+    // A copy to run the reports on while the bank keeps changing
+    @Benchmark
+    public Bank copy() {
+        return bank.snapshot();
+    }
+
+    @Benchmark
+    public long write() throws IOException {
+        return BankSnapshot.write(bank, written);
+    }
+
+    @Benchmark
+    public List<Client> load() throws IOException {
+        return BankSnapshot.readClients(loaded);
+    }
+}
@@ -0,0 +1,54 @@
+package com.luxoft.bankapp.benchmarks;
+
+import com.luxoft.bankapp.domain.OffHeapAccountStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Whole-store scans over off-heap columns, comparable with ReportBenchmark.getTotalSumInAccounts
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StoreBenchmark {
+    @Param({"1000", "100000"})
+    int accounts;
+
+    private OffHeapAccountStore store;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+        store = new OffHeapAccountStore();
+        for (int i = 0; i < accounts; i++) {
+            if (random.nextBoolean()) {
+                store.createCheckingAccount(i, random.nextInt(-500, 10_000), 500);
+            } else {
+                store.createSavingAccount(i, random.nextInt(0, 10_000));
+            }
+        }
+    }
+
+    @Benchmark
+    public double getTotalBalance() {
+        return store.getTotalBalance();
+    }
+
+    @Benchmark
+    public double getCreditSum() {
+        return store.getCreditSum();
+    }
+}
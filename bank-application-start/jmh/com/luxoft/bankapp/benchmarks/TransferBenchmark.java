@@ -0,0 +1,73 @@
+package com.luxoft.bankapp.benchmarks;
+
+import com.luxoft.bankapp.domain.Account;
+import com.luxoft.bankapp.domain.SavingAccount;
+import com.luxoft.bankapp.exceptions.NotEnoughFundsException;
+import com.luxoft.bankapp.service.TransferService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transfers between random pairs of accounts; run with {@code -t 4} or {@code -t max} to see how
+ * transfers scale across threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransferBenchmark {
+    @Param({"1000000"})
+    int accounts;
+
+    private Account[] all;
+    private final AtomicInteger nextSeed = new AtomicInteger();
+
+    @Setup
+    public void setUp() {
+        all = new Account[accounts];
+        for (int i = 0; i < accounts; i++) {
+            all[i] = new SavingAccount(i, 1_000);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Pairs {
+        private SplittableRandom random;
+
+        @Setup
+        public void setUp(TransferBenchmark benchmark) {
+            random = new SplittableRandom(benchmark.nextSeed.getAndIncrement());
+        }
+    }
+
+    @Benchmark
+    public boolean transfer(Pairs pairs) {
+        int from = pairs.random.nextInt(all.length);
+        int to = pairs.random.nextInt(all.length - 1);
+        if (to >= from) {
+            to++;
+        }
+        try {
+            TransferService.transfer(all[from], all[to], 1);
+            return true;
+        } catch (NotEnoughFundsException e) {
+            // Declined transfers still count as processed
+            return false;
+        }
+    }
+}
@@ -1,15 +1,53 @@
 package com.luxoft.bankapp.domain;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
 import com.luxoft.bankapp.exceptions.NotEnoughFundsException;
+import com.luxoft.bankapp.metrics.BankMetrics;
+import com.luxoft.bankapp.utils.BankChangeListener;
 
 public abstract class AbstractAccount implements Account {
+
+	private static final VarHandle STATE;
+	private static final VarHandle PRE_IMAGE;
+
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			STATE = lookup.findVarHandle(AbstractAccount.class, "state", long.class);
+			PRE_IMAGE = lookup.findVarHandle(AbstractAccount.class, "preImage", PreImage.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
 	
+	static final String DECLINED_MESSAGE = "Requested amount exceeds the maximum amount to withdraw";
+
+	// Lowest bit of the state once the account belongs to a bank
+	private static final long ATTACHED = 1;
+	// Returned by the unattached paths once the account is attached; never a balance
+	private static final long NOT_APPLIED = Long.MIN_VALUE;
+	// Largest balance, in minor units, the state can hold next to the ATTACHED bit
+	private static final long MAX_BALANCE = Long.MAX_VALUE >> 1;
+
 	private int id;
-	protected double balance;
+	// Balance in minor units (cents) shifted left by one, with the ATTACHED bit; only ever updated
+	// through STATE. Changes of an unattached account are a single CAS that fails once attach()
+	// sets the bit, so each is either in the balance the account joins with or reported.
+	private volatile long state;
+	// Set before the ATTACHED bit
+	private volatile BankChangeListener changeListener;
+	// Balance kept for open snapshots, only ever updated through PRE_IMAGE
+	private volatile PreImage preImage;
 	
 	public AbstractAccount(int id, double balance) {
 		this.id = id;
-		this.balance = balance;
+		long minorUnits = Money.toMinorUnits(balance);
+		if (Math.abs(minorUnits) > MAX_BALANCE) {
+			throw new IllegalArgumentException("Not a valid balance: " + balance);
+		}
+		this.state = minorUnits << 1;
 	}
 
 	@Override
@@ -17,20 +55,165 @@ public abstract class AbstractAccount implements Account {
 		if (amount < 0) {
 			throw new IllegalArgumentException("Cannot deposit a negative amount");
 		}
-		this.balance += amount;
+		long delta = Money.toMinorUnits(amount);
+		BankChangeListener listener = null;
+		long previous = add(delta, false);
+		if (previous == NOT_APPLIED) {
+			listener = changeListener;
+			// Accounts of a bank change inside a write section, see Epochs; listeners are told after it
+			try (Epochs.Section section = Epochs.enter()) {
+				keepPreImage(section.epoch());
+				previous = add(delta, true);
+			}
+		}
+		if (BankMetrics.ACCOUNT_OPERATIONS) {
+			BankMetrics.DEPOSITS.increment();
+		}
+		balanceChanged(listener, previous, previous + delta);
 	}
 
 	@Override
 	public void withdraw(final double amount) throws NotEnoughFundsException {
+		long requested = withdrawalAmount(amount);
+		long current = debit(requested);
+		if (requested > maximumAmountToWithdraw(current)) {
+			throw new NotEnoughFundsException(id, Money.toMajorUnits(current), amount, DECLINED_MESSAGE);
+		}
+	}
+
+	@Override
+	public WithdrawResult tryWithdraw(final double amount) {
+		long requested = withdrawalAmount(amount);
+		return requested > maximumAmountToWithdraw(debit(requested)) ? declined() : WithdrawResult.APPROVED;
+	}
+
+	static long withdrawalAmount(double amount) {
 		if (amount < 0) {
 			throw new IllegalArgumentException("Cannot withdraw a negative amount");
 		}
-		
-		if (amount > maximumAmountToWithdraw()) {
-			throw new NotEnoughFundsException(id, balance, amount, "Requested amount exceeds the maximum amount to withdraw");
+		return Money.toMinorUnits(amount);
+	}
+
+	/**
+	 * Debits the amount unless it exceeds the maximum amount to withdraw, and returns the balance
+	 * the decision was based on. The caller tells a declined debit by applying the same limit to it.
+	 */
+	final long debit(long requested) {
+		BankChangeListener listener = null;
+		long current = compareAndDebit(requested, false);
+		if (current == NOT_APPLIED) {
+			listener = changeListener;
+			try (Epochs.Section section = Epochs.enter()) {
+				keepPreImage(section.epoch());
+				current = compareAndDebit(requested, true);
+			}
+		}
+		if (requested > maximumAmountToWithdraw(current)) {
+			if (BankMetrics.ACCOUNT_OPERATIONS) {
+				BankMetrics.WITHDRAWALS_DECLINED.increment();
+			}
+		} else {
+			if (BankMetrics.ACCOUNT_OPERATIONS) {
+				BankMetrics.WITHDRAWALS_APPROVED.increment();
+			}
+			balanceChanged(listener, current, current - requested);
+		}
+		return current;
+	}
+
+	// Adds to the balance and returns the balance it replaced, or NOT_APPLIED if the account was
+	// expected to be unattached but is attached. A balance that would overflow is left unchanged.
+	private long add(long delta, boolean attached) {
+		while (true) {
+			long current = state;
+			if (!attached && (current & ATTACHED) != 0) {
+				return NOT_APPLIED;
+			}
+			long updated = Money.add(current >> 1, delta);
+			if (updated > MAX_BALANCE) {
+				throw new ArithmeticException("Balance overflow");
+			}
+			if (STATE.compareAndSet(this, current, updated << 1 | current & ATTACHED)) {
+				return current >> 1;
+			}
+		}
+	}
+
+	private long compareAndDebit(long requested, boolean attached) {
+		while (true) {
+			long current = state;
+			if (!attached && (current & ATTACHED) != 0) {
+				return NOT_APPLIED;
+			}
+			// The limit is computed from the same balance the CAS below is based on,
+			// so the check and the debit are a single atomic step
+			long balance = current >> 1;
+			if (requested > maximumAmountToWithdraw(balance)
+					|| STATE.compareAndSet(this, current, Money.subtract(balance, requested) << 1 | current & ATTACHED)) {
+				return balance;
+			}
+		}
+	}
+
+	// Result reported by tryWithdraw when the limit is exceeded
+	protected WithdrawResult declined() {
+		return WithdrawResult.INSUFFICIENT_FUNDS;
+	}
+
+	private void balanceChanged(BankChangeListener listener, long oldBalance, long newBalance) {
+		if (listener != null) {
+			listener.onBalanceChanged(this, oldBalance, newBalance);
+		}
+	}
+
+	// Reports every later change to the listener and returns the balance the account starts with
+	long attach(BankChangeListener listener) {
+		changeListener = listener;
+		long current = (long) STATE.getAndBitwiseOr(this, ATTACHED);
+		return current >> 1;
+	}
+
+	// Keeps the balance a change in the given epoch replaces, if an open snapshot needs it
+	private void keepPreImage(long epoch) {
+		PreImage last;
+		// A change in this epoch installs its pre-image before touching the balance, so the
+		// balance read here is the one at the end of the previous epochs if the CAS succeeds
+		while (Epochs.keepsPreImage(last = preImage, epoch)
+				&& !PRE_IMAGE.compareAndSet(this, last, new PreImage(epoch, state >> 1, last))) {
+		}
+	}
+
+	// Balance at the end of the given snapshot epoch
+	long getBalanceInMinorUnits(long snapshot) {
+		while (true) {
+			PreImage last = preImage;
+			long current = state >> 1;
+			if (preImage == last) {
+				return PreImage.balanceAt(last, snapshot, current);
+			}
 		}
-		
-		this.balance -= amount;
+	}
+
+	@Override
+	public long getBalanceInMinorUnits() {
+		return state >> 1;
+	}
+
+	@Override
+	public long maximumAmountToWithdrawInMinorUnits() {
+		return maximumAmountToWithdraw(state >> 1);
+	}
+
+	@Override
+	public double maximumAmountToWithdraw() {
+		return Money.toMajorUnits(maximumAmountToWithdrawInMinorUnits());
+	}
+
+	/**
+	 * Maximum amount, in minor units, that may be withdrawn when the account holds the given balance.
+	 */
+	protected long maximumAmountToWithdraw(long balance) {
+		return balance;
 	}
 
 	@Override
@@ -40,7 +223,7 @@ public abstract class AbstractAccount implements Account {
 
 	@Override
 	public double getBalance() {
-		return balance;
+		return Money.toMajorUnits(state >> 1);
 	}
 
 }
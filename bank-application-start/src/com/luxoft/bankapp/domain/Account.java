@@ -1,6 +1,7 @@
 package com.luxoft.bankapp.domain;
 
 import com.luxoft.bankapp.exceptions.NotEnoughFundsException;
+import com.luxoft.bankapp.exceptions.OverdraftLimitExceededException;
 
 public interface Account {
 	public void deposit(double amount);
@@ -8,4 +9,28 @@ public interface Account {
 	public int getId();
 	public double getBalance();
 	public double maximumAmountToWithdraw();
+
+	/**
+	 * Withdraws like {@link #withdraw(double)} but reports a declined withdrawal as a result
+	 * instead of an exception. The accounts of this package decline without creating exceptions.
+	 */
+	public default WithdrawResult tryWithdraw(double amount) {
+		try {
+			withdraw(amount);
+			return WithdrawResult.APPROVED;
+		} catch (OverdraftLimitExceededException e) {
+			return WithdrawResult.OVERDRAFT_EXCEEDED;
+		} catch (NotEnoughFundsException e) {
+			return WithdrawResult.INSUFFICIENT_FUNDS;
+		}
+	}
+
+	// Exact balance in minor units, see Money
+	public default long getBalanceInMinorUnits() {
+		return Money.toMinorUnits(getBalance());
+	}
+
+	public default long maximumAmountToWithdrawInMinorUnits() {
+		return Money.toMinorUnits(maximumAmountToWithdraw());
+	}
 }
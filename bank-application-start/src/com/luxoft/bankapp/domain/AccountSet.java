@@ -0,0 +1,208 @@
+package com.luxoft.bankapp.domain;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * The accounts of a client, keyed by account id. Accounts are kept in a plain array in the order
+ * they were added, so iteration and positional access ({@link #get(int)}) touch one array, and
+ * lookups by id scan the ids of small sets and use an open-addressing table once a set grows.
+ * <p>
+ * The arrays grow geometrically and are shared by successive states: adding fills the next free
+ * element and the id table, then publishes the new size in one volatile write, so readers never
+ * lock and always see a consistent set. Read-only through the {@link java.util.Set} API.
+ */
+public class AccountSet extends AbstractSet<Account> {
+
+	// Above this many accounts lookups by id go through the hash table
+	private static final int LINEAR_SCAN_LIMIT = 8;
+
+	private static final int INITIAL_CAPACITY = 2;
+
+	private static final State EMPTY = new State(new Account[0], new int[0], new long[0], 0, null);
+
+	private volatile State state = EMPTY;
+
+	/**
+	 * Returns false if the account is in the set already.
+	 *
+	 * @throws IllegalArgumentException if the set holds another account with the same id
+	 */
+	synchronized boolean insert(Account account, long epoch) {
+		State current = state;
+		int id = account.getId();
+		int existing = current.indexOf(id);
+		if (existing >= 0) {
+			if (current.accounts[existing] == account) {
+				return false;
+			}
+			throw new IllegalArgumentException("Client already has an account with id " + id);
+		}
+		int size = current.size;
+		Account[] accounts = current.accounts;
+		int[] ids = current.ids;
+		long[] epochs = current.epochs;
+		if (size == accounts.length) {
+			int capacity = Math.max(INITIAL_CAPACITY, size * 2);
+			accounts = Arrays.copyOf(accounts, capacity);
+			ids = Arrays.copyOf(ids, capacity);
+			epochs = Arrays.copyOf(epochs, capacity);
+		}
+		// Beyond the size readers of the current state see, so they are not disturbed
+		accounts[size] = account;
+		ids[size] = id;
+		epochs[size] = epoch;
+		int[] table = current.table;
+		if (size + 1 > LINEAR_SCAN_LIMIT) {
+			if (table == null || (size + 1) * 2 > table.length) {
+				table = State.table(ids, size + 1);
+			} else {
+				State.put(table, ids, size);
+			}
+		}
+		state = new State(accounts, ids, epochs, size + 1, table);
+		return true;
+	}
+
+	// Number of accounts added up to the end of the given epoch, see Epochs
+	int sizeAt(long epoch) {
+		State current = state;
+		int size = current.size;
+		while (size > 0 && current.epochs[size - 1] > epoch) {
+			size--;
+		}
+		return size;
+	}
+
+	// The account with the given id, or null
+	public Account getAccount(int id) {
+		State current = state;
+		int index = current.indexOf(id);
+		return index < 0 ? null : current.accounts[index];
+	}
+
+	// Accounts in the order they were added; 0 <= index < size()
+	public Account get(int index) {
+		State current = state;
+		if (index < 0 || index >= current.size) {
+			throw new IndexOutOfBoundsException("No account at index " + index);
+		}
+		return current.accounts[index];
+	}
+
+	@Override
+	public int size() {
+		return state.size;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof Account account)) {
+			return false;
+		}
+		Account found = getAccount(account.getId());
+		return found != null && found.equals(account);
+	}
+
+	@Override
+	public void forEach(Consumer<? super Account> action) {
+		State current = state;
+		for (int i = 0; i < current.size; i++) {
+			action.accept(current.accounts[i]);
+		}
+	}
+
+	@Override
+	public Object[] toArray() {
+		State current = state;
+		return Arrays.copyOf(current.accounts, current.size, Object[].class);
+	}
+
+	@Override
+	public Iterator<Account> iterator() {
+		State current = state;
+		Account[] accounts = current.accounts;
+		int size = current.size;
+		return new Iterator<Account>() {
+			private int next;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public Account next() {
+				if (next >= size) {
+					throw new NoSuchElementException();
+				}
+				return accounts[next++];
+			}
+		};
+	}
+
+	// The arrays may be longer than size and are shared with later states, which only append
+	private static class State {
+		final Account[] accounts;
+		final int[] ids;
+		// Epoch each account was added in, never decreasing
+		final long[] epochs;
+		final int size;
+		// Open addressing over ids, holding index + 1 (0 is free); null while the set is small
+		final int[] table;
+
+		State(Account[] accounts, int[] ids, long[] epochs, int size, int[] table) {
+			this.accounts = accounts;
+			this.ids = ids;
+			this.epochs = epochs;
+			this.size = size;
+			this.table = table;
+		}
+
+		int indexOf(int id) {
+			if (table == null) {
+				for (int i = 0; i < size; i++) {
+					if (ids[i] == id) {
+						return i;
+					}
+				}
+				return -1;
+			}
+			int mask = table.length - 1;
+			for (int slot = hash(id) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+				// Entries of accounts added after this state are skipped
+				int index = table[slot] - 1;
+				if (index < size && ids[index] == id) {
+					return index;
+				}
+			}
+			return -1;
+		}
+
+		// At most half full, so probe sequences stay short
+		static int[] table(int[] ids, int size) {
+			int[] table = new int[Integer.highestOneBit(size) << 2];
+			for (int i = 0; i < size; i++) {
+				put(table, ids, i);
+			}
+			return table;
+		}
+
+		static void put(int[] table, int[] ids, int index) {
+			int mask = table.length - 1;
+			int slot = hash(ids[index]) & mask;
+			while (table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = index + 1;
+		}
+
+		static int hash(int id) {
+			int h = id * 0x9E3779B9;
+			return h ^ (h >>> 16);
+		}
+	}
+}
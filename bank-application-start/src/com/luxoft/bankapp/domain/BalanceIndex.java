@@ -0,0 +1,113 @@
+package com.luxoft.bankapp.domain;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.luxoft.bankapp.utils.BankChangeListener;
+
+/**
+ * Accounts ordered by balance, kept current from balance change events. Top/bottom K queries cost
+ * O(K + log N) and range queries O(log N + result size). Accounts with equal balances are all kept,
+ * ordered by id.
+ * <p>
+ * Reads are weakly consistent: an account being updated concurrently may be briefly missing.
+ */
+public class BalanceIndex implements BankChangeListener {
+
+	// Ascending by balance; ties broken by id so equal balances are not collapsed
+	public static final Comparator<Account> BY_BALANCE = Comparator.comparingLong(Account::getBalanceInMinorUnits)
+			.thenComparingInt(Account::getId);
+
+	private final ConcurrentSkipListSet<Entry> entries = new ConcurrentSkipListSet<>();
+	private final ConcurrentHashMap<Account, Entry> entryByAccount = new ConcurrentHashMap<>();
+	private final AtomicLong sequence = new AtomicLong();
+
+	@Override
+	public void onAccountAdded(Client client, Account account, long balance) {
+		refresh(account);
+	}
+
+	@Override
+	public void onBalanceChanged(Account account, long oldBalance, long newBalance) {
+		refresh(account);
+	}
+
+	void refresh(Account account) {
+		// compute() serializes updates of one account; re-reading the balance inside it makes
+		// out-of-order events converge on the latest value
+		entryByAccount.compute(account, (key, previous) -> {
+			if (previous != null) {
+				entries.remove(previous);
+			}
+			Entry entry = new Entry(key.getBalanceInMinorUnits(), key.getId(), sequence.incrementAndGet(), key);
+			entries.add(entry);
+			return entry;
+		});
+	}
+
+	public int size() {
+		return entryByAccount.size();
+	}
+
+	// Highest balances first
+	public List<Account> top(int k) {
+		return take(entries.descendingIterator(), k);
+	}
+
+	// Lowest balances first
+	public List<Account> bottom(int k) {
+		return take(entries.iterator(), k);
+	}
+
+	// Accounts with min <= balance <= max, lowest first
+	public List<Account> range(double min, double max) {
+		Entry from = new Entry(Money.toMinorUnits(min), Integer.MIN_VALUE, Long.MIN_VALUE, null);
+		Entry to = new Entry(Money.toMinorUnits(max), Integer.MAX_VALUE, Long.MAX_VALUE, null);
+		if (from.compareTo(to) > 0) {
+			return new ArrayList<>();
+		}
+		return take(entries.subSet(from, true, to, true).iterator(), Integer.MAX_VALUE);
+	}
+
+	private static List<Account> take(Iterator<Entry> iterator, int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("K must not be negative");
+		}
+		List<Account> result = new ArrayList<>(Math.min(k, 1_024));
+		while (result.size() < k && iterator.hasNext()) {
+			result.add(iterator.next().account);
+		}
+		return result;
+	}
+
+	private static class Entry implements Comparable<Entry> {
+		private final long balance;
+		private final int id;
+		private final long sequence;
+		private final Account account;
+
+		Entry(long balance, int id, long sequence, Account account) {
+			this.balance = balance;
+			this.id = id;
+			this.sequence = sequence;
+			this.account = account;
+		}
+
+		@Override
+		public int compareTo(Entry other) {
+			int result = Long.compare(balance, other.balance);
+			if (result == 0) {
+				result = Integer.compare(id, other.id);
+			}
+			if (result == 0) {
+				result = Long.compare(sequence, other.sequence);
+			}
+			return result;
+		}
+	}
+}
@@ -1,65 +1,492 @@
 package com.luxoft.bankapp.domain;
 
-import java.text.DateFormat;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.luxoft.bankapp.exceptions.ClientExistsException;
+import com.luxoft.bankapp.log.Level;
+import com.luxoft.bankapp.log.Log;
+import com.luxoft.bankapp.metrics.BankMetrics;
 import com.luxoft.bankapp.service.EmailService;
+import com.luxoft.bankapp.utils.BankChangeListener;
+import com.luxoft.bankapp.utils.ClientEventBus;
 import com.luxoft.bankapp.utils.ClientRegistrationListener;
 
 public class Bank {
 	
-	private final Set<Client> clients = new HashSet<>();
-	private final List<ClientRegistrationListener> listeners = new ArrayList<ClientRegistrationListener>();
+	// Key of clients without a name, which ConcurrentHashMap cannot hold
+	private static final Object NO_NAME = new Object();
 
-	private int printedClients = 0;
-	private int emailedClients = 0;
-	private int debuggedClients = 0;
+	// Writers register one at a time; readers never lock
+	private final Object registration = new Object();
+	private final ClientLog clients = new ClientLog();
+	private final Map<Object, List<Client>> clientsByName = new ConcurrentHashMap<>();
+	private final ClientEventBus eventBus;
+	private final List<BankChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+	private final BankChangeListener changeDispatcher = new ChangeDispatcher();
+	private final BankStatistics statistics = new BankStatistics();
+	private volatile BalanceIndex balanceIndex;
+	private volatile ClientIndex clientIndex;
+	// For a copy made by snapshot(), the epoch it shows
+	private long snapshotEpoch;
+	// Results of each CachedBankReport for this bank, so they go away with the bank
+	final Map<CachedBankReport, CachedBankReport.Results> reportResults = Collections.synchronizedMap(new WeakHashMap<>());
+
+	private final AtomicInteger printedClients = new AtomicInteger();
+	private final AtomicInteger emailedClients = new AtomicInteger();
+	private final AtomicInteger debuggedClients = new AtomicInteger();
 	
+	// Listeners run before addClient returns, so the counters below are up to date once it does, and
+	// the bank owns no dispatch threads nobody would close. Pass an asynchronous bus to decouple them.
 	public Bank(EmailService emailService) {
-		listeners.add(new PrintClientListener());
-		listeners.add(new EmailNotificationListener(emailService));
-		listeners.add(new DebugListener());
+		this(emailService, new ClientEventBus(false));
+	}
+
+	public Bank(EmailService emailService, ClientEventBus eventBus) {
+		this(eventBus);
+		eventBus.register(new PrintClientListener());
+		eventBus.register(new EmailNotificationListener(emailService));
+		eventBus.register(new DebugListener());
+	}
+
+	// Without registration listeners, for snapshots
+	private Bank(ClientEventBus eventBus) {
+		this.eventBus = eventBus;
+		changeListeners.add(statistics);
 	}
 	
 	public int getPrintedClients() {
-		return printedClients;
+		return printedClients.get();
 	}
 
 	public int getEmailedClients() {
-		return emailedClients;
+		return emailedClients.get();
 	}
 
 	public int getDebuggedClients() {
-		return debuggedClients;
+		return debuggedClients.get();
+	}
+
+	public void addListener(ClientRegistrationListener listener) {
+		eventBus.register(listener);
+	}
+
+	public boolean removeListener(ClientRegistrationListener listener) {
+		return eventBus.unregister(listener);
+	}
+
+	public ClientEventBus getEventBus() {
+		return eventBus;
+	}
+
+	public void addChangeListener(BankChangeListener listener) {
+		changeListeners.add(listener);
+	}
+
+	public boolean removeChangeListener(BankChangeListener listener) {
+		return changeListeners.remove(listener);
+	}
+
+	// Counters kept up to date by every mutation of the bank
+	public BankStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Starts maintaining accounts ordered by balance, used by the top-K and range reports.
+	 * Costs O(log N) on every balance change.
+	 */
+	public synchronized BalanceIndex enableBalanceIndex() {
+		if (balanceIndex == null) {
+			BalanceIndex index = new BalanceIndex();
+			// Listen first so no change made during the backfill is missed
+			changeListeners.add(index);
+			for (Client client : getClients()) {
+				for (Account account : client.getAccounts()) {
+					index.refresh(account);
+				}
+			}
+			balanceIndex = index;
+		}
+		return balanceIndex;
+	}
+
+	// null unless enableBalanceIndex() was called
+	public BalanceIndex getBalanceIndex() {
+		return balanceIndex;
+	}
+
+	/**
+	 * Starts maintaining clients sorted by name and grouped by city, used by the sorted and
+	 * by-city reports and by name prefix lookups. Costs O(log N) on every added client.
+	 */
+	public synchronized ClientIndex enableClientIndexes() {
+		if (clientIndex == null) {
+			ClientIndex index = new ClientIndex();
+			changeListeners.add(index);
+			for (Client client : getClients()) {
+				index.onClientAdded(client);
+			}
+			clientIndex = index;
+		}
+		return clientIndex;
+	}
+
+	// null unless enableClientIndexes() was called
+	public ClientIndex getClientIndex() {
+		return clientIndex;
 	}
 	
 	public void addClient(final Client client) throws ClientExistsException {
-    	if (clients.contains(client)) {
+		long start = System.nanoTime();
+    	if (!register(client)) {
     		throw new ClientExistsException("Client already exists into the bank");
     	} 
     		
-    	clients.add(client);
         notify(client);
+		BankMetrics.CLIENTS_ADDED.increment();
+		BankMetrics.ADD_CLIENT_LATENCY.recordSince(start);
+	}
+	
+	/**
+	 * Adds every client that is not already in the bank, in a single pass, and notifies listeners
+	 * once for the whole batch. Duplicates are collected in the result instead of aborting the import.
+	 */
+	public ClientImportResult addClients(final Collection<Client> newClients) {
+		return importClients(newClients.iterator(), Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Streaming variant of {@link #addClients}: consumes the source lazily and notifies listeners
+	 * once per {@code batchSize} added clients.
+	 */
+	public ClientImportResult importClients(final Iterator<Client> source, final int batchSize) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("Batch size must be positive");
+		}
+
+		int added = 0;
+		List<Client> conflicts = new ArrayList<>();
+		List<Client> batch = new ArrayList<>();
+		while (source.hasNext()) {
+			Client client = source.next();
+			if (client == null) {
+				throw new IllegalArgumentException("Client must not be null");
+			}
+			if (!register(client)) {
+				conflicts.add(client);
+				continue;
+			}
+
+			added++;
+			batch.add(client);
+			if (batch.size() == batchSize) {
+				eventBus.publishAll(batch);
+				batch = new ArrayList<>();
+			}
+		}
+		eventBus.publishAll(batch);
+
+		return new ClientImportResult(added, conflicts);
+	}
+	
+	/**
+	 * Adds clients rebuilt from persisted state. Change listeners see them as usual, but
+	 * registration listeners are not notified, so no welcome emails are sent again.
+	 */
+	public ClientImportResult restoreClients(final Collection<Client> restored) {
+		int added = 0;
+		List<Client> conflicts = new ArrayList<>();
+		for (Client client : restored) {
+			if (register(client)) {
+				added++;
+			} else {
+				conflicts.add(client);
+			}
+		}
+		return new ClientImportResult(added, conflicts);
+	}
+
+	private boolean register(Client client) {
+		Account[] accounts;
+		long[] balances;
+		// The client and its accounts join the bank in the same epoch, see snapshot()
+		try (Epochs.Section section = Epochs.enter()) {
+			synchronized (registration) {
+				if (!clients.append(client, section.epoch())) {
+					return false;
+				}
+				clientsByName.merge(nameKey(client.getName()), List.of(client), Bank::concat);
+			}
+			accounts = client.join(this);
+			balances = new long[accounts.length];
+			for (int i = 0; i < accounts.length; i++) {
+				balances[i] = attach(accounts[i]);
+			}
+		}
+
+		changeDispatcher.onClientAdded(client);
+		for (int i = 0; i < accounts.length; i++) {
+			changeDispatcher.onAccountAdded(client, accounts[i], balances[i]);
+		}
+		return true;
+	}
+
+	private static Object nameKey(String name) {
+		return name == null ? NO_NAME : name;
+	}
+
+	private static List<Client> concat(List<Client> first, List<Client> second) {
+		List<Client> joined = new ArrayList<>(first.size() + second.size());
+		joined.addAll(first);
+		joined.addAll(second);
+		return Collections.unmodifiableList(joined);
+	}
+
+	/**
+	 * Balance changes of the account are reported to this bank and run inside write sections from
+	 * now on. Returns the balance the account joins with, which includes every earlier change.
+	 */
+	long attach(Account account) {
+		if (account instanceof AbstractAccount abstractAccount) {
+			return abstractAccount.attach(changeDispatcher);
+		} else if (account instanceof OffHeapAccountStore.StoredAccount stored) {
+			return stored.getStore().attach(stored, changeDispatcher);
+		}
+		return account.getBalanceInMinorUnits();
+	}
+
+	void accountAdded(Client client, Account account, long balance) {
+		changeDispatcher.onAccountAdded(client, account, balance);
+	}
+
+	public Client getClient(long id) {
+		return clients.get(id);
+	}
+
+	public List<Client> getClientsByName(String name) {
+		return clientsByName.getOrDefault(nameKey(name), Collections.emptyList());
 	}
 	
 	private void notify(Client client) {
-        for (ClientRegistrationListener listener: listeners) {
-            listener.onClientAdded(client);
-        }
+        eventBus.publish(client);
     }
 	
+	/**
+	 * The clients registered so far. The set does not change afterwards, so it can be iterated,
+	 * also by parallel streams, while other threads add clients. Read-only.
+	 */
 	public Set<Client> getClients() {
-		return Collections.unmodifiableSet(clients);
+		return clients.view();
+	}
+
+	/**
+	 * Copies the bank as it was at a single point in time, so reports run on the copy add up while
+	 * clients keep being added and money keeps moving. Every change, and every transfer made by
+	 * {@code TransferService}, is either wholly in the copy or not at all.
+	 * <p>
+	 * Writers are held back only while the changes already under way finish, not while the copy is
+	 * made: until it is done, the first change to each account keeps the balance it replaces for the
+	 * copy to read. The copy costs about as much as restoring the bank, so take one per batch of
+	 * reports. It has no registration listeners and is detached from this bank; stored accounts are
+	 * copied as heap accounts of the same kind.
+	 */
+	public Bank snapshot() {
+		try (SnapshotView view = openSnapshotView()) {
+			List<Client> copies = new ArrayList<>(view.getClients().size());
+			for (Client client : view.getClients()) {
+				Client copy = new Client(client.getId(), client.getName(), client.getGender(), client.getCity());
+				for (Account account : view.getAccounts(client)) {
+					copy.addAccount(copyOf(account, view));
+				}
+				copies.add(copy);
+			}
+			Bank snapshot = new Bank(new ClientEventBus(false));
+			snapshot.restoreClients(copies);
+			snapshot.snapshotEpoch = view.getEpoch();
+			return snapshot;
+		}
+	}
+
+	/**
+	 * Shows the bank as it was at a single point in time, like {@link #snapshot()}, but reads the
+	 * clients, accounts and balances from the bank itself instead of copying them, so they can be
+	 * streamed out. Until the view is closed the first change to each account keeps the balance it
+	 * replaces, so close it as soon as it has been read.
+	 */
+	public SnapshotView openSnapshotView() {
+		return new SnapshotView(Epochs.openSnapshot());
+	}
+
+	/**
+	 * For a copy made by {@link #snapshot()}, the epoch it shows: it holds every change reported with
+	 * this epoch or an earlier one (see {@code Epochs.reportedEpoch()}) and no later change. 0 for
+	 * any other bank.
+	 */
+	public long getSnapshotEpoch() {
+		return snapshotEpoch;
+	}
+
+	// Accounts of other kinds are shared with the copy rather than copied
+	private static Account copyOf(Account account, SnapshotView view) {
+		if (!(account instanceof AbstractAccount) && !(account instanceof OffHeapAccountStore.StoredAccount)) {
+			return account;
+		}
+		double balance = Money.toMajorUnits(view.getBalanceInMinorUnits(account));
+		return account instanceof OverdraftAccount checking
+				? new CheckingAccount(account.getId(), balance, checking.getOverdraft())
+				: new SavingAccount(account.getId(), balance);
+	}
+
+	/**
+	 * The bank at the epoch of an open snapshot, see {@link Bank#openSnapshotView()}. Read-only; not
+	 * to be shared between threads.
+	 */
+	public class SnapshotView implements AutoCloseable {
+		private final long epoch;
+		private final Set<Client> registered;
+		private boolean closed;
+
+		private SnapshotView(long epoch) {
+			this.epoch = epoch;
+			this.registered = clients.view(clients.sizeAt(epoch));
+		}
+
+		// Holds every change reported with this epoch or an earlier one, see getSnapshotEpoch()
+		public long getEpoch() {
+			return epoch;
+		}
+
+		public Set<Client> getClients() {
+			return registered;
+		}
+
+		// The accounts the client had, in the order they were added
+		public List<Account> getAccounts(Client client) {
+			AccountSet accounts = client.getAccounts();
+			int size = accounts.sizeAt(epoch);
+			return new AbstractList<>() {
+				@Override
+				public Account get(int index) {
+					Objects.checkIndex(index, size);
+					return accounts.get(index);
+				}
+
+				@Override
+				public int size() {
+					return size;
+				}
+			};
+		}
+
+		// Accounts of other kinds are read as they are now
+		public long getBalanceInMinorUnits(Account account) {
+			if (account instanceof AbstractAccount held) {
+				return held.getBalanceInMinorUnits(epoch);
+			} else if (account instanceof OffHeapAccountStore.StoredAccount stored) {
+				return stored.getBalanceInMinorUnits(epoch);
+			}
+			return account.getBalanceInMinorUnits();
+		}
+
+		@Override
+		public void close() {
+			if (!closed) {
+				closed = true;
+				Epochs.closeSnapshot(epoch);
+			}
+		}
+	}
+	
+	/**
+	 * Events of changes made inside an enclosing write section wait until it closes, see Epochs.
+	 * Each event is called on the thread that made the change, right after the section the change
+	 * was made in, so its epoch is the thread's last one; listeners read it from
+	 * Epochs.reportedEpoch().
+	 */
+	class ChangeDispatcher implements BankChangeListener {
+		@Override
+		public void onClientAdded(Client client) {
+			long epoch = Epochs.lastEpoch();
+			if (Epochs.inSection()) {
+				Epochs.defer(() -> clientAdded(epoch, client));
+			} else {
+				clientAdded(epoch, client);
+			}
+		}
+
+		@Override
+		public void onAccountAdded(Client client, Account account, long balance) {
+			long epoch = Epochs.lastEpoch();
+			if (Epochs.inSection()) {
+				Epochs.defer(() -> accountAdded(epoch, client, account, balance));
+			} else {
+				accountAdded(epoch, client, account, balance);
+			}
+		}
+
+		@Override
+		public void onBalanceChanged(Account account, long oldBalance, long newBalance) {
+			long epoch = Epochs.lastEpoch();
+			if (Epochs.inSection()) {
+				Epochs.defer(() -> balanceChanged(epoch, account, oldBalance, newBalance));
+			} else {
+				balanceChanged(epoch, account, oldBalance, newBalance);
+			}
+		}
+
+		private void clientAdded(long epoch, Client client) {
+			long outer = Epochs.report(epoch);
+			try {
+				for (BankChangeListener listener : changeListeners) {
+					listener.onClientAdded(client);
+				}
+			} finally {
+				Epochs.report(outer);
+			}
+		}
+
+		private void accountAdded(long epoch, Client client, Account account, long balance) {
+			long outer = Epochs.report(epoch);
+			try {
+				for (BankChangeListener listener : changeListeners) {
+					listener.onAccountAdded(client, account, balance);
+				}
+			} finally {
+				Epochs.report(outer);
+			}
+		}
+
+		private void balanceChanged(long epoch, Account account, long oldBalance, long newBalance) {
+			long outer = Epochs.report(epoch);
+			try {
+				for (BankChangeListener listener : changeListeners) {
+					listener.onBalanceChanged(account, oldBalance, newBalance);
+				}
+			} finally {
+				Epochs.report(outer);
+			}
+		}
 	}
 	
 	class PrintClientListener implements ClientRegistrationListener {
 		@Override 
 		public void onClientAdded(Client client) {
-	        System.out.println("Client added: " + client.getName());
-	        printedClients++;
+	        Log.info("Client added: %s", client.getName());
+	        printedClients.incrementAndGet();
 	    }
 
+		@Override
+		public void onClientsAdded(Collection<Client> clients) {
+			Log.info("Clients added: %d", clients.size());
+			printedClients.addAndGet(clients.size());
+		}
+
 	}
 	
 	class EmailNotificationListener implements ClientRegistrationListener {
@@ -71,17 +498,37 @@ public class Bank {
 
 		@Override 
 		public void onClientAdded(Client client) {
-	        System.out.println("Notification email for client " + client.getName() + " to be sent");
+	        Log.info("Notification email for client %s to be sent", client.getName());
 			emailService.sendNotificationEmail(new Email(client.getName(), "Friend"));
-	        emailedClients++;
+	        emailedClients.incrementAndGet();
 	    }
+
+		@Override
+		public void onClientsAdded(Collection<Client> clients) {
+			Log.info("Summary notification email for %d clients to be sent", clients.size());
+			emailService.sendNotificationEmail(new Email(clients.size() + " new clients", "Friend"));
+			emailedClients.addAndGet(clients.size());
+		}
 	}
 	
 	class DebugListener implements ClientRegistrationListener {
+		// DateTimeFormatter is immutable and thread-safe, unlike DateFormat
+		private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofLocalizedDate(FormatStyle.FULL);
+
         @Override 
         public void onClientAdded(Client client) {
-            System.out.println("Client " + client.getName() + " added on: " + DateFormat.getDateInstance(DateFormat.FULL).format(new Date()));
-            debuggedClients++;
+            if (Log.isEnabled(Level.DEBUG)) {
+                Log.debug("Client %s added on: %s", client.getName(), DATE_FORMAT.format(LocalDate.now()));
+            }
+            debuggedClients.incrementAndGet();
+        }
+
+        @Override
+        public void onClientsAdded(Collection<Client> clients) {
+            if (Log.isEnabled(Level.DEBUG)) {
+                Log.debug("%d clients added on: %s", clients.size(), DATE_FORMAT.format(LocalDate.now()));
+            }
+            debuggedClients.addAndGet(clients.size());
         }
     }
 
@@ -90,11 +537,11 @@ public class Bank {
 		if (this == o) return true;
 		if (o == null || getClass() != o.getClass()) return false;
 		Bank bank = (Bank) o;
-		return Objects.equals(clients, bank.clients);
+		return Objects.equals(getClients(), bank.getClients());
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(clients);
+		return Objects.hash(getClients());
 	}
 }
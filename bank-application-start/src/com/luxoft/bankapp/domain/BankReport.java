@@ -30,11 +30,12 @@ public class BankReport implements BankReportInterface {
 
     @Override
     public SortedSet<Client> getClientsSorted(Bank bank) {
-        Comparator<Client> byNameThenGender = Comparator
-                .comparing(Client::getName, Comparator.nullsFirst(Comparator.naturalOrder()))
-                .thenComparing(Client::getGender, Comparator.nullsFirst(Comparator.naturalOrder()));
+        ClientIndex index = bank.getClientIndex();
+        if (index != null) {
+            return index.getClientsSorted();
+        }
 
-        SortedSet<Client> sorted = new TreeSet<>(byNameThenGender);
+        SortedSet<Client> sorted = new TreeSet<>(ClientIndex.BY_NAME_THEN_GENDER);
         sorted.addAll(bank.getClients());
 
         return sorted;
@@ -42,21 +43,21 @@ public class BankReport implements BankReportInterface {
 
     @Override
     public double getTotalSumInAccounts(Bank bank) {
-        double totalSum = 0;
+        long totalSum = 0;
 
         for (Client client : bank.getClients()) {
-            for (Account account : client.getAccounts()) {
-                totalSum += account.getBalance();
+            AccountSet accounts = client.getAccounts();
+            for (int i = 0; i < accounts.size(); i++) {
+                totalSum = Money.add(totalSum, accounts.get(i).getBalanceInMinorUnits());
             }
         }
 
-        return totalSum;
+        return Money.toMajorUnits(totalSum);
     }
 
     @Override
     public SortedSet<Account> getAccountsSortedBySum(Bank bank) {
-        Comparator<Account> byBalance = Comparator.comparing(Account::getBalance);
-        SortedSet<Account> sorted = new TreeSet<>(byBalance);
+        SortedSet<Account> sorted = new TreeSet<>(BalanceIndex.BY_BALANCE);
 
         Set<Account> allAccounts = new HashSet<>();
         for (Client client : bank.getClients()) {
@@ -70,21 +71,23 @@ public class BankReport implements BankReportInterface {
 
     @Override
     public double getBankCreditSum(Bank bank) {
-        double total = 0;
-        double balance;
+        long total = 0;
+        long balance;
 
         for (Client client : bank.getClients()) {
-            for (Account account : client.getAccounts()) {
-                if (account instanceof CheckingAccount) {
-                    balance = account.getBalance();
+            AccountSet accounts = client.getAccounts();
+            for (int i = 0; i < accounts.size(); i++) {
+                Account account = accounts.get(i);
+                if (account instanceof OverdraftAccount) {
+                    balance = account.getBalanceInMinorUnits();
                     if (balance < 0) {
-                        total += Math.abs(balance);
+                        total = Money.subtract(total, balance);
                     }
                 }
             }
         }
 
-        return total;
+        return Money.toMajorUnits(total);
     }
 
     @Override
@@ -100,6 +103,11 @@ public class BankReport implements BankReportInterface {
 
     @Override
     public Map<String, List<Client>> getClientsByCity(Bank bank) {
+        ClientIndex index = bank.getClientIndex();
+        if (index != null) {
+            return index.getClientsByCity();
+        }
+
         Map<String, List<Client>> result = new TreeMap<>(String::compareTo);
 
         for (Client client : bank.getClients()) {
@@ -11,4 +11,68 @@ public interface BankReportInterface {
     double getBankCreditSum(Bank bank);
     Map <Client, Collection<Account>> getCustomerAccounts(Bank bank);
     Map <String, List<Client>> getClientsByCity(Bank bank);
+
+    // The K accounts with the highest balance, highest first. Served by the bank's balance index when
+    // enabled, otherwise by one scan with a bounded heap (O(N log K))
+    default List<Account> getTopAccountsByBalance(Bank bank, int k) {
+        BalanceIndex index = bank.getBalanceIndex();
+        if (index != null) {
+            return index.top(k);
+        }
+        return selectAccounts(bank, k, BalanceIndex.BY_BALANCE.reversed());
+    }
+
+    // The K accounts with the lowest balance, lowest first
+    default List<Account> getBottomAccountsByBalance(Bank bank, int k) {
+        BalanceIndex index = bank.getBalanceIndex();
+        if (index != null) {
+            return index.bottom(k);
+        }
+        return selectAccounts(bank, k, BalanceIndex.BY_BALANCE);
+    }
+
+    // Accounts with min <= balance <= max, lowest first
+    default List<Account> getAccountsInBalanceRange(Bank bank, double min, double max) {
+        BalanceIndex index = bank.getBalanceIndex();
+        if (index != null) {
+            return index.range(min, max);
+        }
+        long from = Money.toMinorUnits(min);
+        long to = Money.toMinorUnits(max);
+        List<Account> result = new ArrayList<>();
+        for (Client client : bank.getClients()) {
+            for (Account account : client.getAccounts()) {
+                long balance = account.getBalanceInMinorUnits();
+                if (balance >= from && balance <= to) {
+                    result.add(account);
+                }
+            }
+        }
+        result.sort(BalanceIndex.BY_BALANCE);
+        return result;
+    }
+
+    private List<Account> selectAccounts(Bank bank, int k, Comparator<Account> order) {
+        if (k < 0) {
+            throw new IllegalArgumentException("K must not be negative");
+        }
+        if (k == 0) {
+            return new ArrayList<>();
+        }
+        // Heap head is the worst of the best K seen so far
+        PriorityQueue<Account> heap = new PriorityQueue<>(k, order.reversed());
+        for (Client client : bank.getClients()) {
+            for (Account account : client.getAccounts()) {
+                if (heap.size() < k) {
+                    heap.add(account);
+                } else if (order.compare(account, heap.peek()) < 0) {
+                    heap.poll();
+                    heap.add(account);
+                }
+            }
+        }
+        List<Account> result = new ArrayList<>(heap);
+        result.sort(order);
+        return result;
+    }
 }
@@ -0,0 +1,51 @@
+package com.luxoft.bankapp.domain;
+
+import java.util.*;
+
+/**
+ * Serves the totals from the bank's incrementally maintained {@link BankStatistics}
+ * and delegates the remaining reports to {@link BankReportStreams}.
+ */
+public class BankReportLive implements BankReportInterface {
+    private final BankReportInterface scanning = new BankReportStreams();
+
+    @Override
+    public int getNumberOfClients(Bank bank) {
+        return bank.getStatistics().getNumberOfClients();
+    }
+
+    @Override
+    public int getNumberOfAccounts(Bank bank) {
+        return bank.getStatistics().getNumberOfAccounts();
+    }
+
+    @Override
+    public SortedSet<Client> getClientsSorted(Bank bank) {
+        return scanning.getClientsSorted(bank);
+    }
+
+    @Override
+    public double getTotalSumInAccounts(Bank bank) {
+        return bank.getStatistics().getTotalSumInAccounts();
+    }
+
+    @Override
+    public SortedSet<Account> getAccountsSortedBySum(Bank bank) {
+        return scanning.getAccountsSortedBySum(bank);
+    }
+
+    @Override
+    public double getBankCreditSum(Bank bank) {
+        return bank.getStatistics().getBankCreditSum();
+    }
+
+    @Override
+    public Map<Client, Collection<Account>> getCustomerAccounts(Bank bank) {
+        return scanning.getCustomerAccounts(bank);
+    }
+
+    @Override
+    public Map<String, List<Client>> getClientsByCity(Bank bank) {
+        return scanning.getClientsByCity(bank);
+    }
+}
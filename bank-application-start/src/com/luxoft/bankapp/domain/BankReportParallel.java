@@ -0,0 +1,150 @@
+package com.luxoft.bankapp.domain;
+
+import com.luxoft.bankapp.utils.SortedArraySet;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the reports as parallel streams inside a fork/join pool. Banks with fewer clients than
+ * the threshold are handled sequentially by {@link BankReportStreams}, where splitting would cost more than it saves.
+ */
+public class BankReportParallel implements BankReportInterface {
+    public static final int DEFAULT_THRESHOLD = 10_000;
+
+    private final int threshold;
+    private final ForkJoinPool pool;
+    private final BankReportInterface sequential = new BankReportStreams();
+
+    public BankReportParallel() {
+        this(DEFAULT_THRESHOLD, ForkJoinPool.commonPool());
+    }
+
+    public BankReportParallel(int threshold, ForkJoinPool pool) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold must not be negative");
+        }
+        this.threshold = threshold;
+        this.pool = pool;
+    }
+
+    @Override
+    public int getNumberOfClients(Bank bank) {
+        return bank.getClients().size();
+    }
+
+    @Override
+    public int getNumberOfAccounts(Bank bank) {
+        if (isSmall(bank)) {
+            return sequential.getNumberOfAccounts(bank);
+        }
+        return inPool(() -> bank.getClients().parallelStream()
+                .mapToInt(client -> client.getAccounts().size())
+                .sum());
+    }
+
+    @Override
+    public SortedSet<Client> getClientsSorted(Bank bank) {
+        if (isSmall(bank) || bank.getClientIndex() != null) {
+            return sequential.getClientsSorted(bank);
+        }
+        Client[] clients = bank.getClients().toArray(new Client[0]);
+        inPool(() -> {
+            Arrays.parallelSort(clients, ClientIndex.BY_NAME_THEN_GENDER);
+            return null;
+        });
+        return toSortedSet(clients, ClientIndex.BY_NAME_THEN_GENDER);
+    }
+
+    @Override
+    public double getTotalSumInAccounts(Bank bank) {
+        if (isSmall(bank)) {
+            return sequential.getTotalSumInAccounts(bank);
+        }
+        return Money.toMajorUnits(inPool(() -> bank.getClients().parallelStream()
+                .flatMap(client -> client.getAccounts().stream())
+                .mapToLong(Account::getBalanceInMinorUnits)
+                .reduce(0, Money::add)));
+    }
+
+    @Override
+    public SortedSet<Account> getAccountsSortedBySum(Bank bank) {
+        if (isSmall(bank)) {
+            return sequential.getAccountsSortedBySum(bank);
+        }
+        Account[] accounts = inPool(() -> {
+            Account[] all = bank.getClients().parallelStream()
+                    .flatMap(client -> client.getAccounts().stream())
+                    .toArray(Account[]::new);
+            Arrays.parallelSort(all, BalanceIndex.BY_BALANCE);
+            return all;
+        });
+        return toSortedSet(accounts, BalanceIndex.BY_BALANCE);
+    }
+
+    @Override
+    public double getBankCreditSum(Bank bank) {
+        if (isSmall(bank)) {
+            return sequential.getBankCreditSum(bank);
+        }
+        return Money.toMajorUnits(inPool(() -> bank.getClients().parallelStream()
+                .flatMap(client -> client.getAccounts().stream())
+                .filter(account -> account instanceof OverdraftAccount)
+                .mapToLong(Account::getBalanceInMinorUnits)
+                .filter(balance -> balance < 0)
+                .map(Money::negate)
+                .reduce(0, Money::add)));
+    }
+
+    @Override
+    public Map<Client, Collection<Account>> getCustomerAccounts(Bank bank) {
+        if (isSmall(bank)) {
+            return sequential.getCustomerAccounts(bank);
+        }
+        return inPool(() -> bank.getClients().parallelStream()
+                .collect(Collectors.toConcurrentMap(
+                        client -> client,
+                        Client::getAccounts
+                )));
+    }
+
+    @Override
+    public Map<String, List<Client>> getClientsByCity(Bank bank) {
+        if (isSmall(bank) || bank.getClientIndex() != null) {
+            return sequential.getClientsByCity(bank);
+        }
+        return inPool(() -> bank.getClients().parallelStream()
+                .collect(Collectors.groupingByConcurrent(
+                        Client::getCity,
+                        ConcurrentSkipListMap::new,
+                        Collectors.toList()
+                )));
+    }
+
+    private boolean isSmall(Bank bank) {
+        return bank.getClients().size() < threshold;
+    }
+
+    // Parallel streams started from inside a fork/join task run in that task's pool
+    private <T> T inPool(Supplier<T> task) {
+        return pool.submit(task::get).join();
+    }
+
+    /**
+     * Builds the set from elements already sorted by the comparator. A TreeSet built from a sorted
+     * set with the same comparator is built in linear time, instead of inserting one by one.
+     */
+    private static <T> SortedSet<T> toSortedSet(T[] sorted, Comparator<? super T> comparator) {
+        int size = 0;
+        for (T element : sorted) {
+            // Keeps the first of equal elements, like adding them one by one would
+            if (size == 0 || comparator.compare(sorted[size - 1], element) != 0) {
+                sorted[size++] = element;
+            }
+        }
+        return new TreeSet<>(new SortedArraySet<>(sorted, size, comparator));
+    }
+}
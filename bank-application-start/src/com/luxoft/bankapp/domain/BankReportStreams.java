@@ -15,37 +15,40 @@ public class BankReportStreams implements BankReportInterface {
 
     @Override
     public SortedSet<Client> getClientsSorted(Bank bank) {
+        ClientIndex index = bank.getClientIndex();
+        if (index != null) {
+            return index.getClientsSorted();
+        }
 
-        Comparator<Client> byNameThenGender = Comparator
-                .comparing(Client::getName, Comparator.nullsFirst(Comparator.naturalOrder()))
-                .thenComparing(Client::getGender, Comparator.nullsFirst(Comparator.naturalOrder()));
-
-        return bank.getClients().stream().sorted(byNameThenGender).collect(Collectors.toCollection(() -> new TreeSet<>(byNameThenGender)));
+        return bank.getClients().stream()
+                .sorted(ClientIndex.BY_NAME_THEN_GENDER)
+                .collect(Collectors.toCollection(() -> new TreeSet<>(ClientIndex.BY_NAME_THEN_GENDER)));
     }
 
     @Override
     public double getTotalSumInAccounts(Bank bank) {
-        return bank.getClients().stream().mapToDouble(client ->
-            client.getAccounts().stream().mapToDouble(Account::getBalance).sum()).sum();
+        return Money.toMajorUnits(bank.getClients().stream()
+                .flatMap(client -> client.getAccounts().stream())
+                .mapToLong(Account::getBalanceInMinorUnits)
+                .reduce(0, Money::add));
     }
 
     @Override
     public SortedSet<Account> getAccountsSortedBySum(Bank bank) {
-        Comparator<Account> byBalance = Comparator.comparing(Account::getBalance);
-
         return bank.getClients().stream()
                 .flatMap(client -> client.getAccounts().stream())
-                .collect(Collectors.toCollection(() -> new TreeSet<>(byBalance)));
+                .collect(Collectors.toCollection(() -> new TreeSet<>(BalanceIndex.BY_BALANCE)));
     }
 
     @Override
     public double getBankCreditSum(Bank bank) {
-        return bank.getClients().stream()
+        return Money.toMajorUnits(bank.getClients().stream()
                 .flatMap(client -> client.getAccounts().stream())
-                .filter(account -> account instanceof CheckingAccount && account.getBalance() < 0)
-                .mapToDouble(Account::getBalance)
-                .map(Math::abs)
-                .sum();
+                .filter(account -> account instanceof OverdraftAccount)
+                .mapToLong(Account::getBalanceInMinorUnits)
+                .filter(balance -> balance < 0)
+                .map(Money::negate)
+                .reduce(0, Money::add));
     }
 
     @Override
@@ -59,6 +62,11 @@ public class BankReportStreams implements BankReportInterface {
 
     @Override
     public Map<String, List<Client>> getClientsByCity(Bank bank) {
+        ClientIndex index = bank.getClientIndex();
+        if (index != null) {
+            return index.getClientsByCity();
+        }
+
         return bank.getClients().stream()
                 .collect(Collectors.groupingBy(
                         Client::getCity,
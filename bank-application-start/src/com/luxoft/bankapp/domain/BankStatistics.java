@@ -0,0 +1,69 @@
+package com.luxoft.bankapp.domain;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.luxoft.bankapp.utils.BankChangeListener;
+
+/**
+ * Bank totals maintained incrementally from change events, so reading them is O(1).
+ * Amounts are accumulated in minor units, so they are exact.
+ */
+public class BankStatistics implements BankChangeListener {
+
+	private final LongAdder clients = new LongAdder();
+	private final LongAdder accounts = new LongAdder();
+	private final LongAdder totalBalance = new LongAdder();
+	private final LongAdder creditUsed = new LongAdder();
+	private final LongAdder balanceChanges = new LongAdder();
+
+	@Override
+	public void onClientAdded(Client client) {
+		clients.increment();
+	}
+
+	@Override
+	public void onAccountAdded(Client client, Account account, long balance) {
+		accounts.increment();
+		totalBalance.add(balance);
+		if (account instanceof OverdraftAccount) {
+			creditUsed.add(credit(balance));
+		}
+	}
+
+	@Override
+	public void onBalanceChanged(Account account, long oldBalance, long newBalance) {
+		balanceChanges.increment();
+		totalBalance.add(newBalance - oldBalance);
+		if (account instanceof OverdraftAccount) {
+			creditUsed.add(credit(newBalance) - credit(oldBalance));
+		}
+	}
+
+	public int getNumberOfClients() {
+		return clients.intValue();
+	}
+
+	public int getNumberOfAccounts() {
+		return accounts.intValue();
+	}
+
+	public double getTotalSumInAccounts() {
+		return Money.toMajorUnits(totalBalance.sum());
+	}
+
+	public double getBankCreditSum() {
+		return Money.toMajorUnits(creditUsed.sum());
+	}
+
+	/**
+	 * Number of mutations seen so far. It is counted after each mutation is applied, so a result
+	 * computed after reading a version reflects at least every mutation that version counts.
+	 */
+	public long getVersion() {
+		return clients.sum() + accounts.sum() + balanceChanges.sum();
+	}
+
+	private static long credit(long balance) {
+		return balance < 0 ? -balance : 0;
+	}
+}
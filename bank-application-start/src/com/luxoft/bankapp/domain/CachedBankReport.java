@@ -0,0 +1,214 @@
+package com.luxoft.bankapp.domain;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Caches the results of another report per bank until the bank is mutated, as told by
+ * {@link BankStatistics#getVersion()}. Repeated queries against an unchanged bank return without
+ * scanning it.
+ * <p>
+ * Under constant write load every mutation would invalidate the cache, so a maximum staleness can
+ * be set: results younger than it are served even if the bank has changed since. It is zero by
+ * default, meaning results are always current. Cached collections are unmodifiable, since they are
+ * shared by every caller.
+ * <p>
+ * Results are kept with the bank they were computed for and go away with it. Of the results that
+ * depend on an argument, such as the {@code k} of the top accounts, only the most recently used
+ * {@value #MAX_ARGUMENT_RESULTS} per bank are kept.
+ */
+public class CachedBankReport implements BankReportInterface {
+    public static final int MAX_ARGUMENT_RESULTS = 64;
+
+    private final BankReportInterface delegate;
+    private volatile long maxStalenessNanos;
+    // Results computed before the last invalidate() belong to an older generation
+    private volatile long generation;
+
+    public CachedBankReport() {
+        this(new BankReportLive());
+    }
+
+    public CachedBankReport(BankReportInterface delegate) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Report must not be null");
+        }
+        this.delegate = delegate;
+    }
+
+    public void setMaxStaleness(long duration, TimeUnit unit) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("Staleness must not be negative");
+        }
+        maxStalenessNanos = unit.toNanos(duration);
+    }
+
+    public long getMaxStaleness(TimeUnit unit) {
+        return unit.convert(maxStalenessNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Drops every cached result
+    public void invalidate() {
+        generation++;
+    }
+
+    /**
+     * Caches any result derived from the bank under the given name, with the same invalidation as
+     * the built-in reports. Names share one namespace with the arguments that identify the result.
+     */
+    public <T> T get(Bank bank, String name, Function<Bank, T> report) {
+        return cached(bank, new Key(name, null), report);
+    }
+
+    @Override
+    public int getNumberOfClients(Bank bank) {
+        return cached(bank, new Key("numberOfClients", null), delegate::getNumberOfClients);
+    }
+
+    @Override
+    public int getNumberOfAccounts(Bank bank) {
+        return cached(bank, new Key("numberOfAccounts", null), delegate::getNumberOfAccounts);
+    }
+
+    @Override
+    public SortedSet<Client> getClientsSorted(Bank bank) {
+        return cached(bank, new Key("clientsSorted", null),
+                b -> Collections.unmodifiableSortedSet(delegate.getClientsSorted(b)));
+    }
+
+    @Override
+    public double getTotalSumInAccounts(Bank bank) {
+        return cached(bank, new Key("totalSumInAccounts", null), delegate::getTotalSumInAccounts);
+    }
+
+    @Override
+    public SortedSet<Account> getAccountsSortedBySum(Bank bank) {
+        return cached(bank, new Key("accountsSortedBySum", null),
+                b -> Collections.unmodifiableSortedSet(delegate.getAccountsSortedBySum(b)));
+    }
+
+    @Override
+    public double getBankCreditSum(Bank bank) {
+        return cached(bank, new Key("bankCreditSum", null), delegate::getBankCreditSum);
+    }
+
+    @Override
+    public Map<Client, Collection<Account>> getCustomerAccounts(Bank bank) {
+        return cached(bank, new Key("customerAccounts", null),
+                b -> Collections.unmodifiableMap(delegate.getCustomerAccounts(b)));
+    }
+
+    @Override
+    public Map<String, List<Client>> getClientsByCity(Bank bank) {
+        return cached(bank, new Key("clientsByCity", null), b -> {
+            Map<String, List<Client>> byCity = new LinkedHashMap<>();
+            delegate.getClientsByCity(b).forEach((city, clients) -> byCity.put(city, List.copyOf(clients)));
+            return Collections.unmodifiableMap(byCity);
+        });
+    }
+
+    @Override
+    public List<Account> getTopAccountsByBalance(Bank bank, int k) {
+        return cached(bank, new Key("topAccountsByBalance", k),
+                b -> Collections.unmodifiableList(delegate.getTopAccountsByBalance(b, k)));
+    }
+
+    @Override
+    public List<Account> getBottomAccountsByBalance(Bank bank, int k) {
+        return cached(bank, new Key("bottomAccountsByBalance", k),
+                b -> Collections.unmodifiableList(delegate.getBottomAccountsByBalance(b, k)));
+    }
+
+    @Override
+    public List<Account> getAccountsInBalanceRange(Bank bank, double min, double max) {
+        return cached(bank, new Key("accountsInBalanceRange", List.of(min, max)),
+                b -> Collections.unmodifiableList(delegate.getAccountsInBalanceRange(b, min, max)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T cached(Bank bank, Key key, Function<Bank, T> report) {
+        if (bank == null) {
+            throw new IllegalArgumentException("Bank must not be null");
+        }
+        Results results = bank.reportResults.computeIfAbsent(this, _ -> new Results());
+        long version = bank.getStatistics().getVersion();
+        long now = System.nanoTime();
+        long current = generation;
+        Entry entry = results.get(key);
+        if (entry != null && entry.generation == current
+                && (entry.version == version || now - entry.computedAt < maxStalenessNanos)) {
+            return (T) entry.value;
+        }
+        // The version is read before computing, so a mutation made meanwhile invalidates the result
+        T value = report.apply(bank);
+        results.put(key, new Entry(version, now, current, value));
+        return value;
+    }
+
+    // The results of one report for one bank
+    static final class Results {
+        private final ConcurrentHashMap<Key, Entry> fixed = new ConcurrentHashMap<>();
+        // Least recently used first; guarded by itself
+        private final LinkedHashMap<Key, Entry> byArgument = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > MAX_ARGUMENT_RESULTS;
+            }
+        };
+
+        Entry get(Key key) {
+            if (key.argument == null) {
+                return fixed.get(key);
+            }
+            synchronized (byArgument) {
+                return byArgument.get(key);
+            }
+        }
+
+        void put(Key key, Entry entry) {
+            if (key.argument == null) {
+                fixed.put(key, entry);
+            } else {
+                synchronized (byArgument) {
+                    byArgument.put(key, entry);
+                }
+            }
+        }
+    }
+
+    private static final class Key {
+        private final String name;
+        private final Object argument;
+
+        Key(String name, Object argument) {
+            this.name = name;
+            this.argument = argument;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key key && key.name.equals(name) && Objects.equals(key.argument, argument);
+        }
+
+        @Override
+        public int hashCode() {
+            return name.hashCode() * 31 + Objects.hashCode(argument);
+        }
+    }
+
+    private static final class Entry {
+        private final long version;
+        private final long computedAt;
+        private final long generation;
+        private final Object value;
+
+        Entry(long version, long computedAt, long generation, Object value) {
+            this.version = version;
+            this.computedAt = computedAt;
+            this.generation = generation;
+            this.value = value;
+        }
+    }
+}
@@ -1,34 +1,45 @@
 package com.luxoft.bankapp.domain;
 
-import com.luxoft.bankapp.exceptions.NotEnoughFundsException;
 import com.luxoft.bankapp.exceptions.OverdraftLimitExceededException;
 
-public class CheckingAccount extends AbstractAccount {
+public class CheckingAccount extends AbstractAccount implements OverdraftAccount {
 	
-	private double overdraft;
+	private final long overdraft;
 
 	public CheckingAccount(int id, double balance, double overdraft) {
 		super(id, balance);
 		if (overdraft < 0) {
 			throw new IllegalArgumentException("Cannot create an account with a starting negative overdraft");
 		}
-		this.overdraft = overdraft;
+		this.overdraft = Money.toMinorUnits(overdraft);
 	}
 	
 	@Override
-    public void withdraw(double value) throws OverdraftLimitExceededException{
-        try {
-            super.withdraw(value);
-        } catch (NotEnoughFundsException notEnoughFundsException) {
-            throw new OverdraftLimitExceededException(notEnoughFundsException, overdraft);
+    public void withdraw(double value) throws OverdraftLimitExceededException {
+        long requested = withdrawalAmount(value);
+        long current = debit(requested);
+        if (requested > maximumAmountToWithdraw(current)) {
+            throw new OverdraftLimitExceededException(getId(), Money.toMajorUnits(current), value, getOverdraft(), DECLINED_MESSAGE);
         }
     }
 
+	@Override
+	protected WithdrawResult declined() {
+		return WithdrawResult.OVERDRAFT_EXCEEDED;
+	}
+
+	@Override
 	public double getOverdraft() {
+		return Money.toMajorUnits(overdraft);
+	}
+
+	@Override
+	public long getOverdraftInMinorUnits() {
 		return overdraft;
 	}
-	
-	public double maximumAmountToWithdraw(){
-        return getBalance() + overdraft;
-    }
+
+	@Override
+	protected long maximumAmountToWithdraw(long balance) {
+		return balance + overdraft;
+	}
 }
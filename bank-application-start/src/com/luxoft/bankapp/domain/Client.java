@@ -1,21 +1,75 @@
 package com.luxoft.bankapp.domain;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Client {
+
+	private static final AtomicLong NEXT_ID = new AtomicLong(1);
 	
+	private final long id;
 	private String name;
 	private Gender gender;
 	private String city;
-	private Set<Account> accounts = new HashSet<>();
+	private final AccountSet accounts = new AccountSet();
+	// The bank this client is registered with, told about accounts added later
+	private volatile Bank bank;
 
 	public Client(String name, Gender gender) {
+		this(name, gender, null);
+	}
+
+	public Client(String name, Gender gender, String city) {
+		this(NEXT_ID.getAndIncrement(), name, gender, city);
+	}
+
+	// For restoring clients whose id was assigned earlier; later generated ids never collide with it
+	public Client(long id, String name, Gender gender) {
+		this(id, name, gender, null);
+	}
+
+	public Client(long id, String name, Gender gender, String city) {
+		this.id = id;
 		this.name = name;
 		this.gender = gender;
+		this.city = city;
+		NEXT_ID.accumulateAndGet(id + 1, Math::max);
 	}
 	
+	// Adding the same account again does nothing; another account with the same id is rejected
+	// with an IllegalArgumentException
 	public void addAccount(final Account account) {
-		accounts.add(account);
+		Bank owner;
+		long balance = 0;
+		// In one write section with the bank's snapshots, see Epochs
+		try (Epochs.Section section = Epochs.enter()) {
+			// Serialized with join(), so the bank attaches the account either here or there, never twice
+			synchronized (accounts) {
+				if (!accounts.insert(account, section.epoch())) {
+					return;
+				}
+				owner = bank;
+			}
+			if (owner != null) {
+				balance = owner.attach(account);
+			}
+		}
+		if (owner != null) {
+			owner.accountAdded(this, account, balance);
+		}
+	}
+
+	// Registers the client with the bank and returns the accounts the bank has to attach itself;
+	// accounts added from now on are attached by addAccount
+	Account[] join(Bank bank) {
+		synchronized (accounts) {
+			this.bank = bank;
+			return accounts.toArray(new Account[0]);
+		}
+	}
+	
+	public long getId() {
+		return id;
 	}
 	
 	public String getName() {
@@ -30,8 +84,13 @@ public class Client {
 		return city;
 	}
 	
-	public Set<Account> getAccounts() {
-		return Collections.unmodifiableSet(accounts);
+	// Read-only
+	public AccountSet getAccounts() {
+		return accounts;
+	}
+
+	public Account getAccount(int id) {
+		return accounts.getAccount(id);
 	}
 	
 	public String getClientGreeting() {
@@ -52,11 +111,11 @@ public class Client {
 		if (this == o) return true;
 		if (o == null || getClass() != o.getClass()) return false;
 		Client client = (Client) o;
-		return Objects.equals(accounts, client.accounts);
+		return id == client.id;
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hashCode(accounts);
+		return Long.hashCode(id);
 	}
 }
@@ -0,0 +1,36 @@
+package com.luxoft.bankapp.domain;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.luxoft.bankapp.exceptions.ClientExistsException;
+
+public class ClientImportResult {
+	
+	private final int addedClients;
+	private final List<Client> conflicts;
+
+	public ClientImportResult(int addedClients, List<Client> conflicts) {
+		this.addedClients = addedClients;
+		this.conflicts = Collections.unmodifiableList(conflicts);
+	}
+
+	public int getAddedClients() {
+		return addedClients;
+	}
+
+	// Clients that were skipped because they already existed in the bank
+	public List<Client> getConflicts() {
+		return conflicts;
+	}
+
+	public boolean hasConflicts() {
+		return !conflicts.isEmpty();
+	}
+
+	public void throwIfConflicts() throws ClientExistsException {
+		if (hasConflicts()) {
+			throw new ClientExistsException(conflicts.size() + " clients already exist into the bank");
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package com.luxoft.bankapp.domain;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import com.luxoft.bankapp.utils.BankChangeListener;
+
+/**
+ * Secondary indexes over the clients of a bank: clients ordered by name and gender, clients
+ * grouped by name, and clients grouped by city. All are updated as clients are added, so sorted
+ * reports, city lookups and name prefix lookups do not scan the whole bank.
+ * <p>
+ * Clients without a name are not part of the name index, and clients without a city are not part
+ * of the city index.
+ */
+public class ClientIndex implements BankChangeListener {
+
+	// Ties broken by id so clients sharing a name and gender are not collapsed
+	public static final Comparator<Client> BY_NAME_THEN_GENDER = Comparator
+			.comparing(Client::getName, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+			.thenComparing(Client::getGender, Comparator.nullsFirst(Comparator.<Gender>naturalOrder()))
+			.thenComparingLong(Client::getId);
+
+	private final ConcurrentSkipListSet<Client> sorted = new ConcurrentSkipListSet<>(BY_NAME_THEN_GENDER);
+	// Names in natural order, each with its clients in the order of sorted
+	private final ConcurrentSkipListMap<String, Collection<Client>> byName = new ConcurrentSkipListMap<>();
+	private final ConcurrentSkipListMap<String, Collection<Client>> byCity = new ConcurrentSkipListMap<>();
+
+	@Override
+	public void onClientAdded(Client client) {
+		if (!sorted.add(client)) {
+			return;
+		}
+		String name = client.getName();
+		if (name != null) {
+			byName.computeIfAbsent(name, _ -> new ConcurrentSkipListSet<>(BY_NAME_THEN_GENDER)).add(client);
+		}
+		String city = client.getCity();
+		if (city != null) {
+			byCity.computeIfAbsent(city, _ -> new ConcurrentLinkedQueue<>()).add(client);
+		}
+	}
+
+	public int size() {
+		return sorted.size();
+	}
+
+	// Live, weakly consistent view ordered by name, gender and id
+	public SortedSet<Client> getClientsSorted() {
+		return Collections.unmodifiableSortedSet(sorted);
+	}
+
+	public List<Client> getClientsByCity(String city) {
+		Collection<Client> clients = byCity.get(city);
+		return clients == null ? new ArrayList<>() : new ArrayList<>(clients);
+	}
+
+	// Cities in natural order, as BankReportInterface.getClientsByCity returns them
+	public Map<String, List<Client>> getClientsByCity() {
+		Map<String, List<Client>> result = new TreeMap<>();
+		for (Map.Entry<String, Collection<Client>> entry : byCity.entrySet()) {
+			result.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+		}
+		return result;
+	}
+
+	// Clients whose name starts with the prefix, in name order; O(log N + result size)
+	public List<Client> getClientsByNamePrefix(String prefix) {
+		if (prefix == null) {
+			throw new IllegalArgumentException("Prefix must not be null");
+		}
+		List<Client> result = new ArrayList<>();
+		for (Map.Entry<String, Collection<Client>> entry : byName.tailMap(prefix).entrySet()) {
+			if (!entry.getKey().startsWith(prefix)) {
+				break;
+			}
+			result.addAll(entry.getValue());
+		}
+		return result;
+	}
+}
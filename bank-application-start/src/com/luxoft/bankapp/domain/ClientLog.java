@@ -0,0 +1,139 @@
+package com.luxoft.bankapp.domain;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * The clients of a bank in the order they were registered, each with the epoch it was registered
+ * in. Clients are only ever appended, and an append is published by one volatile write of the size,
+ * so a reader takes a consistent prefix of the log without locking while clients keep being added.
+ * Appends are serialized by the bank.
+ */
+class ClientLog {
+	private final ConcurrentHashMap<Long, Integer> positions = new ConcurrentHashMap<>();
+	// Replaced by a larger copy when full; slots below size never change
+	private volatile Client[] clients = new Client[16];
+	private volatile long[] epochs = new long[16];
+	private volatile int size;
+
+	// Returns false if a client with the same id was registered before
+	boolean append(Client client, long epoch) {
+		int position = size;
+		if (positions.putIfAbsent(client.getId(), position) != null) {
+			return false;
+		}
+		if (position == clients.length) {
+			// Published before the size, so a reader of the new size finds a large enough array
+			epochs = Arrays.copyOf(epochs, position << 1);
+			clients = Arrays.copyOf(clients, position << 1);
+		}
+		clients[position] = client;
+		epochs[position] = epoch;
+		size = position + 1;
+		return true;
+	}
+
+	// Null until the client is published
+	Client get(long id) {
+		Integer position = positions.get(id);
+		return position == null || position >= size ? null : clients[position];
+	}
+
+	// Number of clients registered up to the end of the given epoch, see Epochs
+	int sizeAt(long epoch) {
+		int high = size;
+		long[] registered = epochs;
+		int low = 0;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (registered[middle] <= epoch) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	// The clients registered so far
+	View view() {
+		return view(size);
+	}
+
+	View view(int size) {
+		return new View(clients, size);
+	}
+
+	/**
+	 * A prefix of the log. It never changes, so it can be iterated, also in parallel, while
+	 * clients are being added. Read-only.
+	 */
+	class View extends AbstractSet<Client> {
+		private final Client[] clients;
+		private final int size;
+
+		View(Client[] clients, int size) {
+			this.clients = clients;
+			this.size = size;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			if (!(o instanceof Client client)) {
+				return false;
+			}
+			Integer position = positions.get(client.getId());
+			return position != null && position < size;
+		}
+
+		@Override
+		public void forEach(Consumer<? super Client> action) {
+			for (int i = 0; i < size; i++) {
+				action.accept(clients[i]);
+			}
+		}
+
+		@Override
+		public Object[] toArray() {
+			return Arrays.copyOf(clients, size, Object[].class);
+		}
+
+		@Override
+		public Iterator<Client> iterator() {
+			return new Iterator<Client>() {
+				private int next;
+
+				@Override
+				public boolean hasNext() {
+					return next < size;
+				}
+
+				@Override
+				public Client next() {
+					if (next >= size) {
+						throw new NoSuchElementException();
+					}
+					return clients[next++];
+				}
+			};
+		}
+
+		// Splits by halves of the array, so parallel reports get balanced tasks
+		@Override
+		public Spliterator<Client> spliterator() {
+			return Spliterators.spliterator(clients, 0, size,
+					Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+		}
+	}
+}
@@ -0,0 +1,252 @@
+package com.luxoft.bankapp.domain;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Write epochs behind {@link Bank#snapshot()}. Every change to a bank runs inside a {@link Section}
+ * belonging to the current epoch. Opening a snapshot ends the epoch once the sections in it have
+ * finished, so the snapshot sees each change either completely or not at all. Sections nest: a
+ * transfer opens one around both of its balance changes, so no snapshot falls between them.
+ * Listeners are told about changes made in nested sections once the outermost one has closed, so a
+ * slow listener never holds up a snapshot.
+ * <p>
+ * Entering a section costs one volatile write to a flag of the thread. Opening a snapshot
+ * holds new sections back only until the running ones finish, which takes as long as a single
+ * change, not as long as the report reading the snapshot. While a snapshot is open, the first
+ * change to an account in each later epoch keeps the balance it replaces as a {@link PreImage}.
+ */
+public final class Epochs {
+    private static final long NONE = Long.MAX_VALUE;
+    private static final VarHandle ACTIVE;
+
+    static {
+        try {
+            ACTIVE = MethodHandles.lookup().findVarHandle(Section.class, "active", boolean.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static final ThreadLocal<Section> SECTIONS = ThreadLocal.withInitial(Section::new);
+    // The section of every thread that ever entered one, scanned when a snapshot is opened
+    private static final ConcurrentLinkedQueue<Section> ALL = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger CREATED = new AtomicInteger();
+    // Number of snapshots open per epoch; guarded by the class lock
+    private static final TreeMap<Long, Integer> OPEN = new TreeMap<>();
+    // Stores keeping pre-images in a map, swept when a snapshot closes; guarded by the class lock
+    private static final Set<OffHeapAccountStore> STORES = Collections.newSetFromMap(new WeakHashMap<>());
+
+    private static volatile long current = 1;
+    private static volatile boolean opening;
+    private static volatile long oldestOpen = NONE;
+
+    private Epochs() {
+    }
+
+    /**
+     * Enters a write section of the current thread, to be closed by the same thread. Waits only
+     * while a snapshot is being opened.
+     */
+    public static Section enter() {
+        Section section = SECTIONS.get();
+        if (section.depth++ == 0) {
+            while (true) {
+                section.active = true;
+                if (!opening) {
+                    break;
+                }
+                // Let the snapshot see the running sections finish first
+                ACTIVE.setRelease(section, false);
+                while (opening) {
+                    Thread.yield();
+                }
+            }
+            section.epoch = current;
+        }
+        return section;
+    }
+
+    // Ends the current epoch and returns it; changes made up to here belong to the snapshot
+    static synchronized long openSnapshot() {
+        if (SECTIONS.get().depth > 0) {
+            throw new IllegalStateException("Cannot take a snapshot inside a write section");
+        }
+        opening = true;
+        try {
+            for (Iterator<Section> sections = ALL.iterator(); sections.hasNext(); ) {
+                Section section = sections.next();
+                while (section.active) {
+                    Thread.yield();
+                }
+                if (section.isOrphaned()) {
+                    sections.remove();
+                }
+            }
+            long epoch = current;
+            OPEN.merge(epoch, 1, Integer::sum);
+            oldestOpen = OPEN.firstKey();
+            current = epoch + 1;
+            return epoch;
+        } finally {
+            opening = false;
+        }
+    }
+
+    static synchronized void closeSnapshot(long epoch) {
+        OPEN.computeIfPresent(epoch, (e, count) -> count == 1 ? null : count - 1);
+        oldestOpen = OPEN.isEmpty() ? NONE : OPEN.firstKey();
+        for (OffHeapAccountStore store : STORES) {
+            store.sweepPreImages();
+        }
+    }
+
+    /**
+     * Makes every later write section belong to an epoch after the given one, so epochs recorded by
+     * an earlier run of the application stay in the past.
+     */
+    public static synchronized void advancePast(long epoch) {
+        if (epoch >= current) {
+            current = epoch + 1;
+        }
+    }
+
+    /**
+     * The epoch of the change the bank's listeners are being told about on this thread. Listeners
+     * that persist changes record it, so a snapshot of an epoch tells which changes it holds.
+     */
+    public static long reportedEpoch() {
+        return SECTIONS.get().reporting;
+    }
+
+    // The epoch of the calling thread's current or most recent write section
+    static long lastEpoch() {
+        return SECTIONS.get().epoch;
+    }
+
+    // Sets the epoch reportedEpoch() returns and gives back the one it replaces
+    static long report(long epoch) {
+        Section section = SECTIONS.get();
+        long previous = section.reporting;
+        section.reporting = epoch;
+        return previous;
+    }
+
+    static synchronized void track(OffHeapAccountStore store) {
+        STORES.add(store);
+    }
+
+    // Whether the calling thread is inside a write section
+    static boolean inSection() {
+        return SECTIONS.get().depth > 0;
+    }
+
+    // Runs the notification once the calling thread has closed its outermost write section
+    static void defer(Runnable notification) {
+        Section section = SECTIONS.get();
+        if (section.depth == 0) {
+            notification.run();
+        } else {
+            if (section.deferred == null) {
+                section.deferred = new ArrayList<>();
+            }
+            section.deferred.add(notification);
+        }
+    }
+
+    static boolean snapshotsOpen() {
+        return oldestOpen != NONE;
+    }
+
+    // Whether a change in the given epoch must first keep the balance it replaces
+    static boolean keepsPreImage(PreImage last, long epoch) {
+        return oldestOpen != NONE && (last == null || last.epoch < epoch);
+    }
+
+    // Whether an open snapshot may still read the given pre-image
+    static boolean isNeeded(PreImage preImage) {
+        return preImage != null && oldestOpen < preImage.epoch;
+    }
+
+    /**
+     * A write section of one thread. Closing the outermost section of the thread leaves the epoch.
+     */
+    public static final class Section implements AutoCloseable {
+        private final WeakReference<Thread> owner = new WeakReference<>(Thread.currentThread());
+        // Written only by the owner
+        private volatile boolean active;
+        private int depth;
+        private long epoch;
+        private long reporting;
+        // Notifications of changes made in nested sections
+        private ArrayList<Runnable> deferred;
+
+        private Section() {
+            // Threads come and go; drop the sections of finished ones now and then
+            if ((CREATED.incrementAndGet() & 1023) == 0) {
+                ALL.removeIf(Section::isOrphaned);
+            }
+            ALL.add(this);
+        }
+
+        private boolean isOrphaned() {
+            return owner.refersTo(null);
+        }
+
+        public long epoch() {
+            return epoch;
+        }
+
+        @Override
+        public void close() {
+            if (depth == 0) {
+                throw new IllegalStateException("Section is not open");
+            }
+            if (--depth == 0) {
+                // A release is enough: the snapshot only has to see the changes made before it
+                ACTIVE.setRelease(this, false);
+                if (deferred != null && !deferred.isEmpty()) {
+                    runDeferred();
+                }
+            }
+        }
+
+        // Every notification runs even if an earlier one fails; the first failure is rethrown
+        private void runDeferred() {
+            ArrayList<Runnable> notifications = deferred;
+            // Listeners may open sections of their own, which defer into a fresh list
+            deferred = null;
+            RuntimeException failure = null;
+            try {
+                for (Runnable notification : notifications) {
+                    try {
+                        notification.run();
+                    } catch (RuntimeException e) {
+                        if (failure == null) {
+                            failure = e;
+                        } else {
+                            failure.addSuppressed(e);
+                        }
+                    }
+                }
+            } finally {
+                notifications.clear();
+                if (deferred == null) {
+                    deferred = notifications;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.luxoft.bankapp.domain;
+
+import com.luxoft.bankapp.metrics.LatencyHistogram;
+import com.luxoft.bankapp.metrics.MetricsRegistry;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Records the latency of every report call in a histogram named {@code report.<method>.latency},
+ * then returns the delegate's result unchanged.
+ */
+public class InstrumentedBankReport implements BankReportInterface {
+    private final BankReportInterface delegate;
+
+    private final LatencyHistogram numberOfClients;
+    private final LatencyHistogram numberOfAccounts;
+    private final LatencyHistogram clientsSorted;
+    private final LatencyHistogram totalSumInAccounts;
+    private final LatencyHistogram accountsSortedBySum;
+    private final LatencyHistogram bankCreditSum;
+    private final LatencyHistogram customerAccounts;
+    private final LatencyHistogram clientsByCity;
+    private final LatencyHistogram topAccountsByBalance;
+    private final LatencyHistogram bottomAccountsByBalance;
+    private final LatencyHistogram accountsInBalanceRange;
+
+    public InstrumentedBankReport(BankReportInterface delegate) {
+        this(delegate, MetricsRegistry.getDefault());
+    }
+
+    public InstrumentedBankReport(BankReportInterface delegate, MetricsRegistry registry) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Report must not be null");
+        }
+        this.delegate = delegate;
+        this.numberOfClients = histogram(registry, "getNumberOfClients");
+        this.numberOfAccounts = histogram(registry, "getNumberOfAccounts");
+        this.clientsSorted = histogram(registry, "getClientsSorted");
+        this.totalSumInAccounts = histogram(registry, "getTotalSumInAccounts");
+        this.accountsSortedBySum = histogram(registry, "getAccountsSortedBySum");
+        this.bankCreditSum = histogram(registry, "getBankCreditSum");
+        this.customerAccounts = histogram(registry, "getCustomerAccounts");
+        this.clientsByCity = histogram(registry, "getClientsByCity");
+        this.topAccountsByBalance = histogram(registry, "getTopAccountsByBalance");
+        this.bottomAccountsByBalance = histogram(registry, "getBottomAccountsByBalance");
+        this.accountsInBalanceRange = histogram(registry, "getAccountsInBalanceRange");
+    }
+
+    @Override
+    public int getNumberOfClients(Bank bank) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getNumberOfClients(bank);
+        } finally {
+            numberOfClients.recordSince(start);
+        }
+    }
+
+    @Override
+    public int getNumberOfAccounts(Bank bank) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getNumberOfAccounts(bank);
+        } finally {
+            numberOfAccounts.recordSince(start);
+        }
+    }
+
+    @Override
+    public SortedSet<Client> getClientsSorted(Bank bank) {
+        return timed(clientsSorted, () -> delegate.getClientsSorted(bank));
+    }
+
+    @Override
+    public double getTotalSumInAccounts(Bank bank) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getTotalSumInAccounts(bank);
+        } finally {
+            totalSumInAccounts.recordSince(start);
+        }
+    }
+
+    @Override
+    public SortedSet<Account> getAccountsSortedBySum(Bank bank) {
+        return timed(accountsSortedBySum, () -> delegate.getAccountsSortedBySum(bank));
+    }
+
+    @Override
+    public double getBankCreditSum(Bank bank) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getBankCreditSum(bank);
+        } finally {
+            bankCreditSum.recordSince(start);
+        }
+    }
+
+    @Override
+    public Map<Client, Collection<Account>> getCustomerAccounts(Bank bank) {
+        return timed(customerAccounts, () -> delegate.getCustomerAccounts(bank));
+    }
+
+    @Override
+    public Map<String, List<Client>> getClientsByCity(Bank bank) {
+        return timed(clientsByCity, () -> delegate.getClientsByCity(bank));
+    }
+
+    @Override
+    public List<Account> getTopAccountsByBalance(Bank bank, int k) {
+        return timed(topAccountsByBalance, () -> delegate.getTopAccountsByBalance(bank, k));
+    }
+
+    @Override
+    public List<Account> getBottomAccountsByBalance(Bank bank, int k) {
+        return timed(bottomAccountsByBalance, () -> delegate.getBottomAccountsByBalance(bank, k));
+    }
+
+    @Override
+    public List<Account> getAccountsInBalanceRange(Bank bank, double min, double max) {
+        return timed(accountsInBalanceRange, () -> delegate.getAccountsInBalanceRange(bank, min, max));
+    }
+
+    private static LatencyHistogram histogram(MetricsRegistry registry, String method) {
+        return registry.histogram("report." + method + ".latency");
+    }
+
+    private static <T> T timed(LatencyHistogram histogram, Supplier<T> call) {
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            histogram.recordSince(start);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.luxoft.bankapp.domain;
+
+/**
+ * Fixed-point money arithmetic on {@code long} amounts in minor units (cents, scale 2). Balances,
+ * overdrafts and sums are kept in minor units so they are exact; {@code double} is only used at
+ * the API boundary, where amounts are rounded to the nearest minor unit once.
+ * <p>
+ * All methods are static and allocation-free, except {@link #format(long)}. Arithmetic throws
+ * {@link ArithmeticException} on overflow instead of wrapping.
+ */
+public final class Money {
+	public static final int SCALE = 2;
+	public static final long MINOR_UNITS_PER_MAJOR = 100;
+
+	// Largest amount, in major units, whose minor units fit a long exactly
+	private static final double MAX_MAJOR_UNITS = Long.MAX_VALUE / MINOR_UNITS_PER_MAJOR;
+
+	private Money() {
+	}
+
+	// Rounds to the nearest minor unit, halves up
+	public static long toMinorUnits(double amount) {
+		if (Double.isNaN(amount) || Math.abs(amount) > MAX_MAJOR_UNITS) {
+			throw new IllegalArgumentException("Not a valid amount: " + amount);
+		}
+		return Math.round(amount * MINOR_UNITS_PER_MAJOR);
+	}
+
+	public static double toMajorUnits(long amount) {
+		return (double) amount / MINOR_UNITS_PER_MAJOR;
+	}
+
+	public static long add(long a, long b) {
+		return Math.addExact(a, b);
+	}
+
+	public static long subtract(long a, long b) {
+		return Math.subtractExact(a, b);
+	}
+
+	public static long multiply(long amount, long factor) {
+		return Math.multiplyExact(amount, factor);
+	}
+
+	public static long negate(long amount) {
+		return Math.negateExact(amount);
+	}
+
+	// "-1234.05" style, always with SCALE decimals
+	public static String format(long amount) {
+		return append(new StringBuilder(24), amount).toString();
+	}
+
+	public static StringBuilder append(StringBuilder target, long amount) {
+		long major = amount / MINOR_UNITS_PER_MAJOR;
+		long minor = Math.abs(amount % MINOR_UNITS_PER_MAJOR);
+		if (amount < 0 && major == 0) {
+			target.append('-');
+		}
+		target.append(major).append('.');
+		if (minor < 10) {
+			target.append('0');
+		}
+		return target.append(minor);
+	}
+
+	// Exact parse of "[-]digits[.d[d]]"
+	public static long parse(CharSequence text) {
+		int length = text.length();
+		int i = 0;
+		boolean negative = length > 0 && text.charAt(0) == '-';
+		if (negative) {
+			i++;
+		}
+		long major = 0;
+		int digits = 0;
+		for (; i < length && text.charAt(i) != '.'; i++, digits++) {
+			major = Math.addExact(Math.multiplyExact(major, 10), digit(text, i));
+		}
+		long minor = 0;
+		int decimals = 0;
+		if (i < length) {
+			for (i++; i < length; i++, decimals++) {
+				if (decimals == SCALE) {
+					throw new NumberFormatException("More than " + SCALE + " decimals: " + text);
+				}
+				minor = minor * 10 + digit(text, i);
+			}
+		}
+		if (digits == 0 && decimals == 0) {
+			throw new NumberFormatException("Not an amount: " + text);
+		}
+		for (; decimals < SCALE; decimals++) {
+			minor *= 10;
+		}
+		long amount = Math.addExact(Math.multiplyExact(major, MINOR_UNITS_PER_MAJOR), minor);
+		return negative ? -amount : amount;
+	}
+
+	private static int digit(CharSequence text, int index) {
+		char c = text.charAt(index);
+		if (c < '0' || c > '9') {
+			throw new NumberFormatException("Not an amount: " + text);
+		}
+		return c - '0';
+	}
+}
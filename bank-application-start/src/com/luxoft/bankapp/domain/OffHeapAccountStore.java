@@ -0,0 +1,525 @@
+package com.luxoft.bankapp.domain;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.luxoft.bankapp.exceptions.NotEnoughFundsException;
+import com.luxoft.bankapp.exceptions.OverdraftLimitExceededException;
+import com.luxoft.bankapp.metrics.BankMetrics;
+import com.luxoft.bankapp.utils.BankChangeListener;
+
+/**
+ * Account storage outside the Java heap: ids, balances and overdrafts live in primitive columns of
+ * direct or memory-mapped buffers, allocated in chunks as the store grows. Accounts are exposed as
+ * small {@link StoredAccount} views holding only the store and a slot number, and the whole-store
+ * scans read the balance column sequentially without touching any object.
+ * <p>
+ * Balances are updated atomically with VarHandles over the buffers, with the same withdrawal rules
+ * as {@link SavingAccount} and {@link CheckingAccount}. A store belongs to a single bank, whose
+ * change listeners are told about every balance change of an account once a view of it is added to
+ * one of the bank's clients; accounts not added to the bank are not reported. Stored checking
+ * accounts are {@link OverdraftAccount}s like heap ones, so reports count their credit.
+ * <p>
+ * A file-backed store keeps its accounts across restarts: reopening the file resumes with the
+ * accounts created before.
+ */
+public class OffHeapAccountStore implements Closeable {
+	public static final int DEFAULT_CHUNK_ACCOUNTS = 1 << 16;
+	// Keeps a chunk's byte offsets within an int
+	public static final int MAX_CHUNK_ACCOUNTS = 1 << 26;
+
+	private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+	private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+	private static final int MAGIC = 0x41434354;
+	// Page sized, so mapped chunks start page aligned and every column stays naturally aligned
+	private static final int FILE_HEADER_BYTES = 4096;
+	private static final int SIZE_OFFSET = 8;
+	private static final byte CHECKING = 1;
+
+	// Column layout of a chunk of n accounts: balances, overdrafts, ids, kinds
+	private static final int BYTES_PER_ACCOUNT = 8 + 8 + 4 + 1;
+	private static final int ATTACH_LOCKS = 64;
+
+	private final int chunkAccounts;
+	private final int chunkShift;
+	private final FileChannel file;
+	private final MappedByteBuffer header;
+	// Replaced, never modified, when the store grows
+	private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+	// One bit per slot, set once the account was added to the bank; replaced like the chunks
+	private volatile AtomicLongArray[] attached = new AtomicLongArray[0];
+	// Striped by slot; an unattached change and the attach of its slot never interleave
+	private final Object[] attachLocks = new Object[ATTACH_LOCKS];
+	private volatile int size;
+	private volatile BankChangeListener changeListener;
+	// Balances kept for open snapshots, by slot
+	private final ConcurrentHashMap<Integer, PreImage> preImages = new ConcurrentHashMap<>();
+
+	// Direct buffers, freed with the store once it is unreachable
+	public OffHeapAccountStore() {
+		this(DEFAULT_CHUNK_ACCOUNTS);
+	}
+
+	public OffHeapAccountStore(int chunkAccounts) {
+		this.chunkAccounts = checkChunkAccounts(chunkAccounts);
+		this.chunkShift = Integer.numberOfTrailingZeros(chunkAccounts);
+		this.file = null;
+		this.header = null;
+		initAttachLocks();
+	}
+
+	// Memory-mapped file, created if missing
+	public OffHeapAccountStore(Path path, int chunkAccounts) throws IOException {
+		this.chunkAccounts = checkChunkAccounts(chunkAccounts);
+		this.chunkShift = Integer.numberOfTrailingZeros(chunkAccounts);
+		this.file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		boolean created = file.size() == 0;
+		this.header = file.map(FileChannel.MapMode.READ_WRITE, 0, FILE_HEADER_BYTES);
+		initAttachLocks();
+		header.order(ByteOrder.LITTLE_ENDIAN);
+		if (created) {
+			header.putInt(0, MAGIC);
+			header.putInt(4, chunkAccounts);
+		} else if (header.getInt(0) != MAGIC || header.getInt(4) != chunkAccounts) {
+			file.close();
+			throw new IOException("Not an account store with " + chunkAccounts + " accounts per chunk: " + path);
+		}
+		int restored = (int) (long) LONGS.getVolatile(header, SIZE_OFFSET);
+		ensureCapacity(restored);
+		this.size = restored;
+	}
+
+	private void initAttachLocks() {
+		for (int i = 0; i < ATTACH_LOCKS; i++) {
+			attachLocks[i] = new Object();
+		}
+	}
+
+	private static int checkChunkAccounts(int chunkAccounts) {
+		if (chunkAccounts <= 0 || chunkAccounts > MAX_CHUNK_ACCOUNTS || Integer.bitCount(chunkAccounts) != 1) {
+			throw new IllegalArgumentException("Chunk size must be a power of two up to " + MAX_CHUNK_ACCOUNTS);
+		}
+		return chunkAccounts;
+	}
+
+	public SavingAccountView createSavingAccount(int id, double balance) {
+		return (SavingAccountView) view(create(id, balance, 0, false));
+	}
+
+	public CheckingAccountView createCheckingAccount(int id, double balance, double overdraft) {
+		if (overdraft < 0) {
+			throw new IllegalArgumentException("Cannot create an account with a starting negative overdraft");
+		}
+		return (CheckingAccountView) view(create(id, balance, overdraft, true));
+	}
+
+	private synchronized int create(int id, double balance, double overdraft, boolean checking) {
+		int slot = size;
+		if (slot == Integer.MAX_VALUE) {
+			throw new IllegalStateException("Account store is full");
+		}
+		ensureCapacity(slot + 1);
+		ByteBuffer chunk = chunks[slot >>> chunkShift];
+		int index = slot & (chunkAccounts - 1);
+		INTS.set(chunk, idOffset(index), id);
+		chunk.put(kindOffset(index), checking ? CHECKING : 0);
+		LONGS.set(chunk, overdraftOffset(index), Money.toMinorUnits(overdraft));
+		LONGS.set(chunk, balanceOffset(index), Money.toMinorUnits(balance));
+		// Publishing the size makes the slot visible to scans and to views of it
+		size = slot + 1;
+		if (header != null) {
+			LONGS.setVolatile(header, SIZE_OFFSET, (long) size);
+		}
+		return slot;
+	}
+
+	private void ensureCapacity(int accounts) {
+		int needed = (int) (((long) accounts + chunkAccounts - 1) >>> chunkShift);
+		ByteBuffer[] current = chunks;
+		if (needed <= current.length) {
+			return;
+		}
+		ByteBuffer[] grown = Arrays.copyOf(current, needed);
+		AtomicLongArray[] grownAttached = Arrays.copyOf(attached, needed);
+		for (int i = current.length; i < needed; i++) {
+			grown[i] = allocateChunk(i);
+			grownAttached[i] = new AtomicLongArray(Math.max(1, chunkAccounts >>> 6));
+		}
+		attached = grownAttached;
+		chunks = grown;
+	}
+
+	private ByteBuffer allocateChunk(int chunk) {
+		long bytes = (long) chunkAccounts * BYTES_PER_ACCOUNT;
+		if (file == null) {
+			return ByteBuffer.allocateDirect((int) bytes);
+		}
+		try {
+			return file.map(FileChannel.MapMode.READ_WRITE, FILE_HEADER_BYTES + chunk * bytes, bytes);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	// A view of the account in the given slot; views of the same slot are equal
+	public StoredAccount view(int slot) {
+		if (slot < 0 || slot >= size) {
+			throw new IndexOutOfBoundsException("No account in slot " + slot);
+		}
+		ByteBuffer chunk = chunks[slot >>> chunkShift];
+		return chunk.get(kindOffset(slot & (chunkAccounts - 1))) == CHECKING
+				? new CheckingAccountView(this, slot)
+				: new SavingAccountView(this, slot);
+	}
+
+	// Sum of all balances, read straight from the balance columns
+	public double getTotalBalance() {
+		long total = 0;
+		int accounts = size;
+		ByteBuffer[] current = chunks;
+		for (int c = 0; c < current.length && c * (long) chunkAccounts < accounts; c++) {
+			ByteBuffer chunk = current[c];
+			int count = Math.min(chunkAccounts, accounts - c * chunkAccounts);
+			for (int i = 0; i < count; i++) {
+				total += (long) LONGS.getOpaque(chunk, balanceOffset(i));
+			}
+		}
+		return Money.toMajorUnits(total);
+	}
+
+	// Credit used by checking accounts with a negative balance
+	public double getCreditSum() {
+		long total = 0;
+		int accounts = size;
+		ByteBuffer[] current = chunks;
+		for (int c = 0; c < current.length && c * (long) chunkAccounts < accounts; c++) {
+			ByteBuffer chunk = current[c];
+			int count = Math.min(chunkAccounts, accounts - c * chunkAccounts);
+			for (int i = 0; i < count; i++) {
+				long balance = (long) LONGS.getOpaque(chunk, balanceOffset(i));
+				if (balance < 0 && chunk.get(kindOffset(i)) == CHECKING) {
+					total -= balance;
+				}
+			}
+		}
+		return Money.toMajorUnits(total);
+	}
+
+	// Writes a file-backed store's changes to disk
+	public void force() {
+		if (file != null) {
+			header.force();
+			for (ByteBuffer chunk : chunks) {
+				((MappedByteBuffer) chunk).force();
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (file != null) {
+			force();
+			file.close();
+		}
+	}
+
+	/**
+	 * Reports every later change of the account to the listener and returns the balance the account
+	 * starts with. All accounts of a store must join the same bank.
+	 */
+	long attach(StoredAccount account, BankChangeListener listener) {
+		synchronized (this) {
+			if (changeListener == null) {
+				changeListener = listener;
+				Epochs.track(this);
+			} else if (changeListener != listener) {
+				throw new IllegalArgumentException("Account store already belongs to another bank");
+			}
+		}
+		synchronized (attachLock(account.slot)) {
+			long starting = account.getBalanceInMinorUnits();
+			int index = account.index();
+			attached[account.slot >>> chunkShift].accumulateAndGet(index >>> 6, 1L << index, (bits, bit) -> bits | bit);
+			return starting;
+		}
+	}
+
+	// Drops the pre-images no open snapshot can read any more
+	void sweepPreImages() {
+		preImages.values().removeIf(preImage -> !Epochs.isNeeded(preImage));
+	}
+
+	// The listener to tell about changes of the slot, or null while it is not in the bank
+	private BankChangeListener listenerFor(int slot) {
+		int index = slot & (chunkAccounts - 1);
+		return (attached[slot >>> chunkShift].get(index >>> 6) & (1L << index)) != 0 ? changeListener : null;
+	}
+
+	private Object attachLock(int slot) {
+		return attachLocks[slot & (ATTACH_LOCKS - 1)];
+	}
+
+	private int balanceOffset(int index) {
+		return index << 3;
+	}
+
+	private int overdraftOffset(int index) {
+		return (chunkAccounts << 3) + (index << 3);
+	}
+
+	private int idOffset(int index) {
+		return (chunkAccounts << 4) + (index << 2);
+	}
+
+	private int kindOffset(int index) {
+		return chunkAccounts * 20 + index;
+	}
+
+	/**
+	 * An account held in an {@link OffHeapAccountStore}: just a reference to the store and a slot.
+	 */
+	public abstract static class StoredAccount implements Account {
+		private final OffHeapAccountStore store;
+		private final int slot;
+
+		StoredAccount(OffHeapAccountStore store, int slot) {
+			this.store = store;
+			this.slot = slot;
+		}
+
+		OffHeapAccountStore getStore() {
+			return store;
+		}
+
+		private ByteBuffer chunk() {
+			return store.chunks[slot >>> store.chunkShift];
+		}
+
+		private int index() {
+			return slot & (store.chunkAccounts - 1);
+		}
+
+		@Override
+		public int getId() {
+			return (int) INTS.get(chunk(), store.idOffset(index()));
+		}
+
+		@Override
+		public double getBalance() {
+			return Money.toMajorUnits((long) LONGS.getVolatile(chunk(), store.balanceOffset(index())));
+		}
+
+		@Override
+		public long getBalanceInMinorUnits() {
+			return (long) LONGS.getVolatile(chunk(), store.balanceOffset(index()));
+		}
+
+		long getOverdraftInMinorUnits() {
+			return (long) LONGS.get(chunk(), store.overdraftOffset(index()));
+		}
+
+		@Override
+		public void deposit(double amount) {
+			if (amount < 0) {
+				throw new IllegalArgumentException("Cannot deposit a negative amount");
+			}
+			long delta = Money.toMinorUnits(amount);
+			long previous = 0;
+			BankChangeListener listener = store.listenerFor(slot);
+			if (listener == null) {
+				synchronized (store.attachLock(slot)) {
+					listener = store.listenerFor(slot);
+					if (listener == null) {
+						previous = add(delta);
+					}
+				}
+			}
+			if (listener != null) {
+				try (Epochs.Section section = Epochs.enter()) {
+					keepPreImage(section.epoch());
+					previous = add(delta);
+				}
+			}
+			if (BankMetrics.ACCOUNT_OPERATIONS) {
+				BankMetrics.DEPOSITS.increment();
+			}
+			balanceChanged(listener, previous, previous + delta);
+		}
+
+		@Override
+		public void withdraw(double amount) throws NotEnoughFundsException {
+			long requested = AbstractAccount.withdrawalAmount(amount);
+			long current = debit(requested);
+			if (requested > current + getOverdraftInMinorUnits()) {
+				throw new NotEnoughFundsException(getId(), Money.toMajorUnits(current), amount, AbstractAccount.DECLINED_MESSAGE);
+			}
+		}
+
+		@Override
+		public WithdrawResult tryWithdraw(double amount) {
+			long requested = AbstractAccount.withdrawalAmount(amount);
+			if (requested > debit(requested) + getOverdraftInMinorUnits()) {
+				return this instanceof CheckingAccountView ? WithdrawResult.OVERDRAFT_EXCEEDED : WithdrawResult.INSUFFICIENT_FUNDS;
+			}
+			return WithdrawResult.APPROVED;
+		}
+
+		// Same contract as AbstractAccount.debit
+		final long debit(long requested) {
+			long current = 0;
+			BankChangeListener listener = store.listenerFor(slot);
+			if (listener == null) {
+				synchronized (store.attachLock(slot)) {
+					listener = store.listenerFor(slot);
+					if (listener == null) {
+						current = compareAndDebit(requested);
+					}
+				}
+			}
+			if (listener != null) {
+				try (Epochs.Section section = Epochs.enter()) {
+					keepPreImage(section.epoch());
+					current = compareAndDebit(requested);
+				}
+			}
+			if (requested > current + getOverdraftInMinorUnits()) {
+				if (BankMetrics.ACCOUNT_OPERATIONS) {
+					BankMetrics.WITHDRAWALS_DECLINED.increment();
+				}
+			} else {
+				if (BankMetrics.ACCOUNT_OPERATIONS) {
+					BankMetrics.WITHDRAWALS_APPROVED.increment();
+				}
+				balanceChanged(listener, current, current - requested);
+			}
+			return current;
+		}
+
+		// Same contract as AbstractAccount.add
+		private long add(long delta) {
+			ByteBuffer chunk = chunk();
+			int offset = store.balanceOffset(index());
+			long current;
+			do {
+				current = (long) LONGS.getVolatile(chunk, offset);
+			} while (!LONGS.compareAndSet(chunk, offset, current, Money.add(current, delta)));
+			return current;
+		}
+
+		private long compareAndDebit(long requested) {
+			ByteBuffer chunk = chunk();
+			int offset = store.balanceOffset(index());
+			long overdraft = getOverdraftInMinorUnits();
+			long current;
+			do {
+				current = (long) LONGS.getVolatile(chunk, offset);
+				if (requested > current + overdraft) {
+					return current;
+				}
+			} while (!LONGS.compareAndSet(chunk, offset, current, current - requested));
+			return current;
+		}
+
+		@Override
+		public long maximumAmountToWithdrawInMinorUnits() {
+			return getBalanceInMinorUnits() + getOverdraftInMinorUnits();
+		}
+
+		@Override
+		public double maximumAmountToWithdraw() {
+			return Money.toMajorUnits(maximumAmountToWithdrawInMinorUnits());
+		}
+
+		// Same protocol as AbstractAccount.keepPreImage, over the store's map
+		private void keepPreImage(long epoch) {
+			if (!Epochs.snapshotsOpen()) {
+				return;
+			}
+			PreImage last;
+			while (Epochs.keepsPreImage(last = store.preImages.get(slot), epoch)) {
+				PreImage next = new PreImage(epoch, getBalanceInMinorUnits(), last);
+				if (last == null ? store.preImages.putIfAbsent(slot, next) == null : store.preImages.replace(slot, last, next)) {
+					return;
+				}
+			}
+		}
+
+		long getBalanceInMinorUnits(long snapshot) {
+			while (true) {
+				PreImage last = store.preImages.get(slot);
+				long current = getBalanceInMinorUnits();
+				if (store.preImages.get(slot) == last) {
+					return PreImage.balanceAt(last, snapshot, current);
+				}
+			}
+		}
+
+		private void balanceChanged(BankChangeListener listener, long oldBalance, long newBalance) {
+			if (listener != null) {
+				listener.onBalanceChanged(this, oldBalance, newBalance);
+			}
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof StoredAccount)) return false;
+			StoredAccount other = (StoredAccount) o;
+			return store == other.store && slot == other.slot;
+		}
+
+		@Override
+		public int hashCode() {
+			return slot;
+		}
+	}
+
+	public static class SavingAccountView extends StoredAccount {
+		SavingAccountView(OffHeapAccountStore store, int slot) {
+			super(store, slot);
+		}
+	}
+
+	public static class CheckingAccountView extends StoredAccount implements OverdraftAccount {
+		CheckingAccountView(OffHeapAccountStore store, int slot) {
+			super(store, slot);
+		}
+
+		@Override
+		public double getOverdraft() {
+			return Money.toMajorUnits(getOverdraftInMinorUnits());
+		}
+
+		@Override
+		public long getOverdraftInMinorUnits() {
+			return super.getOverdraftInMinorUnits();
+		}
+
+		@Override
+		public void withdraw(double amount) throws OverdraftLimitExceededException {
+			long requested = AbstractAccount.withdrawalAmount(amount);
+			long current = debit(requested);
+			if (requested > current + getOverdraftInMinorUnits()) {
+				throw new OverdraftLimitExceededException(getId(), Money.toMajorUnits(current), amount, getOverdraft(),
+						AbstractAccount.DECLINED_MESSAGE);
+			}
+		}
+	}
+}
@@ -0,0 +1,12 @@
+package com.luxoft.bankapp.domain;
+
+/**
+ * An account that may go below zero down to its overdraft, on the heap ({@link CheckingAccount}) or
+ * in an {@link OffHeapAccountStore}. Reports and persistence recognise checking accounts by this
+ * type, so both kinds count towards the bank's credit.
+ */
+public interface OverdraftAccount extends Account {
+	public double getOverdraft();
+
+	public long getOverdraftInMinorUnits();
+}
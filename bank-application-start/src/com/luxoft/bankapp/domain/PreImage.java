@@ -0,0 +1,30 @@
+package com.luxoft.bankapp.domain;
+
+/**
+ * The balance an account held before its first change in an epoch, kept while a snapshot of an
+ * earlier epoch is open. Older pre-images stay chained behind it, newest first, while an open
+ * snapshot may still read them.
+ */
+final class PreImage {
+    final long epoch;
+    final long balance;
+    final PreImage older;
+
+    PreImage(long epoch, long balance, PreImage last) {
+        this.epoch = epoch;
+        this.balance = balance;
+        this.older = Epochs.isNeeded(last) ? last : null;
+    }
+
+    /**
+     * The balance at the end of the snapshot's epoch, if the account changed after it: the
+     * pre-image of the first epoch after the snapshot. Returns the fallback otherwise.
+     */
+    static long balanceAt(PreImage last, long snapshot, long fallback) {
+        PreImage found = null;
+        for (PreImage preImage = last; preImage != null && preImage.epoch > snapshot; preImage = preImage.older) {
+            found = preImage;
+        }
+        return found == null ? fallback : found.balance;
+    }
+}
@@ -6,8 +6,4 @@ public class SavingAccount extends AbstractAccount {
 		super(id, balance);
 	}
 	
-	public double maximumAmountToWithdraw(){
-        return getBalance();
-    }
-	
 }
@@ -0,0 +1,12 @@
+package com.luxoft.bankapp.domain;
+
+/**
+ * Outcome of {@link Account#tryWithdraw(double)}. Declined withdrawals leave the balance unchanged.
+ */
+public enum WithdrawResult {
+	APPROVED, INSUFFICIENT_FUNDS, OVERDRAFT_EXCEEDED;
+
+	public boolean isApproved() {
+		return this == APPROVED;
+	}
+}
@@ -1,17 +1,20 @@
 package com.luxoft.bankapp.exceptions;
 
+import com.luxoft.bankapp.domain.Money;
+
 public class NotEnoughFundsException extends BankException {
 	
 	private static final long serialVersionUID = -3034651278778929257L;
 	private int id;
-	private double balance;
-	private double amount;
+	// Minor units, see Money
+	private long balance;
+	private long amount;
 	
 	public NotEnoughFundsException(int id, double balance, double amount, String message) {
         super(message);
         this.id = id;
-        this.balance = balance;
-        this.amount = Math.round(amount * 100) / 100d;
+        this.balance = Money.toMinorUnits(balance);
+        this.amount = Money.toMinorUnits(amount);
     }
     
     public int getId() {
@@ -19,10 +22,18 @@ public class NotEnoughFundsException extends BankException {
 	}
     
     public double getBalance() {
-		return balance;
+		return Money.toMajorUnits(balance);
 	}
 
     public double getAmount() {
+        return Money.toMajorUnits(amount);
+    }
+
+    public long getBalanceInMinorUnits() {
+        return balance;
+    }
+
+    public long getAmountInMinorUnits() {
         return amount;
     }
 
@@ -1,16 +1,27 @@
 package com.luxoft.bankapp.exceptions;
 
+import com.luxoft.bankapp.domain.Money;
+
 public class OverdraftLimitExceededException extends NotEnoughFundsException {
 	
 	private static final long serialVersionUID = -3737648528527468343L;
-	private double overdraft;
+	// Minor units, see Money
+	private long overdraft;
 
 	public OverdraftLimitExceededException(NotEnoughFundsException e, double overdraft) {
-        super(e.getId(), e.getBalance(), e.getAmount(), e.getMessage());
-        this.overdraft = overdraft;
+        this(e.getId(), e.getBalance(), e.getAmount(), overdraft, e.getMessage());
+    }
+
+	public OverdraftLimitExceededException(int id, double balance, double amount, double overdraft, String message) {
+        super(id, balance, amount, message);
+        this.overdraft = Money.toMinorUnits(overdraft);
     }
 	
 	public double getOverdraft() {
+		return Money.toMajorUnits(overdraft);
+	}
+
+	public long getOverdraftInMinorUnits() {
 		return overdraft;
 	}
 
@@ -0,0 +1,225 @@
+package com.luxoft.bankapp.log;
+
+import com.luxoft.bankapp.utils.BackpressurePolicy;
+import com.luxoft.bankapp.utils.Queue;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Queues messages in a bounded ring buffer and writes them from a single flushing thread, in
+ * batches of up to {@code batchSize} lines per write to the stream. Callers only pay for an
+ * enqueue; formatting happens on the flushing thread, so arguments should be values that do not
+ * change afterwards.
+ * <p>
+ * The flusher is not woken per message, which would cost a thread switch for every line. It writes
+ * full batches back to back and otherwise sleeps for the flush interval, which bounds how late a
+ * message shows up. Writers wake it once a full batch is waiting, or the buffer is full, and
+ * {@link #flush()} wakes it at once.
+ * <p>
+ * What happens when the buffer is full is up to the {@link BackpressurePolicy}: block the caller,
+ * drop the message or fail. After {@link #close()} messages are written synchronously. Sinks are
+ * created by {@link #start()}, which also starts the flushing thread.
+ */
+public class AsyncLogSink implements LogSink {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 10;
+
+    private final Supplier<PrintStream> stream;
+    private final Queue<Message> queue;
+    private final int batchSize;
+    private final FlushPolicy flushPolicy;
+    private final long flushIntervalNanos;
+    // Backlog at which writers wake the flusher: a full batch, or a full buffer if that is smaller
+    private final int wakeBacklog;
+    private volatile Thread flusher;
+    private volatile boolean sleeping;
+
+    // Messages queued so far, counted once they are in the queue, and messages written
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final Object flushMonitor = new Object();
+    private volatile boolean closed;
+
+    // Writes to System.out with the default settings
+    public static AsyncLogSink start() {
+        return start(() -> System.out, DEFAULT_CAPACITY, BackpressurePolicy.BLOCK, DEFAULT_BATCH_SIZE,
+                DEFAULT_FLUSH_INTERVAL_MILLIS, FlushPolicy.WHEN_IDLE);
+    }
+
+    public static AsyncLogSink start(Supplier<PrintStream> stream, int capacity, BackpressurePolicy policy,
+                                     int batchSize, long flushIntervalMillis, FlushPolicy flushPolicy) {
+        AsyncLogSink sink = new AsyncLogSink(stream, capacity, policy, batchSize, flushIntervalMillis, flushPolicy);
+        sink.flusher = Thread.ofPlatform().daemon().name("AsyncLogSink-Flusher").start(sink::runFlusher);
+        return sink;
+    }
+
+    private AsyncLogSink(Supplier<PrintStream> stream, int capacity, BackpressurePolicy policy, int batchSize,
+                         long flushIntervalMillis, FlushPolicy flushPolicy) {
+        if (stream == null || flushPolicy == null) {
+            throw new IllegalArgumentException("Stream and flush policy must not be null");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        if (flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Flush interval must be positive");
+        }
+        this.stream = stream;
+        this.queue = new Queue<>(capacity, policy);
+        this.batchSize = batchSize;
+        this.flushPolicy = flushPolicy;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.wakeBacklog = Math.min(batchSize, capacity);
+    }
+
+    @Override
+    public void write(Level level, String message, Object... args) {
+        if (closed) {
+            stream.get().println(Messages.format(message, args));
+            return;
+        }
+        if (!queue.add(new Message(message, args))) {
+            return;
+        }
+        // Pairs with the check in sleep(), so either the flusher sees the backlog or it gets woken
+        if (accepted.incrementAndGet() - completed.get() >= wakeBacklog && sleeping) {
+            LockSupport.unpark(flusher);
+        }
+        // Closed meanwhile: the flusher may have made its last pass before the message was queued
+        if (closed) {
+            writeBacklog();
+        }
+    }
+
+    // Number of messages discarded because the buffer was full
+    public long getDroppedCount() {
+        return queue.getDroppedCount();
+    }
+
+    @Override
+    public void flush() {
+        long target = accepted.get();
+        boolean interrupted = false;
+        synchronized (flushMonitor) {
+            while (completed.get() < target && flusher.isAlive()) {
+                LockSupport.unpark(flusher);
+                try {
+                    flushMonitor.wait(TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos) + 1);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Writes out everything queued so far, then stops the flushing thread
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(flusher);
+        boolean interrupted = false;
+        while (flusher.isAlive()) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        // Whatever writers blocked on a full buffer queued once the flusher had stopped
+        writeBacklog();
+    }
+
+    // Writes the queued messages on the calling thread
+    private void writeBacklog() {
+        List<Message> batch = new ArrayList<>(batchSize);
+        StringBuilder text = new StringBuilder();
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch, text, true);
+        }
+    }
+
+    private void runFlusher() {
+        List<Message> batch = new ArrayList<>(batchSize);
+        StringBuilder text = new StringBuilder();
+        while (true) {
+            // Read before draining, so a close during the drain leaves one more pass for the backlog
+            boolean closing = closed;
+            if (queue.drainTo(batch, batchSize) == 0) {
+                if (closing) {
+                    break;
+                }
+                sleep();
+                continue;
+            }
+
+            boolean full = batch.size() == batchSize;
+            write(batch, text, flushPolicy == FlushPolicy.EVERY_BATCH || !full);
+            if (!full && !closed) {
+                sleep();
+            }
+        }
+    }
+
+    // Sleeps for the flush interval unless a batch is waiting already
+    private void sleep() {
+        sleeping = true;
+        if (accepted.get() - completed.get() < wakeBacklog && !closed) {
+            LockSupport.parkNanos(this, flushIntervalNanos);
+        }
+        sleeping = false;
+    }
+
+    // Writes and clears the batch, reusing the text buffer
+    private void write(List<Message> batch, StringBuilder text, boolean flushStream) {
+        String separator = System.lineSeparator();
+        for (Message message : batch) {
+            int start = text.length();
+            try {
+                Messages.appendTo(text, message.text, message.args);
+            } catch (RuntimeException e) {
+                // A failing toString() must not stop the flusher
+                text.setLength(start);
+                text.append(message.text).append(" [").append(e).append(']');
+            }
+            text.append(separator);
+        }
+        PrintStream out = stream.get();
+        out.print(text);
+        if (flushStream) {
+            out.flush();
+        }
+        completed(batch.size());
+        batch.clear();
+        text.setLength(0);
+    }
+
+    private void completed(int messages) {
+        completed.addAndGet(messages);
+        synchronized (flushMonitor) {
+            flushMonitor.notifyAll();
+        }
+    }
+
+    private static class Message {
+        final String text;
+        final Object[] args;
+
+        Message(String text, Object[] args) {
+            this.text = text;
+            this.args = args;
+        }
+    }
+}
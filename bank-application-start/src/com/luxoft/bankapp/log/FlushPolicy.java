@@ -0,0 +1,8 @@
+package com.luxoft.bankapp.log;
+
+public enum FlushPolicy {
+    // Flush the stream after every batch, so messages show up as soon as they are written
+    EVERY_BATCH,
+    // Flush only after a partial batch, that is once the backlog is written, so a burst costs one flush
+    WHEN_IDLE
+}
@@ -0,0 +1,8 @@
+package com.luxoft.bankapp.log;
+
+public enum Level {
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR
+}
@@ -0,0 +1,90 @@
+package com.luxoft.bankapp.log;
+
+/**
+ * Application log. Messages below the level, {@code -Dbankapp.log.level} (default DEBUG), are
+ * discarded before any formatting. By default they go to an {@link AsyncLogSink} on System.out,
+ * flushed when the JVM exits.
+ */
+public final class Log {
+    private static volatile Level level = Level.valueOf(System.getProperty("bankapp.log.level", Level.DEBUG.name()));
+    private static volatile LogSink sink = defaultSink();
+
+    private Log() {
+    }
+
+    public static void debug(String message, Object... args) {
+        log(Level.DEBUG, message, args);
+    }
+
+    public static void info(String message, Object... args) {
+        log(Level.INFO, message, args);
+    }
+
+    public static void warn(String message, Object... args) {
+        log(Level.WARN, message, args);
+    }
+
+    public static void error(String message, Object... args) {
+        log(Level.ERROR, message, args);
+    }
+
+    public static void log(Level messageLevel, String message, Object... args) {
+        if (isEnabled(messageLevel)) {
+            sink.write(messageLevel, message, args);
+        }
+    }
+
+    public static boolean isEnabled(Level messageLevel) {
+        return messageLevel.compareTo(level) >= 0;
+    }
+
+    public static Level getLevel() {
+        return level;
+    }
+
+    public static void setLevel(Level newLevel) {
+        if (newLevel == null) {
+            throw new IllegalArgumentException("Level must not be null");
+        }
+        level = newLevel;
+    }
+
+    public static LogSink getSink() {
+        return sink;
+    }
+
+    /**
+     * Replaces the sink and returns the previous one, which is flushed but left open.
+     */
+    public static LogSink setSink(LogSink newSink) {
+        if (newSink == null) {
+            throw new IllegalArgumentException("Sink must not be null");
+        }
+        LogSink previous = sink;
+        sink = newSink;
+        previous.flush();
+        return previous;
+    }
+
+    /**
+     * An {@link Appendable} that logs every complete line appended to it at the given level. Text
+     * appended in one call is logged as one message, so callers can stream large outputs in chunks.
+     */
+    public static Appendable appender(Level messageLevel) {
+        if (messageLevel == null) {
+            throw new IllegalArgumentException("Level must not be null");
+        }
+        return new LogAppender(messageLevel);
+    }
+
+    // Waits until everything logged so far has been written
+    public static void flush() {
+        sink.flush();
+    }
+
+    private static LogSink defaultSink() {
+        AsyncLogSink async = AsyncLogSink.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(async::close, "Log-Shutdown"));
+        return async;
+    }
+}
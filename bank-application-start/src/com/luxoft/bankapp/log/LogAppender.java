@@ -0,0 +1,44 @@
+package com.luxoft.bankapp.log;
+
+// Logs the complete lines of whatever is appended, as one message per append; a trailing partial line waits for the rest
+class LogAppender implements Appendable {
+    private final Level level;
+    private final StringBuilder pending = new StringBuilder();
+
+    LogAppender(Level level) {
+        this.level = level;
+    }
+
+    @Override
+    public Appendable append(CharSequence text) {
+        return append(text, 0, text.length());
+    }
+
+    @Override
+    public Appendable append(CharSequence text, int start, int end) {
+        if (!Log.isEnabled(level)) {
+            return this;
+        }
+        int lastNewline = -1;
+        for (int i = end - 1; i >= start; i--) {
+            if (text.charAt(i) == '\n') {
+                lastNewline = i;
+                break;
+            }
+        }
+        if (lastNewline < 0) {
+            pending.append(text, start, end);
+            return this;
+        }
+        pending.append(text, start, lastNewline);
+        Log.log(level, pending.toString());
+        pending.setLength(0);
+        pending.append(text, lastNewline + 1, end);
+        return this;
+    }
+
+    @Override
+    public Appendable append(char c) {
+        return append(String.valueOf(c));
+    }
+}
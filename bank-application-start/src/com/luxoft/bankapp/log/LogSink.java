@@ -0,0 +1,19 @@
+package com.luxoft.bankapp.log;
+
+/**
+ * Destination of log messages. A message is either written verbatim, when there are no arguments,
+ * or is a {@link String#format} pattern; sinks may format it on another thread.
+ */
+public interface LogSink extends AutoCloseable {
+
+    void write(Level level, String message, Object... args);
+
+    // Waits until every message written so far has reached the destination
+    default void flush() {
+    }
+
+    @Override
+    default void close() {
+        flush();
+    }
+}
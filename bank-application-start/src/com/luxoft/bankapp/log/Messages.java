@@ -0,0 +1,55 @@
+package com.luxoft.bankapp.log;
+
+import java.util.IllegalFormatException;
+
+// Formats log messages; %s, %d, %n and %% are handled directly, anything else by String.format.
+// A malformed message is written verbatim with the error, never thrown to the caller.
+final class Messages {
+
+    private Messages() {
+    }
+
+    static String format(String message, Object[] args) {
+        if (args == null || args.length == 0) {
+            return message;
+        }
+        return appendTo(new StringBuilder(message.length() + 16 * args.length), message, args).toString();
+    }
+
+    static StringBuilder appendTo(StringBuilder target, String message, Object[] args) {
+        if (args == null || args.length == 0) {
+            return target.append(message);
+        }
+        int start = target.length();
+        int next = 0;
+        int length = message.length();
+        for (int i = 0; i < length; i++) {
+            char c = message.charAt(i);
+            if (c != '%') {
+                target.append(c);
+                continue;
+            }
+            char conversion = i + 1 < length ? message.charAt(i + 1) : 0;
+            if (conversion == 's' && next < args.length) {
+                target.append(args[next++]);
+            } else if (conversion == 'd' && next < args.length
+                    && (args[next] instanceof Integer || args[next] instanceof Long)) {
+                target.append(((Number) args[next++]).longValue());
+            } else if (conversion == 'n') {
+                target.append(System.lineSeparator());
+            } else if (conversion == '%') {
+                target.append('%');
+            } else {
+                // Widths, precisions, other conversions and missing arguments
+                target.setLength(start);
+                try {
+                    return target.append(String.format(message, args));
+                } catch (IllegalFormatException e) {
+                    return target.append(message).append(" [").append(e).append(']');
+                }
+            }
+            i++;
+        }
+        return target;
+    }
+}
@@ -0,0 +1,33 @@
+package com.luxoft.bankapp.log;
+
+import java.io.PrintStream;
+import java.util.function.Supplier;
+
+/**
+ * Writes every message synchronously, one line at a time, on the calling thread.
+ */
+public class StreamSink implements LogSink {
+    private final Supplier<PrintStream> stream;
+
+    // Resolves System.out on every write, so System.setOut redirects the log as well
+    public StreamSink() {
+        this(() -> System.out);
+    }
+
+    public StreamSink(Supplier<PrintStream> stream) {
+        if (stream == null) {
+            throw new IllegalArgumentException("Stream must not be null");
+        }
+        this.stream = stream;
+    }
+
+    @Override
+    public void write(Level level, String message, Object... args) {
+        stream.get().println(Messages.format(message, args));
+    }
+
+    @Override
+    public void flush() {
+        stream.get().flush();
+    }
+}
@@ -0,0 +1,176 @@
+package com.luxoft.bankapp.main;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import com.luxoft.bankapp.domain.Account;
+import com.luxoft.bankapp.domain.Bank;
+import com.luxoft.bankapp.domain.CachedBankReport;
+import com.luxoft.bankapp.domain.Client;
+import com.luxoft.bankapp.domain.Money;
+
+/**
+ * Reads statistics commands line by line until {@code exit} or the end of the input. Every query is
+ * served by a {@link CachedBankReport}, so repeating it against an unchanged bank does not rescan it.
+ */
+public class StatisticsConsole {
+
+	private static final String HELP = String.join(System.lineSeparator(),
+			"Commands:",
+			"  totals              number of clients and accounts, total balance and credit used",
+			"  top <k>             the k accounts with the highest balance",
+			"  bottom <k>          the k accounts with the lowest balance",
+			"  cities              clients and total balance per city",
+			"  credit              total credit used",
+			"  refresh [seconds]   show or set how stale cached results may get under write load",
+			"  display statistics  full report",
+			"  help                this list",
+			"  exit                leave statistics mode");
+
+	private final Bank bank;
+	private final CachedBankReport report;
+	private final PrintStream out;
+
+	public StatisticsConsole(Bank bank, CachedBankReport report, PrintStream out) {
+		this.bank = bank;
+		this.report = report;
+		this.out = out;
+	}
+
+	public void run(BufferedReader in) throws IOException {
+		out.println("Statistics mode. Type 'help' for the list of commands.");
+		String line;
+		while ((line = in.readLine()) != null) {
+			String command = line.trim();
+			if (command.isEmpty()) {
+				continue;
+			}
+			if ("exit".equalsIgnoreCase(command) || "quit".equalsIgnoreCase(command)) {
+				break;
+			}
+			try {
+				execute(command);
+			} catch (IllegalArgumentException e) {
+				out.println(e.getMessage());
+			}
+		}
+	}
+
+	// Runs a single command
+	public void execute(String command) {
+		String[] words = command.trim().split("\\s+");
+		switch (words[0].toLowerCase(Locale.ROOT)) {
+			case "totals" -> printTotals();
+			case "top" -> printAccounts("Top", report.getTopAccountsByBalance(bank, count(words)));
+			case "bottom" -> printAccounts("Bottom", report.getBottomAccountsByBalance(bank, count(words)));
+			case "cities" -> printCities();
+			case "credit" -> out.format("Total bank credit used: %.2f%n", report.getBankCreditSum(bank));
+			case "refresh" -> refresh(words);
+			case "display" -> {
+				if (words.length == 2 && "statistics".equalsIgnoreCase(words[1])) {
+					printStatistics();
+				} else {
+					out.println("Unknown command! Type 'help' for the list of commands.");
+				}
+			}
+			case "help" -> out.println(HELP);
+			default -> out.println("Unknown command! Type 'help' for the list of commands.");
+		}
+	}
+
+	private void printTotals() {
+		out.println("Number of clients: " + report.getNumberOfClients(bank));
+		out.println("Number of accounts: " + report.getNumberOfAccounts(bank));
+		out.format("Total sum in accounts: %.2f%n", report.getTotalSumInAccounts(bank));
+		out.format("Total bank credit used: %.2f%n", report.getBankCreditSum(bank));
+	}
+
+	private void printAccounts(String title, List<Account> accounts) {
+		out.println(title + " " + accounts.size() + " accounts by balance:");
+		for (Account account : accounts) {
+			out.format("- Account %d: %.2f%n", account.getId(), account.getBalance());
+		}
+	}
+
+	private void printCities() {
+		Map<String, CityTotals> cities = report.get(bank, "cityTotals", this::cityTotals);
+		if (cities.isEmpty()) {
+			out.println("No clients with a city");
+		}
+		cities.forEach((city, totals) ->
+				out.format("%s: %d clients, %.2f%n", city, totals.clients, Money.toMajorUnits(totals.balance)));
+	}
+
+	private Map<String, CityTotals> cityTotals(Bank bank) {
+		Map<String, CityTotals> totals = new TreeMap<>();
+		report.getClientsByCity(bank).forEach((city, clients) -> {
+			if (city == null) {
+				return;
+			}
+			long balance = 0;
+			for (Client client : clients) {
+				for (Account account : client.getAccounts()) {
+					balance = Money.add(balance, account.getBalanceInMinorUnits());
+				}
+			}
+			totals.put(city, new CityTotals(clients.size(), balance));
+		});
+		return totals;
+	}
+
+	private void refresh(String[] words) {
+		if (words.length > 1) {
+			long seconds;
+			try {
+				seconds = Long.parseLong(words[1]);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Not a number of seconds: " + words[1]);
+			}
+			report.setMaxStaleness(seconds, TimeUnit.SECONDS);
+		}
+		out.println("Cached results are refreshed " + (report.getMaxStaleness(TimeUnit.SECONDS) == 0
+				? "on every change" : "at most every " + report.getMaxStaleness(TimeUnit.SECONDS) + " s under write load"));
+	}
+
+	private void printStatistics() {
+		out.format("%nBank statistics%n");
+		printTotals();
+
+		out.println("\nClients sorted:");
+		for (Client c : report.getClientsSorted(bank)) {
+			out.println("- " + c.getClientGreeting());
+		}
+
+		out.println("\nAccounts sorted by balance:");
+		for (Account a : report.getAccountsSortedBySum(bank)) {
+			out.printf("- Account %d: %.2f%n", a.getId(), a.getBalance());
+		}
+	}
+
+	private static int count(String[] words) {
+		if (words.length < 2) {
+			return 10;
+		}
+		try {
+			return Integer.parseInt(words[1]);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Not a number of accounts: " + words[1]);
+		}
+	}
+
+	private static class CityTotals {
+		final int clients;
+		final long balance;
+
+		CityTotals(int clients, long balance) {
+			this.clients = clients;
+			this.balance = balance;
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package com.luxoft.bankapp.metrics;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic counter striped across cells, so concurrent increments rarely contend.
+ */
+public class Counter implements Metric {
+    private final LongAdder count = new LongAdder();
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    public long get() {
+        return count.sum();
+    }
+
+    @Override
+    public void collect(String name, Map<String, Number> values) {
+        values.put(name, get());
+    }
+
+    @Override
+    public String describe() {
+        return "count=" + get();
+    }
+}
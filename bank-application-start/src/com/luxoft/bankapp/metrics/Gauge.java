@@ -0,0 +1,29 @@
+package com.luxoft.bankapp.metrics;
+
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * A value read on demand, such as a queue depth.
+ */
+public class Gauge implements Metric {
+    private final LongSupplier value;
+
+    Gauge(LongSupplier value) {
+        this.value = value;
+    }
+
+    public long get() {
+        return value.getAsLong();
+    }
+
+    @Override
+    public void collect(String name, Map<String, Number> values) {
+        values.put(name, get());
+    }
+
+    @Override
+    public String describe() {
+        return "value=" + get();
+    }
+}
@@ -0,0 +1,128 @@
+package com.luxoft.bankapp.metrics;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram in nanoseconds with log-linear buckets, in the style of HdrHistogram: every
+ * power of two is split into 32 linear sub-buckets, so recorded values keep about 3% precision from
+ * one nanosecond up to {@code Long.MAX_VALUE} in a fixed 15KB of counts. Recording is lock-free and
+ * allocation-free.
+ */
+public class LatencyHistogram implements Metric {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Values below this have a bucket of their own
+    private static final int LINEAR_LIMIT = SUB_BUCKETS << 1;
+    private static final int BUCKETS = LINEAR_LIMIT + (63 - (SUB_BUCKET_BITS + 1)) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.getAndIncrement(bucket(value));
+        total.add(value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    // Records the time elapsed since a System.nanoTime() reading
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : total.sum() / (double) count;
+    }
+
+    /**
+     * Smallest recorded value, to the histogram's precision, that the given percentage of all
+     * recorded values does not exceed.
+     */
+    public long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestValueIn(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    static int bucket(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return LINEAR_LIMIT + (exponent - (SUB_BUCKET_BITS + 1)) * SUB_BUCKETS + subBucket;
+    }
+
+    static long highestValueIn(int bucket) {
+        if (bucket < LINEAR_LIMIT) {
+            return bucket;
+        }
+        int offset = bucket - LINEAR_LIMIT;
+        int shift = offset / SUB_BUCKETS + 1;
+        long top = SUB_BUCKETS + offset % SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+
+    @Override
+    public void collect(String name, Map<String, Number> values) {
+        values.put(name + ".count", getCount());
+        values.put(name + ".meanNanos", getMean());
+        values.put(name + ".p50Nanos", getPercentile(50));
+        values.put(name + ".p99Nanos", getPercentile(99));
+        values.put(name + ".p999Nanos", getPercentile(99.9));
+        values.put(name + ".maxNanos", getMax());
+    }
+
+    @Override
+    public String describe() {
+        return "count=" + getCount()
+                + " mean=" + micros(Math.round(getMean()))
+                + " p50=" + micros(getPercentile(50))
+                + " p99=" + micros(getPercentile(99))
+                + " p99.9=" + micros(getPercentile(99.9))
+                + " max=" + micros(getMax());
+    }
+
+    private static String micros(long nanos) {
+        return String.format("%.3fus", nanos / (double) TimeUnit.MICROSECONDS.toNanos(1));
+    }
+}
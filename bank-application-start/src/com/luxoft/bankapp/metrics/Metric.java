@@ -0,0 +1,14 @@
+package com.luxoft.bankapp.metrics;
+
+import java.util.Map;
+
+/**
+ * A named value in a {@link MetricsRegistry}.
+ */
+public interface Metric {
+    // Adds this metric's current values, keyed by attribute name, for JMX
+    void collect(String name, Map<String, Number> values);
+
+    // One line for the text snapshot, without the name
+    String describe();
+}
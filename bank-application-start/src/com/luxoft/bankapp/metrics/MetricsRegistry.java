@@ -0,0 +1,105 @@
+package com.luxoft.bankapp.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Named counters, gauges and latency histograms, readable as a text snapshot and over JMX.
+ * <p>
+ * Look metrics up once and keep the reference: lookups go through a map, updates do not.
+ */
+public class MetricsRegistry {
+    public static final String DEFAULT_OBJECT_NAME = "com.luxoft.bankapp:type=Metrics";
+
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    private final ConcurrentSkipListMap<String, Metric> metrics = new ConcurrentSkipListMap<>();
+
+    // The registry the bank core reports to
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    public Counter counter(String name) {
+        return getOrCreate(name, Counter.class, _ -> new Counter());
+    }
+
+    public LatencyHistogram histogram(String name) {
+        return getOrCreate(name, LatencyHistogram.class, _ -> new LatencyHistogram());
+    }
+
+    // Replaces any metric registered under the name
+    public Gauge gauge(String name, LongSupplier value) {
+        Gauge gauge = new Gauge(value);
+        register(name, gauge);
+        return gauge;
+    }
+
+    // Replaces any metric registered under the name
+    public void register(String name, Metric metric) {
+        if (name == null || metric == null) {
+            throw new IllegalArgumentException("Name and metric must not be null");
+        }
+        metrics.put(name, metric);
+    }
+
+    // Removes the metric only if it is still the one registered under the name
+    public boolean remove(String name, Metric metric) {
+        return metrics.remove(name, metric);
+    }
+
+    public SortedMap<String, Metric> getMetrics() {
+        return Collections.unmodifiableSortedMap(metrics);
+    }
+
+    // Every metric value, keyed by attribute name
+    public Map<String, Number> getValues() {
+        Map<String, Number> values = new LinkedHashMap<>();
+        metrics.forEach((name, metric) -> metric.collect(name, values));
+        return values;
+    }
+
+    // One line per metric, sorted by name
+    public String snapshot() {
+        StringBuilder snapshot = new StringBuilder();
+        metrics.forEach((name, metric) -> snapshot.append(name).append(' ').append(metric.describe()).append('\n'));
+        return snapshot.toString();
+    }
+
+    /**
+     * Exposes the registry on the platform MBean server under {@link #DEFAULT_OBJECT_NAME}.
+     * Registering an already registered name is a no-op.
+     */
+    public ObjectName registerMBean() throws JMException {
+        return registerMBean(new ObjectName(DEFAULT_OBJECT_NAME));
+    }
+
+    public ObjectName registerMBean(ObjectName name) throws JMException {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(this), name);
+        } catch (InstanceAlreadyExistsException e) {
+            // Already exposed
+        }
+        return name;
+    }
+
+    private <T extends Metric> T getOrCreate(String name, Class<T> type, Function<String, T> factory) {
+        if (name == null) {
+            throw new IllegalArgumentException("Name must not be null");
+        }
+        Metric metric = metrics.computeIfAbsent(name, factory);
+        if (!type.isInstance(metric)) {
+            throw new IllegalArgumentException("Metric " + name + " is a " + metric.getClass().getSimpleName());
+        }
+        return type.cast(metric);
+    }
+}
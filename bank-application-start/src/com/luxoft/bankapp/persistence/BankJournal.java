@@ -0,0 +1,894 @@
+package com.luxoft.bankapp.persistence;
+
+import com.luxoft.bankapp.domain.Account;
+import com.luxoft.bankapp.domain.Bank;
+import com.luxoft.bankapp.domain.CheckingAccount;
+import com.luxoft.bankapp.domain.Client;
+import com.luxoft.bankapp.domain.Epochs;
+import com.luxoft.bankapp.domain.Gender;
+import com.luxoft.bankapp.domain.Money;
+import com.luxoft.bankapp.domain.OverdraftAccount;
+import com.luxoft.bankapp.domain.SavingAccount;
+import com.luxoft.bankapp.log.Log;
+import com.luxoft.bankapp.utils.BankChangeListener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only write-ahead journal of bank mutations: added clients, added accounts, deposits and
+ * withdrawals. Registered as a {@link BankChangeListener}, it encodes each event into a compact
+ * binary record and hands it to a flusher thread which writes and fsyncs everything appended since
+ * the previous sync in one go (group commit), so concurrent writers share the cost of a sync.
+ * <p>
+ * The file starts with a header ({@code magic, version, firstRecord}) followed by records laid out
+ * as {@code int payloadLength, int crc32c(payload), payload}, where the payload starts with the
+ * record type and the epoch of the change (see {@code Epochs.reportedEpoch()}). Amounts are in minor
+ * units. Deposits and withdrawals name the account by its client id and account id, since account
+ * ids are only unique within a client. A torn record at the end of the file, left by a crash during
+ * a write, is ignored on replay and overwritten by the next append.
+ * <p>
+ * Records are numbered from 1 across the life of the journal. A snapshot written with
+ * {@link BankSnapshot#write(Bank, Path, BankJournal)} holds every record up to a position, so the
+ * journal then drops them and {@code firstRecord} counts the records dropped so far. Such a journal
+ * is opened together with its snapshot, see {@link #open(Path, Path, Bank, boolean)}.
+ * <p>
+ * In synchronous mode a mutation returns only once its record is on disk; otherwise records reach
+ * the disk with the next batch and {@link #sync()} waits for everything appended so far.
+ * Synchronous is the default, since a write-ahead journal should not lose acknowledged mutations.
+ * Its cost falls on each thread, not on the bank: the lock is held only to encode a record and
+ * is released while waiting, so concurrent writers still share one fsync per batch, but a single
+ * writer pays a full fsync for every mutation. Open the journal asynchronously when losing the
+ * last batch in a crash is acceptable.
+ */
+public class BankJournal implements BankChangeListener, Closeable {
+    static final byte CLIENT_ADDED = 1;
+    static final byte ACCOUNT_ADDED = 2;
+    static final byte DEPOSIT = 3;
+    static final byte WITHDRAW = 4;
+
+    static final byte SAVING = 0;
+    static final byte CHECKING = 1;
+
+    private static final int MAGIC = 0x424A524E;
+    private static final int VERSION = 2;
+    private static final int FILE_HEADER_BYTES = 16;
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+    private static final int INITIAL_BUFFER_BYTES = 64 * 1024;
+
+    private final Path file;
+    private final boolean synchronous;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hasRecords = lock.newCondition();
+    private final Condition synced = lock.newCondition();
+    private final Thread flusher;
+    private final CRC32C crc = new CRC32C();
+    // Guarded by lock: the client of every journaled account, and the changes of accounts whose
+    // balance moved before they were announced
+    private final Map<Account, Long> owners = new HashMap<>();
+    private final Map<Account, List<EarlyChange>> unannounced = new HashMap<>();
+
+    // Guarded by lock; the flusher writes to the channel it finds when it takes a batch
+    private FileChannel channel;
+    // Guarded by lock: records dropped from the start of the file, records before the ones appended
+    // since opening, and the file length including the records not yet written
+    private long firstRecord;
+    private final long recordsBefore;
+    private long length;
+    // Guarded by lock: the length of the file as written so far, and a trim waiting for the flusher
+    private long durableLength;
+    private Trim trim;
+    // Guarded by lock: records not yet handed to the flusher
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+    private int recordStart;
+    private long appendedRecords;
+    private long durableRecords;
+    private long syncs;
+    private boolean closed;
+    private boolean droppedAfterClose;
+    private IOException failure;
+    // The bank open() registered the journal with
+    private Bank bank;
+
+    // Keeps the first validLength bytes of the file, or starts it afresh after firstRecord records
+    private BankJournal(Path file, Replay replay, boolean synchronous) throws IOException {
+        this.file = file;
+        this.synchronous = synchronous;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            firstRecord = replay.firstRecord;
+            recordsBefore = replay.firstRecord + replay.records;
+            if (replay.validLength < FILE_HEADER_BYTES) {
+                channel.truncate(0);
+                writeFully(channel, fileHeader(firstRecord));
+                channel.force(false);
+                length = FILE_HEADER_BYTES;
+            } else {
+                // Drops a torn record left by a crash
+                channel.truncate(replay.validLength);
+                length = replay.validLength;
+            }
+            channel.position(length);
+            durableLength = length;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        flusher = Thread.ofPlatform().name("BankJournal-Flusher").daemon().start(this::runFlusher);
+    }
+
+    /**
+     * Rebuilds the clients recorded in the journal into the bank, without notifying its registration
+     * listeners, then journals every further mutation of the bank. If the journal is empty, the
+     * clients the bank already has are written to it first, so a bank loaded from any snapshot can be
+     * journaled from then on; a journal with records can only be replayed into an empty bank. The bank
+     * must not change while the journal is being opened.
+     */
+    public static BankJournal open(Path file, Bank bank, boolean synchronous) throws IOException {
+        Replay replay = replay(file, null);
+        if (replay.firstRecord > 0) {
+            throw new IOException("Journal continues a snapshot, open it together with the snapshot: " + file);
+        }
+        if (replay.records > 0) {
+            if (!bank.getClients().isEmpty()) {
+                throw new IllegalArgumentException("Cannot replay a journal into a bank that already has clients");
+            }
+            bank.restoreClients(replay.clients);
+        }
+        return start(file, replay, bank, synchronous, replay.records == 0);
+    }
+
+    // Synchronous, see the class comment for the trade-off
+    public static BankJournal open(Path file, Bank bank) throws IOException {
+        return open(file, bank, true);
+    }
+
+    /**
+     * Loads the snapshot into the empty bank, replays the journal records it does not hold yet and
+     * journals every further mutation of the bank. The snapshot must have been written with this
+     * journal by {@link BankSnapshot#write(Bank, Path, BankJournal)}; without a snapshot file this is
+     * {@link #open(Path, Bank, boolean)}.
+     */
+    public static BankJournal open(Path file, Path snapshot, Bank bank, boolean synchronous) throws IOException {
+        if (!Files.exists(snapshot)) {
+            return open(file, bank, synchronous);
+        }
+        if (!bank.getClients().isEmpty()) {
+            throw new IllegalArgumentException("Cannot load a snapshot into a bank that already has clients");
+        }
+        BankSnapshot.Contents base = BankSnapshot.read(snapshot);
+        if (base.journalPosition < 0) {
+            throw new IOException("Snapshot was not written with a journal: " + snapshot);
+        }
+        Replay replay = replay(file, base);
+        if (replay.firstRecord > base.journalPosition) {
+            throw new IOException("Journal dropped records the snapshot does not hold: " + file);
+        }
+        if (replay.firstRecord + replay.records < base.journalPosition) {
+            // Every record left is in the snapshot, so numbering carries on from it
+            replay = new Replay(replay.clients, 0, base.journalPosition, 0, replay.lastEpoch);
+        }
+        bank.restoreClients(replay.clients);
+        Epochs.advancePast(base.journalEpoch);
+        return start(file, replay, bank, synchronous, false);
+    }
+
+    // Records written by an earlier run keep older epochs than the changes this run makes
+    private static BankJournal start(Path file, Replay replay, Bank bank, boolean synchronous, boolean write)
+            throws IOException {
+        Epochs.advancePast(replay.lastEpoch);
+        BankJournal journal = new BankJournal(file, replay, synchronous);
+        try {
+            journal.track(bank, write);
+        } catch (RuntimeException e) {
+            journal.close();
+            throw e;
+        }
+        bank.addChangeListener(journal);
+        journal.bank = bank;
+        return journal;
+    }
+
+    // Clients with their accounts and final balances, in the order they were added
+    public static List<Client> readClients(Path file) throws IOException {
+        Replay replay = replay(file, null);
+        if (replay.firstRecord > 0) {
+            throw new IOException("Journal continues a snapshot: " + file);
+        }
+        return replay.clients;
+    }
+
+    // Learns the accounts of the bank's clients, writing the clients to the journal if asked to
+    private void track(Bank bank, boolean write) {
+        lock.lock();
+        try {
+            for (Client client : bank.getClients()) {
+                if (write) {
+                    appendClient(0, client);
+                }
+                for (Account account : client.getAccounts()) {
+                    if (write) {
+                        appendAccount(0, client, account, account.getBalanceInMinorUnits());
+                    } else {
+                        owners.put(account, client.getId());
+                    }
+                }
+            }
+            if (synchronous) {
+                awaitDurable(appendedRecords);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void onClientAdded(Client client) {
+        lock.lock();
+        try {
+            if (acceptsChanges()) {
+                awaitIfSynchronous(appendClient(Epochs.reportedEpoch(), client));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void onAccountAdded(Client client, Account account, long balance) {
+        lock.lock();
+        try {
+            if (acceptsChanges()) {
+                awaitIfSynchronous(appendAccount(Epochs.reportedEpoch(), client, account, balance));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void onBalanceChanged(Account account, long oldBalance, long newBalance) {
+        long delta = newBalance - oldBalance;
+        if (delta == 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (!acceptsChanges()) {
+                return;
+            }
+            Long clientId = owners.get(account);
+            if (clientId == null) {
+                // The account joined the bank but its announcement has not reached the journal yet
+                unannounced.computeIfAbsent(account, _ -> new ArrayList<>())
+                        .add(new EarlyChange(Epochs.reportedEpoch(), delta));
+                return;
+            }
+            awaitIfSynchronous(appendBalance(Epochs.reportedEpoch(), clientId, account.getId(), delta));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called with lock held
+    private long appendClient(long epoch, Client client) {
+        byte[] name = encode(client.getName());
+        byte[] city = encode(client.getCity());
+        ByteBuffer buffer = begin(CLIENT_ADDED, epoch, 8 + 1 + 4 + length(name) + length(city));
+        buffer.putLong(client.getId());
+        buffer.put(client.getGender() == null ? -1 : (byte) client.getGender().ordinal());
+        putString(buffer, name);
+        putString(buffer, city);
+        return commit();
+    }
+
+    // Called with lock held; changes made before the announcement follow it
+    private long appendAccount(long epoch, Client client, Account account, long balance) {
+        boolean checking = account instanceof OverdraftAccount;
+        long overdraft = checking ? ((OverdraftAccount) account).getOverdraftInMinorUnits() : 0;
+        ByteBuffer buffer = begin(ACCOUNT_ADDED, epoch, 8 + 4 + 1 + 8 + 8);
+        buffer.putLong(client.getId());
+        buffer.putInt(account.getId());
+        buffer.put(checking ? CHECKING : SAVING);
+        buffer.putLong(balance);
+        buffer.putLong(overdraft);
+        long record = commit();
+
+        owners.put(account, client.getId());
+        List<EarlyChange> early = unannounced.remove(account);
+        if (early != null) {
+            for (EarlyChange change : early) {
+                record = appendBalance(change.epoch, client.getId(), account.getId(), change.delta);
+            }
+        }
+        return record;
+    }
+
+    // Called with lock held
+    private long appendBalance(long epoch, long clientId, int accountId, long delta) {
+        ByteBuffer buffer = begin(delta > 0 ? DEPOSIT : WITHDRAW, epoch, 8 + 4 + 8);
+        buffer.putLong(clientId);
+        buffer.putInt(accountId);
+        buffer.putLong(Math.abs(delta));
+        return commit();
+    }
+
+    // Called with lock held; changes reaching a closed journal are dropped rather than failing the
+    // mutation that already happened
+    private boolean acceptsChanges() {
+        if (!closed) {
+            return true;
+        }
+        if (!droppedAfterClose) {
+            droppedAfterClose = true;
+            Log.warn("Bank journal is closed but still registered; changes are no longer journaled");
+        }
+        return false;
+    }
+
+    // Waits until every record appended so far is on disk
+    public void sync() throws IOException {
+        lock.lock();
+        try {
+            awaitDurable(appendedRecords);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A position and the file offset of the record after it, in the file as it is now
+    Mark mark() {
+        lock.lock();
+        try {
+            return new Mark(recordsBefore + appendedRecords, length, firstRecord);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops the records up to the mark, which a snapshot holds. The flusher copies the later records
+     * to a new file that replaces the journal between two batches, so writers go on meanwhile.
+     */
+    void trim(Mark mark) throws IOException {
+        lock.lock();
+        try {
+            while (trim != null) {
+                awaitFlusher();
+            }
+            // A mark taken before an earlier trim no longer matches the file
+            if (closed || mark.firstRecord != firstRecord || mark.position == firstRecord) {
+                return;
+            }
+            Trim request = new Trim(mark);
+            trim = request;
+            hasRecords.signal();
+            while (!request.done) {
+                awaitFlusher();
+            }
+            if (request.failure != null) {
+                throw request.failure;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called with lock held
+    private void awaitFlusher() throws IOException {
+        if (failure != null) {
+            throw new IOException("Journal failed", failure);
+        }
+        synced.awaitUninterruptibly();
+    }
+
+    Bank getBank() {
+        return bank;
+    }
+
+    // Records appended since the journal was opened
+    public long getRecordCount() {
+        lock.lock();
+        try {
+            return appendedRecords;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Number of fsyncs so far; records / syncs is the achieved group commit size
+    public long getSyncCount() {
+        lock.lock();
+        try {
+            return syncs;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the journal from the bank it was opened on, syncs the remaining records and closes the
+     * file. A journal registered by other means should be removed from the bank first: changes
+     * reported after closing are not journaled.
+     */
+    @Override
+    public void close() throws IOException {
+        if (bank != null) {
+            bank.removeChangeListener(this);
+        }
+        lock.lock();
+        try {
+            closed = true;
+            hasRecords.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // Called with lock held; reserves room for a record and leaves the buffer positioned at its payload
+    private ByteBuffer begin(byte type, long epoch, int bodyBytes) {
+        if (failure != null) {
+            throw new UncheckedIOException("Journal failed", failure);
+        }
+        int recordBytes = HEADER_BYTES + 1 + 8 + bodyBytes;
+        if (pending.remaining() < recordBytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + recordBytes));
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+        recordStart = pending.position();
+        pending.putInt(1 + 8 + bodyBytes);
+        pending.putInt(0);
+        pending.put(type);
+        pending.putLong(epoch);
+        return pending;
+    }
+
+    // Called with lock held after the payload was written; fills in the checksum, publishes the record
+    // and returns its number
+    private long commit() {
+        crc.reset();
+        crc.update(pending.slice(recordStart + HEADER_BYTES, pending.position() - recordStart - HEADER_BYTES));
+        pending.putInt(recordStart + 4, (int) crc.getValue());
+
+        length += pending.position() - recordStart;
+        long record = ++appendedRecords;
+        hasRecords.signal();
+        return record;
+    }
+
+    private void awaitIfSynchronous(long record) {
+        if (synchronous) {
+            awaitDurable(record);
+        }
+    }
+
+    private void awaitDurable(long record) {
+        while (durableRecords < record) {
+            if (failure != null) {
+                throw new UncheckedIOException("Journal failed", failure);
+            }
+            synced.awaitUninterruptibly();
+        }
+    }
+
+    private void runFlusher() {
+        ByteBuffer writing = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+        while (true) {
+            long batchEnd = 0;
+            long fileEnd = 0;
+            Trim request = null;
+            FileChannel out;
+            lock.lock();
+            try {
+                while (pending.position() == 0 && trim == null && !closed) {
+                    hasRecords.awaitUninterruptibly();
+                }
+                out = channel;
+                // Every record before the mark is in the file once the batch holding it is written
+                if (trim != null && durableLength >= trim.mark.offset) {
+                    request = trim;
+                    fileEnd = durableLength;
+                } else if (pending.position() == 0) {
+                    return;
+                } else {
+                    // Swap buffers so writers keep appending while this batch is written
+                    ByteBuffer batch = pending;
+                    pending = writing;
+                    writing = batch;
+                    batchEnd = appendedRecords;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (request != null) {
+                carryOut(request, out, fileEnd);
+                continue;
+            }
+
+            IOException error = null;
+            int batchBytes = writing.flip().remaining();
+            try {
+                writeFully(out, writing);
+                out.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+            writing.clear();
+
+            lock.lock();
+            try {
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durableRecords = batchEnd;
+                    durableLength += batchBytes;
+                    syncs++;
+                }
+                synced.signalAll();
+                if (error != null) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Runs on the flusher, so nothing is written to the file while the records after the mark, up to
+    // the end of the file, are copied
+    private void carryOut(Trim request, FileChannel from, long end) {
+        Mark mark = request.mark;
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        FileChannel trimmed = null;
+        IOException error = null;
+        try {
+            trimmed = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            writeFully(trimmed, fileHeader(mark.position));
+            ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+            for (long offset = mark.offset; offset < end; ) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), end - offset));
+                while (buffer.hasRemaining()) {
+                    if (from.read(buffer, offset + buffer.position()) < 0) {
+                        throw new IOException("Journal is shorter than expected: " + file);
+                    }
+                }
+                offset += buffer.flip().remaining();
+                writeFully(trimmed, buffer);
+            }
+            trimmed.force(false);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            error = e;
+            try {
+                if (trimmed != null) {
+                    trimmed.close();
+                }
+                Files.deleteIfExists(temporary);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+        }
+
+        lock.lock();
+        try {
+            if (error == null) {
+                channel = trimmed;
+                long dropped = mark.offset - FILE_HEADER_BYTES;
+                length -= dropped;
+                durableLength -= dropped;
+                firstRecord = mark.position;
+            }
+            request.failure = error;
+            request.done = true;
+            trim = null;
+            synced.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (error == null) {
+            try {
+                from.close();
+            } catch (IOException e) {
+                Log.warn("Could not close the trimmed bank journal: %s", e);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the clients from the snapshot contents, if any, and the journal records it does not
+     * hold: those after its position and of a later epoch. A missing file, or one too short for its
+     * header, is an empty journal.
+     */
+    static Replay replay(Path file, BankSnapshot.Contents base) throws IOException {
+        Map<Long, Client> clients = new LinkedHashMap<>();
+        // By client id, then account id
+        Map<Long, Map<Integer, AccountState>> accounts = new LinkedHashMap<>();
+        if (base != null) {
+            for (Client client : base.clients) {
+                Client copy = new Client(client.getId(), client.getName(), client.getGender(), client.getCity());
+                clients.put(copy.getId(), copy);
+                Map<Integer, AccountState> ofClient = accounts.computeIfAbsent(copy.getId(), _ -> new LinkedHashMap<>());
+                for (Account account : client.getAccounts()) {
+                    boolean checking = account instanceof OverdraftAccount;
+                    ofClient.put(account.getId(), new AccountState(copy, account.getId(), checking ? CHECKING : SAVING,
+                            account.getBalanceInMinorUnits(),
+                            checking ? ((OverdraftAccount) account).getOverdraftInMinorUnits() : 0));
+                }
+            }
+        }
+        if (!Files.exists(file) || Files.size(file) < FILE_HEADER_BYTES) {
+            return replayed(clients, accounts, 0, 0, 0, 0);
+        }
+        long validLength;
+        long firstRecord;
+        long records = 0;
+        long lastEpoch = 0;
+
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES);
+            while (header.hasRemaining()) {
+                if (in.read(header) < 0) {
+                    throw new IOException("Truncated journal: " + file);
+                }
+            }
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("Not a bank journal: " + file);
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("Unsupported journal version " + header.getInt(4));
+            }
+            firstRecord = header.getLong(8);
+            validLength = FILE_HEADER_BYTES;
+
+            ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_BYTES * 16);
+            CRC32C checksum = new CRC32C();
+            boolean eof = false;
+            records:
+            while (!eof) {
+                eof = in.read(buffer) < 0;
+                buffer.flip();
+                while (buffer.remaining() >= HEADER_BYTES) {
+                    int length = buffer.getInt(buffer.position());
+                    if (length <= 0 || length > MAX_RECORD_BYTES) {
+                        break records;
+                    }
+                    if (buffer.remaining() < HEADER_BYTES + length) {
+                        if (buffer.capacity() < HEADER_BYTES + length) {
+                            buffer = ByteBuffer.allocate(HEADER_BYTES + length).put(buffer);
+                            buffer.flip();
+                        }
+                        break;
+                    }
+                    int expected = buffer.getInt(buffer.position() + 4);
+                    ByteBuffer payload = buffer.slice(buffer.position() + HEADER_BYTES, length);
+                    checksum.reset();
+                    checksum.update(payload.duplicate());
+                    if ((int) checksum.getValue() != expected) {
+                        break records;
+                    }
+                    long epoch = payload.getLong(1);
+                    records++;
+                    lastEpoch = Math.max(lastEpoch, epoch);
+                    if (base == null || (firstRecord + records > base.journalPosition && epoch > base.journalEpoch)) {
+                        apply(payload, clients, accounts);
+                    }
+                    buffer.position(buffer.position() + HEADER_BYTES + length);
+                    validLength += HEADER_BYTES + length;
+                }
+                buffer.compact();
+            }
+        }
+        return replayed(clients, accounts, validLength, firstRecord, records, lastEpoch);
+    }
+
+    private static Replay replayed(Map<Long, Client> clients, Map<Long, Map<Integer, AccountState>> accounts,
+            long validLength, long firstRecord, long records, long lastEpoch) {
+        for (Map<Integer, AccountState> ofClient : accounts.values()) {
+            for (AccountState state : ofClient.values()) {
+                double balance = Money.toMajorUnits(state.balance);
+                Account account = state.kind == CHECKING
+                        ? new CheckingAccount(state.id, balance, Money.toMajorUnits(state.overdraft))
+                        : new SavingAccount(state.id, balance);
+                state.client.addAccount(account);
+            }
+        }
+        return new Replay(new ArrayList<>(clients.values()), validLength, firstRecord, records, lastEpoch);
+    }
+
+    private static void apply(ByteBuffer payload, Map<Long, Client> clients,
+            Map<Long, Map<Integer, AccountState>> accounts) throws IOException {
+        byte type = payload.get();
+        payload.getLong();
+        switch (type) {
+            case CLIENT_ADDED -> {
+                long id = payload.getLong();
+                byte gender = payload.get();
+                String name = getString(payload);
+                String city = getString(payload);
+                clients.put(id, new Client(id, name, gender(gender), city));
+            }
+            case ACCOUNT_ADDED -> {
+                Client client = clients.get(payload.getLong());
+                if (client == null) {
+                    throw new IOException("Journal references an unknown client");
+                }
+                int id = payload.getInt();
+                byte kind = payload.get();
+                if (kind != SAVING && kind != CHECKING) {
+                    throw new IOException("Unknown account kind " + kind + " in journal");
+                }
+                accounts.computeIfAbsent(client.getId(), _ -> new LinkedHashMap<>())
+                        .put(id, new AccountState(client, id, kind, payload.getLong(), payload.getLong()));
+            }
+            case DEPOSIT, WITHDRAW -> {
+                Map<Integer, AccountState> ofClient = accounts.get(payload.getLong());
+                AccountState account = ofClient == null ? null : ofClient.get(payload.getInt());
+                if (account == null) {
+                    throw new IOException("Journal references an unknown account");
+                }
+                long amount = payload.getLong();
+                account.balance += type == DEPOSIT ? amount : -amount;
+            }
+            default -> throw new IOException("Unknown journal record type " + type);
+        }
+    }
+
+    // -1 stands for a client without a gender
+    private static Gender gender(byte ordinal) throws IOException {
+        if (ordinal == -1) {
+            return null;
+        }
+        Gender[] genders = Gender.values();
+        if (ordinal < 0 || ordinal >= genders.length) {
+            throw new IOException("Unknown gender " + ordinal + " in journal");
+        }
+        return genders[ordinal];
+    }
+
+    private static ByteBuffer fileHeader(long firstRecord) {
+        return ByteBuffer.allocate(FILE_HEADER_BYTES).putInt(MAGIC).putInt(VERSION).putLong(firstRecord).flip();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static byte[] encode(String value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("String too long for the journal");
+        }
+        return bytes;
+    }
+
+    private static int length(byte[] value) {
+        return value == null ? 0 : value.length;
+    }
+
+    // Length-prefixed UTF-8, length -1 for null
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+        } else {
+            buffer.putShort((short) value.length);
+            buffer.put(value);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        short length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    static class Replay {
+        final List<Client> clients;
+        // Bytes up to the end of the last intact record, 0 if the file has no header
+        final long validLength;
+        final long firstRecord;
+        // Intact records in the file
+        final long records;
+        final long lastEpoch;
+
+        Replay(List<Client> clients, long validLength, long firstRecord, long records, long lastEpoch) {
+            this.clients = clients;
+            this.validLength = validLength;
+            this.firstRecord = firstRecord;
+            this.records = records;
+            this.lastEpoch = lastEpoch;
+        }
+    }
+
+    static class Mark {
+        // Records before the mark
+        final long position;
+        // File offset of the record after the mark, and the dropped records the offset counts from
+        final long offset;
+        final long firstRecord;
+
+        Mark(long position, long offset, long firstRecord) {
+            this.position = position;
+            this.offset = offset;
+            this.firstRecord = firstRecord;
+        }
+    }
+
+    private static class Trim {
+        final Mark mark;
+        // Guarded by lock
+        boolean done;
+        IOException failure;
+
+        Trim(Mark mark) {
+            this.mark = mark;
+        }
+    }
+
+    // A change to an account made before its announcement reached the journal
+    private static class EarlyChange {
+        final long epoch;
+        final long delta;
+
+        EarlyChange(long epoch, long delta) {
+            this.epoch = epoch;
+            this.delta = delta;
+        }
+    }
+
+    // An account as rebuilt so far; deposits and withdrawals are folded into the balance
+    private static class AccountState {
+        final Client client;
+        final int id;
+        final byte kind;
+        long balance;
+        final long overdraft;
+
+        AccountState(Client client, int id, byte kind, long balance, long overdraft) {
+            this.client = client;
+            this.id = id;
+            this.kind = kind;
+            this.balance = balance;
+            this.overdraft = overdraft;
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package com.luxoft.bankapp.persistence;
+
+import com.luxoft.bankapp.domain.Account;
+import com.luxoft.bankapp.domain.Bank;
+import com.luxoft.bankapp.domain.CheckingAccount;
+import com.luxoft.bankapp.domain.Client;
+import com.luxoft.bankapp.domain.ClientImportResult;
+import com.luxoft.bankapp.domain.Gender;
+import com.luxoft.bankapp.domain.Money;
+import com.luxoft.bankapp.domain.OverdraftAccount;
+import com.luxoft.bankapp.domain.SavingAccount;
+import com.luxoft.bankapp.log.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Whole-bank snapshots in a columnar binary file: one column per client field and per account
+ * field, so the loader maps each column and rebuilds clients in parallel without parsing records.
+ * <p>
+ * Layout: a fixed header ({@code magic, version, clients, accounts, nameBytes, cityBytes,
+ * journalPosition, journalEpoch}) followed by the columns client id, gender, null flags, name
+ * offsets, city offsets, first account index, name bytes, city bytes, account id, account kind,
+ * balance and overdraft. Offsets have one more entry than there are clients; amounts are in minor
+ * units. Version 1 files have no journal fields.
+ * <p>
+ * {@link #write(Bank, Path)} reads each balance once while deposits and withdrawals go on, so the
+ * snapshot is consistent per account but not a single point in time across accounts.
+ * {@link #write(Bank, Path, BankJournal)} writes the bank as it was at a single point in time instead,
+ * together with how far the journal it holds goes, and then trims the journal. The file is written next to the target and
+ * moved into place, so a crash never leaves a partial snapshot behind.
+ */
+public class BankSnapshot {
+    static final int MAGIC = 0x42414E4B;
+    static final int VERSION = 2;
+
+    private static final int V1_HEADER_BYTES = 32;
+    private static final int HEADER_BYTES = 48;
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+    private static final byte NULL_NAME = 1;
+    private static final byte NULL_CITY = 2;
+
+    private BankSnapshot() {
+    }
+
+    // Returns the number of accounts written
+    public static long write(Bank bank, Path file) throws IOException {
+        return write(bank.getClients(), client -> Arrays.asList(client.getAccounts().toArray(new Account[0])),
+                Account::getBalanceInMinorUnits, file, -1, 0);
+    }
+
+    /**
+     * Writes the bank as it was at a single point in time, streamed from a
+     * {@link Bank#openSnapshotView() snapshot view} rather than copied first, then drops the journal
+     * records the snapshot holds. The view stays open while the file is written. The journal must
+     * be open on the bank; reopen both with {@link BankJournal#open(Path, Path, Bank, boolean)}.
+     * Returns the number of accounts written.
+     */
+    public static synchronized long write(Bank bank, Path file, BankJournal journal) throws IOException {
+        if (journal.getBank() != bank) {
+            throw new IllegalArgumentException("The journal is not open on this bank");
+        }
+        // Every record up to the mark is of a change the copy holds
+        BankJournal.Mark mark = journal.mark();
+        long accounts;
+        try (Bank.SnapshotView view = bank.openSnapshotView()) {
+            accounts = write(view.getClients(), view::getAccounts, view::getBalanceInMinorUnits,
+                    file, mark.position, view.getEpoch());
+        }
+        journal.trim(mark);
+        return accounts;
+    }
+
+    private static long write(Collection<Client> registered, Function<Client, List<Account>> accountsOf,
+            ToLongFunction<Account> balanceOf, Path file, long journalPosition, long journalEpoch) throws IOException {
+        Client[] clients = registered.toArray(new Client[0]);
+        List<List<Account>> accounts = new ArrayList<>(clients.length);
+        int[] firstAccount = new int[clients.length + 1];
+        long[] nameOffsets = new long[clients.length + 1];
+        long[] cityOffsets = new long[clients.length + 1];
+        for (int i = 0; i < clients.length; i++) {
+            accounts.add(accountsOf.apply(clients[i]));
+            firstAccount[i + 1] = Math.addExact(firstAccount[i], accounts.get(i).size());
+            nameOffsets[i + 1] = nameOffsets[i] + utf8Length(clients[i].getName());
+            cityOffsets[i + 1] = cityOffsets[i] + utf8Length(clients[i].getCity());
+        }
+        int accountCount = firstAccount[clients.length];
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ColumnWriter out = new ColumnWriter(channel);
+            out.putInt(MAGIC).putInt(VERSION).putInt(clients.length).putInt(accountCount)
+                    .putLong(nameOffsets[clients.length]).putLong(cityOffsets[clients.length])
+                    .putLong(journalPosition).putLong(journalEpoch);
+
+            for (Client client : clients) {
+                out.putLong(client.getId());
+            }
+            for (Client client : clients) {
+                out.put(client.getGender() == null ? -1 : (byte) client.getGender().ordinal());
+            }
+            for (Client client : clients) {
+                out.put((byte) ((client.getName() == null ? NULL_NAME : 0) | (client.getCity() == null ? NULL_CITY : 0)));
+            }
+            for (long offset : nameOffsets) {
+                out.putLong(offset);
+            }
+            for (long offset : cityOffsets) {
+                out.putLong(offset);
+            }
+            for (int index : firstAccount) {
+                out.putInt(index);
+            }
+            for (Client client : clients) {
+                out.putString(client.getName());
+            }
+            for (Client client : clients) {
+                out.putString(client.getCity());
+            }
+            for (List<Account> owned : accounts) {
+                for (Account account : owned) {
+                    out.putInt(account.getId());
+                }
+            }
+            for (List<Account> owned : accounts) {
+                for (Account account : owned) {
+                    out.put(account instanceof OverdraftAccount ? BankJournal.CHECKING : BankJournal.SAVING);
+                }
+            }
+            for (List<Account> owned : accounts) {
+                for (Account account : owned) {
+                    out.putLong(balanceOf.applyAsLong(account));
+                }
+            }
+            for (List<Account> owned : accounts) {
+                for (Account account : owned) {
+                    out.putLong(account instanceof OverdraftAccount checking
+                            ? checking.getOverdraftInMinorUnits() : 0);
+                }
+            }
+            out.flush();
+            channel.force(false);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return accountCount;
+    }
+
+    /**
+     * Restores the snapshot into the bank without notifying its registration listeners.
+     */
+    public static ClientImportResult load(Path file, Bank bank) throws IOException {
+        return bank.restoreClients(readClients(file));
+    }
+
+    // Clients with their accounts, rebuilt in parallel from the mapped columns
+    public static List<Client> readClients(Path file) throws IOException {
+        return read(file).clients;
+    }
+
+    static Contents read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < V1_HEADER_BYTES) {
+                throw new IOException("Not a bank snapshot: " + file);
+            }
+            ByteBuffer header = map(channel, 0, V1_HEADER_BYTES);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("Not a bank snapshot: " + file);
+            }
+            int version = header.getInt(4);
+            if (version != 1 && version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            int clientCount = header.getInt(8);
+            int accountCount = header.getInt(12);
+            long nameBytes = header.getLong(16);
+            long cityBytes = header.getLong(24);
+            long journalPosition = -1;
+            long journalEpoch = 0;
+            int headerBytes = V1_HEADER_BYTES;
+            if (version == VERSION) {
+                if (channel.size() < HEADER_BYTES) {
+                    throw new IOException("Truncated or corrupt snapshot: " + file);
+                }
+                ByteBuffer journal = map(channel, V1_HEADER_BYTES, HEADER_BYTES - V1_HEADER_BYTES);
+                journalPosition = journal.getLong(0);
+                journalEpoch = journal.getLong(8);
+                headerBytes = HEADER_BYTES;
+            }
+
+            // Each column is mapped separately, so only a single column is limited to 2GB
+            Columns columns = new Columns(channel, headerBytes);
+            ByteBuffer ids = columns.next(8L * clientCount);
+            ByteBuffer genders = columns.next(clientCount);
+            ByteBuffer flags = columns.next(clientCount);
+            ByteBuffer nameOffsets = columns.next(8L * (clientCount + 1));
+            ByteBuffer cityOffsets = columns.next(8L * (clientCount + 1));
+            ByteBuffer firstAccount = columns.next(4L * (clientCount + 1));
+            ByteBuffer names = columns.next(nameBytes);
+            ByteBuffer cities = columns.next(cityBytes);
+            ByteBuffer accountIds = columns.next(4L * accountCount);
+            ByteBuffer kinds = columns.next(accountCount);
+            ByteBuffer balances = columns.next(8L * accountCount);
+            ByteBuffer overdrafts = columns.next(8L * accountCount);
+            if (columns.offset != channel.size()) {
+                throw new IOException("Truncated or corrupt snapshot: " + file);
+            }
+
+            Gender[] genderValues = Gender.values();
+            Client[] clients = new Client[clientCount];
+            IntStream.range(0, clientCount).parallel().forEach(i -> {
+                byte gender = genders.get(i);
+                byte flag = flags.get(i);
+                String name = (flag & NULL_NAME) != 0 ? null : string(names, nameOffsets, i);
+                String city = (flag & NULL_CITY) != 0 ? null : string(cities, cityOffsets, i);
+                Client client = new Client(ids.getLong(8 * i), name, gender < 0 ? null : genderValues[gender], city);
+                for (int a = firstAccount.getInt(4 * i); a < firstAccount.getInt(4 * (i + 1)); a++) {
+                    int id = accountIds.getInt(4 * a);
+                    double balance = Money.toMajorUnits(balances.getLong(8 * a));
+                    client.addAccount(kinds.get(a) == BankJournal.CHECKING
+                            ? new CheckingAccount(id, balance, Money.toMajorUnits(overdrafts.getLong(8 * a)))
+                            : new SavingAccount(id, balance));
+                }
+                clients[i] = client;
+            });
+            return new Contents(Arrays.asList(clients), journalPosition, journalEpoch);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the bank every period until the returned future is cancelled. A failed
+     * snapshot is logged as an error and retried at the next period.
+     */
+    public static ScheduledFuture<?> schedule(ScheduledExecutorService scheduler, Bank bank, Path file,
+                                              long period, TimeUnit unit) {
+        return scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                write(bank, file);
+            } catch (IOException | RuntimeException e) {
+                Log.error("Bank snapshot to %s failed: %s", file, e);
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Like {@link #schedule(ScheduledExecutorService, Bank, Path, long, TimeUnit)}, writing each
+     * snapshot with the journal so the journal only keeps the records since the last one.
+     */
+    public static ScheduledFuture<?> schedule(ScheduledExecutorService scheduler, Bank bank, Path file,
+                                              BankJournal journal, long period, TimeUnit unit) {
+        return scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                write(bank, file, journal);
+            } catch (IOException | RuntimeException e) {
+                Log.error("Bank snapshot to %s failed: %s", file, e);
+            }
+        }, period, period, unit);
+    }
+
+    private static String string(ByteBuffer blob, ByteBuffer offsets, int index) {
+        long start = offsets.getLong(8 * index);
+        byte[] bytes = new byte[(int) (offsets.getLong(8 * (index + 1)) - start)];
+        blob.get((int) start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int utf8Length(String value) {
+        return value == null ? 0 : value.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long offset, long bytes) throws IOException {
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot column too large: " + bytes + " bytes");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, bytes);
+    }
+
+    static class Contents {
+        final List<Client> clients;
+        // Records of the journal the snapshot holds, -1 if it was written without one, and the epoch
+        // it shows, see Bank.getSnapshotEpoch()
+        final long journalPosition;
+        final long journalEpoch;
+
+        Contents(List<Client> clients, long journalPosition, long journalEpoch) {
+            this.clients = clients;
+            this.journalPosition = journalPosition;
+            this.journalEpoch = journalEpoch;
+        }
+    }
+
+    private static class Columns {
+        private final FileChannel channel;
+        private long offset;
+
+        Columns(FileChannel channel, long offset) {
+            this.channel = channel;
+            this.offset = offset;
+        }
+
+        ByteBuffer next(long bytes) throws IOException {
+            if (offset + bytes > channel.size()) {
+                throw new IOException("Truncated snapshot");
+            }
+            ByteBuffer column = map(channel, offset, bytes);
+            offset += bytes;
+            return column;
+        }
+    }
+
+    // Buffers column values and writes them to the channel in large chunks
+    private static class ColumnWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+
+        ColumnWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        ColumnWriter put(byte value) throws IOException {
+            ensure(1);
+            buffer.put(value);
+            return this;
+        }
+
+        ColumnWriter putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+            return this;
+        }
+
+        ColumnWriter putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+            return this;
+        }
+
+        void putString(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            int written = 0;
+            while (written < bytes.length) {
+                ensure(1);
+                int chunk = Math.min(buffer.remaining(), bytes.length - written);
+                buffer.put(bytes, written, chunk);
+                written += chunk;
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.luxoft.bankapp.service;
+
+import com.luxoft.bankapp.domain.Account;
+import com.luxoft.bankapp.domain.AccountSet;
+import com.luxoft.bankapp.domain.Bank;
+import com.luxoft.bankapp.domain.Client;
+import com.luxoft.bankapp.domain.Money;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streams per-account reports to an {@link Appendable} or a {@link WritableByteChannel} (as UTF-8).
+ * Lines are built in a buffer of about {@code chunkSize} characters that is handed to the target
+ * whenever it fills up, always at a line boundary, so memory use does not grow with the bank.
+ * Amounts are formatted with {@link Money#append}, without a {@link java.util.Formatter} per line.
+ */
+public class BankReportWriter {
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+
+    private final ReportFormat format;
+    private final int chunkSize;
+
+    public BankReportWriter(ReportFormat format) {
+        this(format, DEFAULT_CHUNK_SIZE);
+    }
+
+    public BankReportWriter(ReportFormat format, int chunkSize) {
+        if (format == null) {
+            throw new IllegalArgumentException("Format must not be null");
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.format = format;
+        this.chunkSize = chunkSize;
+    }
+
+    // Returns the number of accounts written
+    public long writeBalances(Bank bank, Appendable out) throws IOException {
+        return write(bank, new Chunks(chunkSize, out::append), Amount.BALANCE);
+    }
+
+    public long writeBalances(Bank bank, WritableByteChannel out) throws IOException {
+        return write(bank, new Chunks(chunkSize, new ChannelTarget(out, chunkSize)), Amount.BALANCE);
+    }
+
+    public long writeMaximumAmountsToWithdraw(Bank bank, Appendable out) throws IOException {
+        return write(bank, new Chunks(chunkSize, out::append), Amount.MAXIMUM_TO_WITHDRAW);
+    }
+
+    public long writeMaximumAmountsToWithdraw(Bank bank, WritableByteChannel out) throws IOException {
+        return write(bank, new Chunks(chunkSize, new ChannelTarget(out, chunkSize)), Amount.MAXIMUM_TO_WITHDRAW);
+    }
+
+    private long write(Bank bank, Chunks out, Amount amount) throws IOException {
+        StringBuilder line = out.buffer;
+        if (format == ReportFormat.CSV) {
+            line.append("client_id,client_name,account_id,").append(amount.field).append('\n');
+        }
+        long accounts = 0;
+        for (Client client : bank.getClients()) {
+            if (format == ReportFormat.TEXT) {
+                line.append("Client: ").append(client).append('\n');
+            }
+            AccountSet owned = client.getAccounts();
+            for (int i = 0; i < owned.size(); i++) {
+                Account account = owned.get(i);
+                long value = amount == Amount.BALANCE
+                        ? account.getBalanceInMinorUnits() : account.maximumAmountToWithdrawInMinorUnits();
+                switch (format) {
+                    case TEXT -> {
+                        if (amount == Amount.BALANCE) {
+                            line.append("Account ").append(account.getId()).append(" : ");
+                        } else {
+                            line.append("Account nr. ").append(i + 1).append(", maximum amount to withdraw: ");
+                        }
+                        Money.append(line, value).append('\n');
+                    }
+                    case CSV -> {
+                        line.append(client.getId()).append(',');
+                        appendCsv(line, client.getName());
+                        line.append(',').append(account.getId()).append(',');
+                        Money.append(line, value).append('\n');
+                    }
+                    case JSON_LINES -> {
+                        line.append("{\"clientId\":").append(client.getId()).append(",\"clientName\":");
+                        appendJson(line, client.getName());
+                        line.append(",\"accountId\":").append(account.getId())
+                                .append(",\"").append(amount.jsonField).append("\":");
+                        Money.append(line, value).append("}\n");
+                    }
+                }
+                accounts++;
+                out.endLine();
+            }
+            out.endLine();
+        }
+        out.finish();
+        return accounts;
+    }
+
+    private static void appendCsv(StringBuilder line, String value) {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+
+    private static void appendJson(StringBuilder line, String value) {
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        line.append("\\u00");
+                        line.append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        line.append(c);
+                    }
+                }
+            }
+        }
+        line.append('"');
+    }
+
+    private enum Amount {
+        BALANCE("balance", "balance"),
+        MAXIMUM_TO_WITHDRAW("maximum_amount_to_withdraw", "maximumAmountToWithdraw");
+
+        final String field;
+        final String jsonField;
+
+        Amount(String field, String jsonField) {
+            this.field = field;
+            this.jsonField = jsonField;
+        }
+    }
+
+    // The chunk is reused once write returns
+    private interface Target {
+        void write(StringBuilder chunk) throws IOException;
+    }
+
+    // Collects whole lines and passes them on once about chunkSize characters are buffered
+    private static class Chunks {
+        final StringBuilder buffer;
+        private final int chunkSize;
+        private final Target target;
+
+        Chunks(int chunkSize, Target target) {
+            this.buffer = new StringBuilder(chunkSize + 256);
+            this.chunkSize = chunkSize;
+            this.target = target;
+        }
+
+        void endLine() throws IOException {
+            if (buffer.length() >= chunkSize) {
+                target.write(buffer);
+                buffer.setLength(0);
+            }
+        }
+
+        void finish() throws IOException {
+            if (!buffer.isEmpty()) {
+                target.write(buffer);
+                buffer.setLength(0);
+            }
+        }
+    }
+
+    // Encodes chunks as UTF-8 through reused buffers
+    private static class ChannelTarget implements Target {
+        private final WritableByteChannel channel;
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        private final ByteBuffer bytes;
+        private char[] chars = new char[0];
+
+        ChannelTarget(WritableByteChannel channel, int chunkSize) {
+            this.channel = channel;
+            this.bytes = ByteBuffer.allocate(Math.max(chunkSize, 1024) * 3);
+        }
+
+        @Override
+        public void write(StringBuilder chunk) throws IOException {
+            if (chars.length < chunk.length()) {
+                chars = new char[chunk.length()];
+            }
+            // Array backed buffers take the encoder's fast path
+            chunk.getChars(0, chunk.length(), chars, 0);
+            CharBuffer input = CharBuffer.wrap(chars, 0, chunk.length());
+            encoder.reset();
+            while (true) {
+                CoderResult result = encoder.encode(input, bytes, true);
+                if (result.isError()) {
+                    result.throwException();
+                }
+                if (result.isUnderflow()) {
+                    break;
+                }
+                drain();
+            }
+            while (encoder.flush(bytes).isOverflow()) {
+                drain();
+            }
+            drain();
+        }
+
+        private void drain() throws IOException {
+            bytes.flip();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            bytes.clear();
+        }
+    }
+}
@@ -1,35 +1,40 @@
 package com.luxoft.bankapp.service;
 
-import com.luxoft.bankapp.domain.Account;
 import com.luxoft.bankapp.domain.Bank;
 import com.luxoft.bankapp.domain.Client;
+import com.luxoft.bankapp.domain.ClientImportResult;
 import com.luxoft.bankapp.exceptions.ClientExistsException;
+import com.luxoft.bankapp.log.Level;
+import com.luxoft.bankapp.log.Log;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
 
 public class BankService {
 	
 	public static void addClient(Bank bank, Client client) throws ClientExistsException {
         bank.addClient(client);
     }
+
+	public static ClientImportResult addClients(Bank bank, Collection<Client> clients) {
+        return bank.addClients(clients);
+    }
 	
 	public static void printMaximumAmountToWithdraw(Bank bank) {
-		System.out.format("%nPrint maximum amount to withdraw for all clients%n");
+		Log.info("");
+		Log.info("Print maximum amount to withdraw for all clients");
 		
-        StringBuilder result = new StringBuilder();
-        for (Client client: bank.getClients()) {
-            result.append("Client: ")
-                  .append(client)
-                  .append("\n");
-            int i = 1;
-            for (Account account: client.getAccounts()) {
-                result.append("Account nr. ")
-                      .append(i++)
-                      .append(", maximum amount to withdraw: ")
-                      .append(Math.round(account.maximumAmountToWithdraw() * 100) / 100d)
-                      .append("\n");
-            }
+        try {
+            printMaximumAmountToWithdraw(bank, Log.appender(Level.INFO), ReportFormat.TEXT);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-
-        System.out.println(result.toString());
     }
+
+	// Streams the report in chunks, so its size is not limited by the heap
+	public static long printMaximumAmountToWithdraw(Bank bank, Appendable out, ReportFormat format) throws IOException {
+		return new BankReportWriter(format).writeMaximumAmountsToWithdraw(bank, out);
+	}
 	
 }
@@ -1,31 +1,106 @@
 package com.luxoft.bankapp.service;
 
 import com.luxoft.bankapp.domain.Email;
+import com.luxoft.bankapp.log.Log;
+import com.luxoft.bankapp.metrics.BankMetrics;
+import com.luxoft.bankapp.metrics.LatencyHistogram;
+import com.luxoft.bankapp.metrics.MetricsRegistry;
 import com.luxoft.bankapp.utils.Queue;
 
-import java.util.LinkedList;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class EmailService {
+    public static final int DEFAULT_WORKERS = 4;
+    public static final int DEFAULT_BATCH_SIZE = 10;
+    public static final long DEFAULT_SHUTDOWN_TIMEOUT_MILLIS = 5_000;
+
+    // How often an idle worker checks whether the service is shutting down
+    private static final long IDLE_POLL_MILLIS = 50;
+
+    // Queues of the services not shut down yet; weak, so the registry never keeps a service alive
+    private static final Set<Queue<Email>> RUNNING = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+    // Shared by all services: the depth is summed over the running ones, sends of each are recorded
+    private static final LatencyHistogram SEND_LATENCY;
+
+    static {
+        MetricsRegistry registry = MetricsRegistry.getDefault();
+        registry.gauge(BankMetrics.EMAIL_QUEUE_DEPTH, EmailService::queuedEmails);
+        SEND_LATENCY = registry.histogram(BankMetrics.EMAIL_SEND_LATENCY);
+    }
+
     private final Queue<Email> queue;
+    private final EmailServiceMetrics metrics;
+    private final int batchSize;
 
-    private final Thread worker;
+    private final List<Thread> workers = new ArrayList<>();
+    // Set first: no more emails are accepted
     private volatile boolean closed = false;
+    // Set once the emails being added when the service closed are queued: workers may stop when idle
+    private volatile boolean stopping = false;
+    private final AtomicInteger adding = new AtomicInteger();
 
     public EmailService() {
-        this.queue = new Queue<>();
+        this(DEFAULT_WORKERS, DEFAULT_BATCH_SIZE, false);
+    }
+
+    public EmailService(int workerCount, int batchSize, boolean virtualThreads) {
+        this(workerCount, batchSize, virtualThreads, Queue.DEFAULT_CAPACITY);
+    }
+
+    public EmailService(int workerCount, int batchSize, boolean virtualThreads, int queueCapacity) {
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException("Worker count must be positive");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
 
-        this.worker = new Thread(() -> {
-            while (!Thread.currentThread().isInterrupted()) {
-                Email email = queue.poll();
-                if (email == null) {
+        this.queue = new Queue<>(queueCapacity);
+        this.metrics = new EmailServiceMetrics(queue);
+        this.batchSize = batchSize;
+
+        RUNNING.add(queue);
+
+        Thread.Builder builder = virtualThreads
+                ? Thread.ofVirtual().name("EmailService-Worker-", 0)
+                : Thread.ofPlatform().name("EmailService-Worker-", 0);
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(builder.start(this::runWorker));
+        }
+    }
+
+    private void runWorker() {
+        List<Email> batch = new ArrayList<>(batchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            Email email = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (email == null) {
+                // Once stopping, keep going until the backlog is drained
+                if (stopping && queue.isEmpty()) {
                     break;
                 }
-
-                emulateSend(email);
+                continue;
             }
-        }, "EmailService-Worker");
 
-        this.worker.start();
+            batch.add(email);
+            queue.drainTo(batch, batchSize - 1);
+
+            long start = System.nanoTime();
+            if (emulateSend(batch)) {
+                long nanos = System.nanoTime() - start;
+                metrics.recordSend(batch.size(), nanos);
+                SEND_LATENCY.record(nanos);
+            } else {
+                metrics.recordAbandoned(batch.size());
+            }
+            batch.clear();
+        }
     }
 
     public void sendNotificationEmail(Email email) {
@@ -33,29 +108,122 @@ public class EmailService {
             throw new IllegalArgumentException("Email must not be null");
         }
 
-        if (closed) {
-            throw new IllegalStateException("EmailService is closed");
+        adding.incrementAndGet();
+        try {
+            // Checked after announcing the add, so shutdown either sees this email coming or we see closed
+            if (closed) {
+                throw new IllegalStateException("EmailService is closed");
+            }
+            if (!queue.add(email)) {
+                // Interrupted while waiting for room in the queue
+                metrics.recordDropped(1);
+                Log.warn("Email to %s dropped", email.getTo());
+            }
+        } finally {
+            adding.decrementAndGet();
         }
+    }
 
-        queue.add(email);
+    public EmailServiceMetrics getMetrics() {
+        return metrics;
     }
 
-    private void emulateSend(Email email) {
-        System.out.println("Sending email to " + email.getTo());
+    // One round trip to the simulated transport per batch, false if interrupted before it completed
+    private boolean emulateSend(List<Email> emails) {
+        for (Email email : emails) {
+            Log.info("Sending email to %s", email.getTo());
+        }
         try {
             Thread.sleep(100);
+            return true;
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+            return false;
         }
     }
 
-    public void close() {
+    /**
+     * Stops accepting emails and lets all workers drain the backlog. Workers still busy when the
+     * timeout expires are interrupted, and whatever is left in the queue is abandoned, including
+     * emails still waiting for room in the queue then.
+     */
+    public EmailShutdownReport shutdown(long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
         closed = true;
-        worker.interrupt();
+        // Emails being added are in the queue before a worker may stop, so they are sent or counted as abandoned
+        while (adding.get() != 0 && deadline - System.nanoTime() > 0) {
+            Thread.yield();
+        }
+        stopping = true;
+
+        boolean drained = true;
         try {
-            worker.join();
+            for (Thread worker : workers) {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                if (!worker.join(Duration.ofNanos(remaining))) {
+                    drained = false;
+                }
+            }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+            drained = false;
+        }
+
+        if (!drained) {
+            for (Thread worker : workers) {
+                worker.interrupt();
+            }
+            for (Thread worker : workers) {
+                joinUninterruptibly(worker);
+            }
+        }
+
+        List<Email> leftover = new ArrayList<>();
+        // Makes room for the emails still being added, which only finish once they are in the queue
+        while (adding.get() != 0) {
+            queue.drainTo(leftover, Integer.MAX_VALUE);
+            Thread.yield();
+        }
+        queue.drainTo(leftover, Integer.MAX_VALUE);
+        metrics.recordAbandoned(leftover.size());
+
+        RUNNING.remove(queue);
+
+        return new EmailShutdownReport(metrics.getSentEmails(), metrics.getAbandonedEmails(), metrics.getDroppedEmails(),
+                drained && leftover.isEmpty());
+    }
+
+    // Stops immediately, abandoning the backlog
+    public EmailShutdownReport shutdownNow() {
+        return shutdown(0, TimeUnit.MILLISECONDS);
+    }
+
+    public void close() {
+        shutdown(DEFAULT_SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private static long queuedEmails() {
+        long queued = 0;
+        synchronized (RUNNING) {
+            for (Queue<Email> queue : RUNNING) {
+                queued += queue.size();
+            }
+        }
+        return queued;
+    }
+
+    private static void joinUninterruptibly(Thread thread) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                thread.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
         }
     }
 }
@@ -0,0 +1,81 @@
+package com.luxoft.bankapp.service;
+
+import com.luxoft.bankapp.metrics.LatencyHistogram;
+import com.luxoft.bankapp.utils.Queue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class EmailServiceMetrics {
+    private final Queue<?> queue;
+    private final long startNanos = System.nanoTime();
+
+    private final LongAdder sentEmails = new LongAdder();
+    private final LongAdder sendCalls = new LongAdder();
+    private final LongAdder sendNanos = new LongAdder();
+    private final LongAdder abandonedEmails = new LongAdder();
+    private final LongAdder droppedEmails = new LongAdder();
+    private final LatencyHistogram sendLatency = new LatencyHistogram();
+
+    EmailServiceMetrics(Queue<?> queue) {
+        this.queue = queue;
+    }
+
+    void recordSend(int emails, long nanos) {
+        sentEmails.add(emails);
+        sendCalls.increment();
+        sendNanos.add(nanos);
+        sendLatency.record(nanos);
+    }
+
+    void recordAbandoned(int emails) {
+        abandonedEmails.add(emails);
+    }
+
+    void recordDropped(int emails) {
+        droppedEmails.add(emails);
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getSentEmails() {
+        return sentEmails.sum();
+    }
+
+    public long getSendCalls() {
+        return sendCalls.sum();
+    }
+
+    public long getAbandonedEmails() {
+        return abandonedEmails.sum();
+    }
+
+    // Never queued, because the sender was interrupted while waiting for room
+    public long getDroppedEmails() {
+        return droppedEmails.sum();
+    }
+
+    public double getAverageSendLatencyMillis() {
+        long calls = sendCalls.sum();
+        return calls == 0 ? 0 : sendNanos.sum() / (double) calls / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    // Latency of each send call, that is of a whole batch
+    public LatencyHistogram getSendLatency() {
+        return sendLatency;
+    }
+
+    public double getThroughputPerSecond() {
+        double seconds = (System.nanoTime() - startNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+        return seconds == 0 ? 0 : sentEmails.sum() / seconds;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("queue depth: %d, sent: %d in %d calls, abandoned: %d, dropped: %d, avg send latency: %.2f ms, throughput: %.2f emails/s",
+                getQueueDepth(), getSentEmails(), getSendCalls(), getAbandonedEmails(), getDroppedEmails(),
+                getAverageSendLatencyMillis(), getThroughputPerSecond());
+    }
+}
@@ -0,0 +1,37 @@
+package com.luxoft.bankapp.service;
+
+public class EmailShutdownReport {
+    private final long sentEmails;
+    private final long abandonedEmails;
+    private final long droppedEmails;
+    private final boolean drained;
+
+    EmailShutdownReport(long sentEmails, long abandonedEmails, long droppedEmails, boolean drained) {
+        this.sentEmails = sentEmails;
+        this.abandonedEmails = abandonedEmails;
+        this.droppedEmails = droppedEmails;
+        this.drained = drained;
+    }
+
+    public long getSentEmails() {
+        return sentEmails;
+    }
+
+    public long getAbandonedEmails() {
+        return abandonedEmails;
+    }
+
+    public long getDroppedEmails() {
+        return droppedEmails;
+    }
+
+    // true if the backlog was fully sent before the deadline
+    public boolean isDrained() {
+        return drained;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("sent: %d, abandoned: %d, dropped: %d, drained: %b", sentEmails, abandonedEmails, droppedEmails, drained);
+    }
+}
@@ -0,0 +1,10 @@
+package com.luxoft.bankapp.service;
+
+public enum ReportFormat {
+    // The human readable layout printed by the application
+    TEXT,
+    // RFC 4180 with a header row
+    CSV,
+    // One JSON object per account and line
+    JSON_LINES
+}
@@ -0,0 +1,42 @@
+package com.luxoft.bankapp.service;
+
+import com.luxoft.bankapp.domain.Account;
+import com.luxoft.bankapp.domain.Epochs;
+import com.luxoft.bankapp.exceptions.NotEnoughFundsException;
+
+public class TransferService {
+
+    /**
+     * Moves {@code amount} from one account to another.
+     * <p>
+     * The withdrawal is the only step that can be declined, and it checks the limit
+     * (including a checking account's overdraft) atomically with the debit, so a failed
+     * transfer leaves both accounts untouched. No locks are taken: transfers touching
+     * disjoint accounts never contend, and opposite transfers between the same pair
+     * cannot deadlock. Both steps run in one write section, so a bank snapshot holds
+     * either the whole transfer or none of it; the bank's change listeners hear about
+     * both once the section has closed.
+     */
+    public static void transfer(Account from, Account to, double amount) throws NotEnoughFundsException {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Accounts must not be null");
+        }
+        if (from == to) {
+            throw new IllegalArgumentException("Cannot transfer to the same account");
+        }
+        if (amount < 0) {
+            throw new IllegalArgumentException("Cannot transfer a negative amount");
+        }
+
+        try (Epochs.Section _ = Epochs.enter()) {
+            from.withdraw(amount);
+            try {
+                to.deposit(amount);
+            } catch (RuntimeException e) {
+                // Give the money back so the transfer stays all-or-nothing
+                from.deposit(amount);
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.luxoft.bankapp.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.luxoft.bankapp.domain.Account;
+import com.luxoft.bankapp.domain.AccountSet;
+import com.luxoft.bankapp.domain.CheckingAccount;
+import com.luxoft.bankapp.domain.Client;
+import com.luxoft.bankapp.domain.Gender;
+import com.luxoft.bankapp.domain.SavingAccount;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+public class AccountSetTest {
+
+    @Test
+    public void testLookupByIdBeforeAndAfterHashing() {
+        Client client = new Client("Smith John", Gender.MALE);
+        List<Account> added = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Account account = i % 2 == 0 ? new SavingAccount(i * 1_000, i) : new CheckingAccount(i * 1_000, i, 10.0);
+            added.add(account);
+            client.addAccount(account);
+
+            for (Account previous : added) {
+                assertSame(previous, client.getAccount(previous.getId()));
+            }
+            assertNull(client.getAccount(-1));
+        }
+
+        AccountSet accounts = client.getAccounts();
+        assertEquals(40, accounts.size());
+        assertEquals(added, new ArrayList<>(accounts));
+        for (int i = 0; i < accounts.size(); i++) {
+            assertSame(added.get(i), accounts.get(i));
+        }
+        assertTrue(accounts.contains(added.get(17)));
+        assertFalse(accounts.contains(new SavingAccount(17_000, 0)));
+    }
+
+    @Test
+    public void testDuplicateIdIsRejected() {
+        Client client = new Client("Smith John", Gender.MALE);
+        SavingAccount first = new SavingAccount(1, 10.0);
+        client.addAccount(first);
+        client.addAccount(first);
+        try {
+            client.addAccount(new CheckingAccount(1, 20.0, 5.0));
+            fail("Duplicate account id accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+
+        assertEquals(1, client.getAccounts().size());
+        assertSame(first, client.getAccount(1));
+    }
+
+    @Test
+    public void testIterationKeepsItsSizeWhileAccountsAreAdded() {
+        Client client = new Client("Smith John", Gender.MALE);
+        for (int i = 0; i < 10; i++) {
+            client.addAccount(new SavingAccount(i, i));
+        }
+        Iterator<Account> before = client.getAccounts().iterator();
+        Object[] array = client.getAccounts().toArray();
+        for (int i = 10; i < 1_000; i++) {
+            client.addAccount(new SavingAccount(i, i));
+        }
+
+        int seen = 0;
+        while (before.hasNext()) {
+            assertEquals(seen++, before.next().getId());
+        }
+        assertEquals(10, seen);
+        assertEquals(10, array.length);
+        assertEquals(1_000, client.getAccounts().size());
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(i, client.getAccount(i).getId());
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testReadOnly() {
+        Client client = new Client("Smith John", Gender.MALE);
+        client.getAccounts().add(new SavingAccount(1, 10.0));
+    }
+}
@@ -0,0 +1,102 @@
+package com.luxoft.bankapp.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.luxoft.bankapp.domain.Account;
+import com.luxoft.bankapp.domain.Bank;
+import com.luxoft.bankapp.domain.BankReport;
+import com.luxoft.bankapp.domain.BankReportInterface;
+import com.luxoft.bankapp.domain.BankReportStreams;
+import com.luxoft.bankapp.domain.CheckingAccount;
+import com.luxoft.bankapp.domain.Client;
+import com.luxoft.bankapp.domain.Gender;
+import com.luxoft.bankapp.domain.SavingAccount;
+import com.luxoft.bankapp.exceptions.ClientExistsException;
+import com.luxoft.bankapp.exceptions.NotEnoughFundsException;
+import com.luxoft.bankapp.service.BankService;
+import com.luxoft.bankapp.service.EmailService;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BalanceIndexTest {
+
+    private final BankReportInterface report = new BankReport();
+    private Bank bank;
+    private SavingAccount saving;
+    private CheckingAccount checking;
+
+    @Before
+    public void setUp() throws ClientExistsException {
+        bank = new Bank(new EmailService());
+
+        Client client1 = new Client("Smith John", Gender.MALE);
+        client1.addAccount(new SavingAccount(1, 100.0));
+        client1.addAccount(new SavingAccount(2, 100.0));
+        checking = new CheckingAccount(3, -20.0, 50.0);
+        client1.addAccount(checking);
+        BankService.addClient(bank, client1);
+
+        Client client2 = new Client("Smith Michelle", Gender.FEMALE);
+        saving = new SavingAccount(4, 500.0);
+        client2.addAccount(saving);
+        client2.addAccount(new SavingAccount(5, 0.0));
+        BankService.addClient(bank, client2);
+    }
+
+    @Test
+    public void testEqualBalancesAreNotDropped() {
+        assertEquals(5, new BankReport().getAccountsSortedBySum(bank).size());
+        assertEquals(5, new BankReportStreams().getAccountsSortedBySum(bank).size());
+    }
+
+    @Test
+    public void testScanWithoutIndex() {
+        assertNull(bank.getBalanceIndex());
+        assertQueries();
+    }
+
+    @Test
+    public void testIndexFollowsBalanceChanges() throws NotEnoughFundsException, ClientExistsException {
+        bank.enableBalanceIndex();
+        assertQueries();
+
+        saving.withdraw(499.0);
+        checking.deposit(1020.0);
+        assertEquals(List.of(3, 2), ids(report.getTopAccountsByBalance(bank, 2)));
+        assertEquals(List.of(5, 4), ids(report.getBottomAccountsByBalance(bank, 2)));
+        assertEquals(List.of(4, 1, 2), ids(report.getAccountsInBalanceRange(bank, 1.0, 100.0)));
+
+        Client client3 = new Client("Smith Anna", Gender.FEMALE);
+        // added after the index was enabled
+        client3.addAccount(new SavingAccount(6, 5000.0));
+        BankService.addClient(bank, client3);
+        assertEquals(List.of(6), ids(report.getTopAccountsByBalance(bank, 1)));
+        assertEquals(6, bank.getBalanceIndex().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeKIsRejected() {
+        report.getTopAccountsByBalance(bank, -1);
+    }
+
+    private void assertQueries() {
+        assertEquals(List.of(4, 2, 1), ids(report.getTopAccountsByBalance(bank, 3)));
+        assertEquals(List.of(3, 5), ids(report.getBottomAccountsByBalance(bank, 2)));
+        assertEquals(5, report.getTopAccountsByBalance(bank, 10).size());
+        assertEquals(0, report.getTopAccountsByBalance(bank, 0).size());
+        assertEquals(List.of(5, 1, 2), ids(report.getAccountsInBalanceRange(bank, 0.0, 100.0)));
+        assertEquals(0, report.getAccountsInBalanceRange(bank, 10.0, 5.0).size());
+    }
+
+    private static List<Integer> ids(List<Account> accounts) {
+        List<Integer> ids = new ArrayList<>();
+        for (Account account : accounts) {
+            ids.add(account.getId());
+        }
+        return ids;
+    }
+}
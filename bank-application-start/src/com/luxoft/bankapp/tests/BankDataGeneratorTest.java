@@ -0,0 +1,106 @@
+package com.luxoft.bankapp.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.luxoft.bankapp.domain.Account;
+import com.luxoft.bankapp.domain.Bank;
+import com.luxoft.bankapp.domain.CheckingAccount;
+import com.luxoft.bankapp.domain.Client;
+import com.luxoft.bankapp.service.EmailService;
+import com.luxoft.bankapp.utils.BankDataGenerator;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class BankDataGeneratorTest {
+
+    @Test
+    public void testSameSeedSameData() {
+        List<String> first = describe(new BankDataGenerator(7).clients(2_000).collect(Collectors.toList()));
+        List<String> sequential = describe(new BankDataGenerator(7).clients(2_000).collect(Collectors.toList()));
+        List<String> parallel = describe(new BankDataGenerator(7).clientList(2_000));
+
+        assertEquals(first, sequential);
+        assertEquals(first, parallel);
+        assertNotEquals(first, describe(new BankDataGenerator(8).clientList(2_000)));
+    }
+
+    @Test
+    public void testDistributions() {
+        BankDataGenerator generator = new BankDataGenerator(1)
+                .withAccountsPerClient(2, 4)
+                .withBalanceRange(100, 200)
+                .withCheckingShare(1)
+                .withOverdrawnShare(0.25)
+                .withOverdraft(50)
+                .withFemaleShare(0)
+                .withCities("Cluj");
+
+        Set<Integer> accountIds = new HashSet<>();
+        int overdrawn = 0;
+        int accounts = 0;
+        for (Client client : generator.clientList(10_000)) {
+            assertEquals("Cluj", client.getCity());
+            assertEquals("Mr.", client.getGender().getGreeting());
+            int count = client.getAccounts().size();
+            assertTrue(count >= 2 && count <= 4);
+            for (Account account : client.getAccounts()) {
+                assertTrue(accountIds.add(account.getId()));
+                assertTrue(account instanceof CheckingAccount);
+                double balance = account.getBalance();
+                if (balance < 0) {
+                    overdrawn++;
+                    assertTrue(balance >= -50);
+                } else {
+                    assertTrue(balance >= 100 && balance <= 200);
+                }
+                accounts++;
+            }
+        }
+        assertEquals(0.25, overdrawn / (double) accounts, 0.02);
+    }
+
+    @Test
+    public void testPopulate() {
+        Bank bank = new Bank(new EmailService());
+        BankDataGenerator generator = new BankDataGenerator(3);
+
+        assertEquals(100_000, generator.populate(bank, 100_000));
+        assertEquals(100_000, bank.getClients().size());
+        assertEquals(generator.client(41_999).getName(), bank.getClient(42_000).getName());
+    }
+
+    @Test
+    public void testGeneratorsWithSeparateIds() {
+        Bank bank = new Bank(new EmailService());
+        BankDataGenerator first = new BankDataGenerator(3);
+        BankDataGenerator second = new BankDataGenerator(4).withFirstClientId(1_001);
+
+        assertEquals(1_000, first.populate(bank, 1_000));
+        assertEquals(500, second.populate(bank, 500));
+        assertEquals(1_500, bank.getClients().size());
+        assertEquals(second.client(0).getName(), bank.getClient(1_001).getName());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPopulateRejectsExistingIds() {
+        Bank bank = new Bank(new EmailService());
+        new BankDataGenerator(3).populate(bank, 10);
+        new BankDataGenerator(4).populate(bank, 10);
+    }
+
+    private static List<String> describe(List<Client> clients) {
+        return clients.stream()
+                .map(client -> client.getId() + client.getName() + client.getGender() + client.getCity()
+                        + client.getAccounts().stream()
+                                .sorted((a, b) -> Integer.compare(a.getId(), b.getId()))
+                                .map(account -> account.getClass().getSimpleName() + account.getId() + ":" + account.getBalance())
+                                .collect(Collectors.joining(",")))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,91 @@
+package com.luxoft.bankapp.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.luxoft.bankapp.domain.Bank;
+import com.luxoft.bankapp.domain.Client;
+import com.luxoft.bankapp.domain.ClientImportResult;
+import com.luxoft.bankapp.domain.Gender;
+import com.luxoft.bankapp.domain.SavingAccount;
+import com.luxoft.bankapp.exceptions.ClientExistsException;
+import com.luxoft.bankapp.service.BankService;
+import com.luxoft.bankapp.service.EmailService;
+import com.luxoft.bankapp.utils.ClientRegistrationListener;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class BankImportTest {
+
+    @Test
+    public void testAddClientsCollectsConflicts() throws ClientExistsException {
+        Bank bank = new Bank(new EmailService());
+        Client existing = newClient("Smith John", 1);
+        BankService.addClient(bank, existing);
+
+        Client client2 = newClient("Smith Michelle", 2);
+        Client client3 = newClient("Doe Jane", 3);
+        ClientImportResult result = BankService.addClients(bank, List.of(client2, existing, client3, client2));
+
+        assertEquals(2, result.getAddedClients());
+        assertEquals(List.of(existing, client2), result.getConflicts());
+        assertEquals(3, bank.getClients().size());
+        assertEquals(3, bank.getPrintedClients());
+        assertEquals(3, bank.getEmailedClients());
+        assertEquals(3, bank.getDebuggedClients());
+    }
+
+    @Test(expected = ClientExistsException.class)
+    public void testThrowIfConflicts() throws ClientExistsException {
+        Bank bank = new Bank(new EmailService());
+        Client client = newClient("Smith John", 1);
+        bank.addClients(List.of(client, client)).throwIfConflicts();
+    }
+
+    @Test
+    public void testListenersNotifiedOncePerBatch() {
+        Bank bank = new Bank(new EmailService());
+        List<Integer> batches = new ArrayList<>();
+        bank.addListener(new ClientRegistrationListener() {
+            @Override
+            public void onClientAdded(Client client) {
+                batches.add(1);
+            }
+
+            @Override
+            public void onClientsAdded(Collection<Client> clients) {
+                batches.add(clients.size());
+            }
+        });
+
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            clients.add(newClient("Client " + i, i));
+        }
+        ClientImportResult result = bank.importClients(clients.iterator(), 10);
+
+        assertEquals(25, result.getAddedClients());
+        assertFalse(result.hasConflicts());
+        assertEquals(List.of(10, 10, 5), batches);
+    }
+
+    @Test
+    public void testEmptyImportDoesNotNotify() {
+        Bank bank = new Bank(new EmailService());
+        ClientImportResult result = bank.addClients(List.of());
+
+        assertEquals(0, result.getAddedClients());
+        assertEquals(0, bank.getPrintedClients());
+        assertTrue(result.getConflicts().isEmpty());
+    }
+
+    private static Client newClient(String name, int accountId) {
+        Client client = new Client(name, Gender.MALE);
+        client.addAccount(new SavingAccount(accountId, 100.0));
+        return client;
+    }
+}
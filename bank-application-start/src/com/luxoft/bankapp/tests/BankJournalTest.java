@@ -0,0 +1,252 @@
+package com.luxoft.bankapp.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.luxoft.bankapp.domain.Account;
+import com.luxoft.bankapp.domain.Bank;
+import com.luxoft.bankapp.domain.CheckingAccount;
+import com.luxoft.bankapp.domain.Client;
+import com.luxoft.bankapp.domain.Gender;
+import com.luxoft.bankapp.domain.SavingAccount;
+import com.luxoft.bankapp.exceptions.ClientExistsException;
+import com.luxoft.bankapp.exceptions.NotEnoughFundsException;
+import com.luxoft.bankapp.persistence.BankJournal;
+import com.luxoft.bankapp.service.BankService;
+import com.luxoft.bankapp.service.EmailService;
+import com.luxoft.bankapp.utils.BankChangeListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+public class BankJournalTest {
+
+    private Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = Files.createTempFile("bank", ".journal");
+        Files.delete(file);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testReplayRebuildsClientsAccountsAndBalances() throws Exception {
+        Bank bank = new Bank(new EmailService());
+        BankJournal journal = BankJournal.open(file, bank);
+        Client client = new Client("Smith John", Gender.MALE, "New York");
+        SavingAccount saving = new SavingAccount(1, 100.0);
+        client.addAccount(saving);
+        BankService.addClient(bank, client);
+        CheckingAccount checking = new CheckingAccount(2, 10.0, 50.0);
+        // added after registration
+        client.addAccount(checking);
+        saving.deposit(0.55);
+        saving.withdraw(20.0);
+        checking.withdraw(40.25);
+        BankService.addClient(bank, new Client("Smith Michelle", Gender.FEMALE));
+        bank.removeChangeListener(journal);
+        journal.close();
+
+        Bank restored = new Bank(new EmailService());
+        BankJournal reopened = BankJournal.open(file, restored);
+        assertEquals(2, restored.getClients().size());
+        // restoring does not notify registration listeners again
+        assertEquals(0, restored.getPrintedClients());
+        Client john = restored.getClient(client.getId());
+        assertEquals("Smith John", john.getName());
+        assertEquals(Gender.MALE, john.getGender());
+        assertEquals("New York", john.getCity());
+        assertEquals(80.55, find(john, 1).getBalance(), 0);
+        CheckingAccount restoredChecking = (CheckingAccount) find(john, 2);
+        assertEquals(-30.25, restoredChecking.getBalance(), 0);
+        assertEquals(50.0, restoredChecking.getOverdraft(), 0);
+        assertEquals(30.25, restored.getStatistics().getBankCreditSum(), 0.001);
+
+        // the reopened journal keeps appending after the replayed records
+        find(john, 1).deposit(1.0);
+        restored.removeChangeListener(reopened);
+        reopened.close();
+        assertEquals(81.55, find(restoredClient(client.getId()), 1).getBalance(), 0);
+    }
+
+    @Test
+    public void testTornTailIsIgnoredAndOverwritten() throws Exception {
+        Bank bank = new Bank(new EmailService());
+        BankJournal journal = BankJournal.open(file, bank);
+        Client client = new Client("Smith John", Gender.MALE);
+        client.addAccount(new SavingAccount(1, 100.0));
+        BankService.addClient(bank, client);
+        bank.removeChangeListener(journal);
+        journal.close();
+
+        long intact = Files.size(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            // header of a record whose payload never made it to disk
+            channel.write(ByteBuffer.allocate(8).putInt(0, 13).putInt(4, 42));
+        }
+
+        Bank restored = new Bank(new EmailService());
+        journal = BankJournal.open(file, restored);
+        assertEquals(intact, Files.size(file));
+        ((SavingAccount) find(restored.getClient(client.getId()), 1)).deposit(5.0);
+        restored.removeChangeListener(journal);
+        journal.close();
+
+        assertEquals(105.0, find(restoredClient(client.getId()), 1).getBalance(), 0);
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnknownGenderIsAJournalError() throws Exception {
+        Bank bank = new Bank(new EmailService());
+        BankJournal journal = BankJournal.open(file, bank);
+        BankService.addClient(bank, new Client("Smith John", Gender.MALE));
+        bank.removeChangeListener(journal);
+        journal.close();
+
+        // The first record follows the 16 byte file header; its payload is type, epoch, client id, gender
+        ByteBuffer journalBytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        int payloadLength = journalBytes.getInt(16);
+        journalBytes.put(24 + 1 + 8 + 8, (byte) 42);
+        CRC32C crc = new CRC32C();
+        crc.update(journalBytes.slice(24, payloadLength));
+        journalBytes.putInt(20, (int) crc.getValue());
+        Files.write(file, journalBytes.array());
+
+        BankJournal.readClients(file);
+    }
+
+    @Test
+    public void testConcurrentWritersShareSyncs() throws Exception {
+        Bank bank = new Bank(new EmailService());
+        BankJournal journal = BankJournal.open(file, bank);
+        Client client = new Client("Smith John", Gender.MALE);
+        List<SavingAccount> accounts = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            SavingAccount account = new SavingAccount(i, 0);
+            accounts.add(account);
+            client.addAccount(account);
+        }
+        BankService.addClient(bank, client);
+
+        List<Thread> threads = new ArrayList<>();
+        for (SavingAccount account : accounts) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 50; i++) {
+                    account.deposit(1.0);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        bank.removeChangeListener(journal);
+        journal.close();
+
+        assertEquals(1 + 8 + 8 * 50, journal.getRecordCount());
+        assertTrue(journal.getSyncCount() <= journal.getRecordCount());
+        for (Client restored : BankJournal.readClients(file)) {
+            for (Account account : restored.getAccounts()) {
+                assertEquals(50.0, account.getBalance(), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testAccountIdsAreScopedByClient() throws Exception {
+        Bank bank = new Bank(new EmailService());
+        BankJournal journal = BankJournal.open(file, bank);
+        Client john = new Client("Smith John", Gender.MALE);
+        john.addAccount(new SavingAccount(1, 10.0));
+        Client michelle = new Client("Smith Michelle", Gender.FEMALE);
+        michelle.addAccount(new SavingAccount(1, 20.0));
+        BankService.addClient(bank, john);
+        BankService.addClient(bank, michelle);
+        ((SavingAccount) find(michelle, 1)).deposit(5.0);
+        journal.close();
+
+        assertEquals(10.0, find(restoredClient(john.getId()), 1).getBalance(), 0);
+        assertEquals(25.0, find(restoredClient(michelle.getId()), 1).getBalance(), 0);
+    }
+
+    @Test
+    public void testOpeningOnPopulatedBankJournalsItsClients() throws Exception {
+        Bank bank = new Bank(new EmailService());
+        Client client = new Client("Smith John", Gender.MALE);
+        client.addAccount(new SavingAccount(1, 100.0));
+        BankService.addClient(bank, client);
+        BankJournal journal = BankJournal.open(file, bank);
+        ((SavingAccount) find(client, 1)).deposit(5.0);
+        journal.close();
+
+        assertEquals(105.0, find(restoredClient(client.getId()), 1).getBalance(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReplayIntoPopulatedBankIsRejected() throws Exception {
+        Bank bank = new Bank(new EmailService());
+        BankJournal.open(file, bank).close();
+        BankService.addClient(bank, new Client("Smith John", Gender.MALE));
+        BankJournal journal = BankJournal.open(file, bank);
+        journal.close();
+
+        BankJournal.open(file, bank);
+    }
+
+    @Test
+    public void testChangesAfterCloseAreNotJournaled() throws Exception {
+        Bank bank = new Bank(new EmailService());
+        BankJournal journal = BankJournal.open(file, bank);
+        Client client = new Client("Smith John", Gender.MALE);
+        client.addAccount(new SavingAccount(1, 100.0));
+        BankService.addClient(bank, client);
+        // registered a second time, so it stays registered after closing
+        bank.addChangeListener(journal);
+        AtomicLong laterChanges = new AtomicLong();
+        bank.addChangeListener(new BankChangeListener() {
+            @Override
+            public void onBalanceChanged(Account account, long oldBalance, long newBalance) {
+                laterChanges.incrementAndGet();
+            }
+        });
+        journal.close();
+        ((SavingAccount) find(client, 1)).deposit(5.0);
+
+        assertEquals(1, laterChanges.get());
+        assertEquals(105.0, bank.getStatistics().getTotalSumInAccounts(), 0.001);
+        assertEquals(100.0, find(restoredClient(client.getId()), 1).getBalance(), 0);
+    }
+
+    private Client restoredClient(long id) throws Exception {
+        for (Client client : BankJournal.readClients(file)) {
+            if (client.getId() == id) {
+                return client;
+            }
+        }
+        throw new AssertionError("No client " + id);
+    }
+
+    private static Account find(Client client, int accountId) {
+        for (Account account : client.getAccounts()) {
+            if (account.getId() == accountId) {
+                return account;
+            }
+        }
+        throw new AssertionError("No account " + accountId);
+    }
+}
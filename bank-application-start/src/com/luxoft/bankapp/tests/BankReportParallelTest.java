@@ -0,0 +1,76 @@
+package com.luxoft.bankapp.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import com.luxoft.bankapp.domain.*;
+import com.luxoft.bankapp.service.EmailService;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+public class BankReportParallelTest {
+
+    private static final String[] CITIES = {"New York", "Los Angeles", "Chicago"};
+
+    private final BankReportInterface sequential = new BankReportStreams();
+    // Threshold 0 forces the parallel path even for a small bank
+    private final BankReportInterface parallel = new BankReportParallel(0, new ForkJoinPool(4));
+    private Bank bank;
+
+    @Before
+    public void setUp() {
+        bank = new Bank(new EmailService());
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Client client = new Client("Client " + i, i % 2 == 0 ? Gender.MALE : Gender.FEMALE, CITIES[i % CITIES.length]);
+            client.addAccount(new SavingAccount(i * 2, 100.0 + i));
+            client.addAccount(new CheckingAccount(i * 2 + 1, 50.0 - i * 0.37, 500.0));
+            clients.add(client);
+        }
+        bank.addClients(clients);
+    }
+
+    @Test
+    public void testTotalsMatchSequential() {
+        assertEquals(sequential.getNumberOfClients(bank), parallel.getNumberOfClients(bank));
+        assertEquals(sequential.getNumberOfAccounts(bank), parallel.getNumberOfAccounts(bank));
+        assertEquals(sequential.getTotalSumInAccounts(bank), parallel.getTotalSumInAccounts(bank), 0.001);
+        assertEquals(sequential.getBankCreditSum(bank), parallel.getBankCreditSum(bank), 0.001);
+    }
+
+    @Test
+    public void testSortedReportsMatchSequential() {
+        assertEquals(new ArrayList<>(sequential.getClientsSorted(bank)), new ArrayList<>(parallel.getClientsSorted(bank)));
+        assertEquals(new ArrayList<>(sequential.getAccountsSortedBySum(bank)), new ArrayList<>(parallel.getAccountsSortedBySum(bank)));
+    }
+
+    @Test
+    public void testEqualAccountsMatchSequential() {
+        // Same id and balance as an account of another client
+        Client client = new Client("Twin", Gender.MALE);
+        client.addAccount(new SavingAccount(0, 100.0));
+        bank.addClients(List.of(client));
+
+        assertEquals(new ArrayList<>(sequential.getAccountsSortedBySum(bank)), new ArrayList<>(parallel.getAccountsSortedBySum(bank)));
+    }
+
+    @Test
+    public void testGroupingsMatchSequential() {
+        Map<Client, Collection<Account>> expectedAccounts = sequential.getCustomerAccounts(bank);
+        Map<Client, Collection<Account>> actualAccounts = parallel.getCustomerAccounts(bank);
+        assertEquals(expectedAccounts.keySet(), actualAccounts.keySet());
+
+        Map<String, List<Client>> expectedCities = sequential.getClientsByCity(bank);
+        Map<String, List<Client>> actualCities = parallel.getClientsByCity(bank);
+        assertEquals(new ArrayList<>(expectedCities.keySet()), new ArrayList<>(actualCities.keySet()));
+        for (String city : expectedCities.keySet()) {
+            assertEquals(new HashSet<>(expectedCities.get(city)), new HashSet<>(actualCities.get(city)));
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.luxoft.bankapp.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.luxoft.bankapp.domain.Bank;
+import com.luxoft.bankapp.domain.CheckingAccount;
+import com.luxoft.bankapp.domain.Client;
+import com.luxoft.bankapp.domain.Gender;
+import com.luxoft.bankapp.domain.SavingAccount;
+import com.luxoft.bankapp.exceptions.ClientExistsException;
+import com.luxoft.bankapp.service.BankReportWriter;
+import com.luxoft.bankapp.service.BankService;
+import com.luxoft.bankapp.service.EmailService;
+import com.luxoft.bankapp.service.ReportFormat;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BankReportWriterTest {
+    private EmailService emailService;
+    private Bank bank;
+
+    @Before
+    public void setUp() throws ClientExistsException {
+        emailService = new EmailService();
+        bank = new Bank(emailService);
+        Client client = new Client(7, "Zoë \"Z\", Jr.", Gender.FEMALE);
+        client.addAccount(new SavingAccount(1, 100.5));
+        client.addAccount(new CheckingAccount(2, -0.05, 20));
+        bank.addClient(client);
+    }
+
+    @After
+    public void tearDown() {
+        emailService.shutdownNow();
+    }
+
+    @Test
+    public void testText() throws IOException {
+        StringBuilder out = new StringBuilder();
+        assertEquals(2, new BankReportWriter(ReportFormat.TEXT).writeBalances(bank, out));
+        assertEquals("Client: Ms. Zoë \"Z\", Jr.\nAccount 1 : 100.50\nAccount 2 : -0.05\n", out.toString());
+
+        out.setLength(0);
+        BankService.printMaximumAmountToWithdraw(bank, out, ReportFormat.TEXT);
+        assertEquals("Client: Ms. Zoë \"Z\", Jr.\n"
+                + "Account nr. 1, maximum amount to withdraw: 100.50\n"
+                + "Account nr. 2, maximum amount to withdraw: 19.95\n", out.toString());
+    }
+
+    @Test
+    public void testCsv() throws IOException {
+        StringBuilder out = new StringBuilder();
+        new BankReportWriter(ReportFormat.CSV).writeBalances(bank, out);
+        assertEquals("client_id,client_name,account_id,balance\n"
+                + "7,\"Zoë \"\"Z\"\", Jr.\",1,100.50\n"
+                + "7,\"Zoë \"\"Z\"\", Jr.\",2,-0.05\n", out.toString());
+    }
+
+    @Test
+    public void testJsonLines() throws IOException {
+        StringBuilder out = new StringBuilder();
+        new BankReportWriter(ReportFormat.JSON_LINES).writeMaximumAmountsToWithdraw(bank, out);
+        assertEquals("{\"clientId\":7,\"clientName\":\"Zoë \\\"Z\\\", Jr.\",\"accountId\":1,\"maximumAmountToWithdraw\":100.50}\n"
+                + "{\"clientId\":7,\"clientName\":\"Zoë \\\"Z\\\", Jr.\",\"accountId\":2,\"maximumAmountToWithdraw\":19.95}\n",
+                out.toString());
+    }
+
+    @Test
+    public void testChunksEndAtLineBoundaries() throws IOException {
+        List<String> chunks = new ArrayList<>();
+        Appendable recorder = new Appendable() {
+            public Appendable append(CharSequence text) {
+                chunks.add(text.toString());
+                return this;
+            }
+
+            public Appendable append(CharSequence text, int start, int end) {
+                return append(text.subSequence(start, end));
+            }
+
+            public Appendable append(char c) {
+                return append(String.valueOf(c));
+            }
+        };
+        new BankReportWriter(ReportFormat.TEXT, 10).writeBalances(bank, recorder);
+        assertEquals(2, chunks.size());
+        for (String chunk : chunks) {
+            assertTrue(chunk.endsWith("\n"));
+        }
+    }
+
+    @Test
+    public void testChannelMatchesAppendable() throws IOException {
+        for (ReportFormat format : ReportFormat.values()) {
+            StringBuilder text = new StringBuilder();
+            new BankReportWriter(format, 16).writeBalances(bank, text);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            new BankReportWriter(format, 16).writeBalances(bank, Channels.newChannel(bytes));
+            assertEquals(text.toString(), bytes.toString(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.luxoft.bankapp.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.luxoft.bankapp.domain.Account;
+import com.luxoft.bankapp.domain.Bank;
+import com.luxoft.bankapp.domain.BankReport;
+import com.luxoft.bankapp.domain.CheckingAccount;
+import com.luxoft.bankapp.domain.Client;
+import com.luxoft.bankapp.domain.Gender;
+import com.luxoft.bankapp.domain.SavingAccount;
+import com.luxoft.bankapp.persistence.BankJournal;
+import com.luxoft.bankapp.persistence.BankSnapshot;
+import com.luxoft.bankapp.service.BankService;
+import com.luxoft.bankapp.service.EmailService;
+import com.luxoft.bankapp.utils.BankChangeListener;
+import com.luxoft.bankapp.utils.BankDataGenerator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class BankSnapshotTest {
+
+    private Path file;
+    private Path journalFile;
+
+    @Before
+    public void setUp() throws Exception {
+        file = Files.createTempFile("bank", ".snapshot");
+        journalFile = Files.createTempFile("bank", ".journal");
+        Files.delete(journalFile);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(journalFile);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Bank bank = new Bank(new EmailService());
+        Client john = new Client("Smith John", Gender.MALE, "Zürich");
+        john.addAccount(new SavingAccount(1, 100.55));
+        john.addAccount(new CheckingAccount(2, -20.0, 50.0));
+        BankService.addClient(bank, john);
+        BankService.addClient(bank, new Client(null, null));
+
+        assertEquals(2, BankSnapshot.write(bank, file));
+        assertFalse(Files.exists(file.resolveSibling(file.getFileName() + ".tmp")));
+
+        Bank restored = new Bank(new EmailService());
+        assertEquals(2, BankSnapshot.load(file, restored).getAddedClients());
+        assertEquals(0, restored.getPrintedClients());
+        Client client = restored.getClient(john.getId());
+        assertEquals("Smith John", client.getName());
+        assertEquals(Gender.MALE, client.getGender());
+        assertEquals("Zürich", client.getCity());
+        for (Account account : client.getAccounts()) {
+            if (account.getId() == 1) {
+                assertTrue(account instanceof SavingAccount);
+                assertEquals(100.55, account.getBalance(), 0);
+            } else {
+                assertEquals(-20.0, account.getBalance(), 0);
+                assertEquals(50.0, ((CheckingAccount) account).getOverdraft(), 0);
+            }
+        }
+        assertEquals(20.0, restored.getStatistics().getBankCreditSum(), 0);
+    }
+
+    @Test
+    public void testGeneratedBankMatchesAfterLoad() throws Exception {
+        Bank bank = new Bank(new EmailService());
+        BankDataGenerator generator = new BankDataGenerator(7);
+        generator.populate(bank, 2_000);
+        BankSnapshot.write(bank, file);
+
+        Bank restored = new Bank(new EmailService());
+        BankSnapshot.load(file, restored);
+        BankReport report = new BankReport();
+        assertEquals(report.getNumberOfClients(bank), report.getNumberOfClients(restored));
+        assertEquals(report.getNumberOfAccounts(bank), report.getNumberOfAccounts(restored));
+        assertEquals(report.getTotalSumInAccounts(bank), report.getTotalSumInAccounts(restored), 0.001);
+        assertEquals(report.getBankCreditSum(bank), report.getBankCreditSum(restored), 0.001);
+        for (Client client : bank.getClients()) {
+            assertEquals(client.getAccounts().size(), restored.getClient(client.getId()).getAccounts().size());
+        }
+    }
+
+    @Test
+    public void testJournalKeepsOnlyChangesAfterTheSnapshot() throws Exception {
+        Bank bank = new Bank(new EmailService());
+        BankJournal journal = BankJournal.open(journalFile, bank);
+        Client john = new Client("Smith John", Gender.MALE);
+        john.addAccount(new SavingAccount(1, 100.0));
+        BankService.addClient(bank, john);
+        ((SavingAccount) find(john, 1)).deposit(10.0);
+        long untrimmed = Files.size(journalFile);
+
+        BankSnapshot.write(bank, file, journal);
+        assertTrue(Files.size(journalFile) < untrimmed);
+        ((SavingAccount) find(john, 1)).withdraw(30.0);
+        john.addAccount(new CheckingAccount(2, 5.0, 20.0));
+        BankService.addClient(bank, new Client("Smith Michelle", Gender.FEMALE));
+        journal.close();
+
+        Bank restored = new Bank(new EmailService());
+        journal = BankJournal.open(journalFile, file, restored, true);
+        assertEquals(2, restored.getClients().size());
+        assertEquals(0, restored.getPrintedClients());
+        Client client = restored.getClient(john.getId());
+        assertEquals(80.0, find(client, 1).getBalance(), 0);
+        assertEquals(5.0, find(client, 2).getBalance(), 0);
+        // the reopened journal carries on after the snapshot
+        ((SavingAccount) find(client, 1)).deposit(1.0);
+        journal.close();
+
+        Bank again = new Bank(new EmailService());
+        BankJournal.open(journalFile, file, again, true).close();
+        assertEquals(81.0, find(again.getClient(john.getId()), 1).getBalance(), 0);
+    }
+
+    @Test
+    public void testRecordsHeldBySnapshotAreSkippedIfJournalWasNotTrimmed() throws Exception {
+        Bank bank = new Bank(new EmailService());
+        BankJournal journal = BankJournal.open(journalFile, bank);
+        Client john = new Client("Smith John", Gender.MALE);
+        john.addAccount(new SavingAccount(1, 100.0));
+        BankService.addClient(bank, john);
+        ((SavingAccount) find(john, 1)).deposit(10.0);
+        Path untrimmed = Files.createTempFile("bank", ".journal");
+        try {
+            Files.copy(journalFile, untrimmed, StandardCopyOption.REPLACE_EXISTING);
+            BankSnapshot.write(bank, file, journal);
+            journal.close();
+            // as if the application stopped between writing the snapshot and trimming the journal
+            Files.copy(untrimmed, journalFile, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.delete(untrimmed);
+        }
+
+        Bank restored = new Bank(new EmailService());
+        BankJournal.open(journalFile, file, restored, true).close();
+        assertEquals(1, restored.getClients().size());
+        assertEquals(110.0, find(restored.getClient(john.getId()), 1).getBalance(), 0);
+    }
+
+    @Test
+    public void testChangeJournaledAfterTheSnapshotIsNotRepeated() throws Exception {
+        Bank bank = new Bank(new EmailService());
+        CountDownLatch reported = new CountDownLatch(1);
+        CountDownLatch snapshotWritten = new CountDownLatch(1);
+        // registered ahead of the journal, so the journal hears of the deposit only after the snapshot
+        bank.addChangeListener(new BankChangeListener() {
+            @Override
+            public void onBalanceChanged(Account account, long oldBalance, long newBalance) {
+                reported.countDown();
+                try {
+                    snapshotWritten.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        BankJournal journal = BankJournal.open(journalFile, bank);
+        Client john = new Client("Smith John", Gender.MALE);
+        john.addAccount(new SavingAccount(1, 100.0));
+        BankService.addClient(bank, john);
+
+        Thread depositor = Thread.ofPlatform().start(() -> ((SavingAccount) find(john, 1)).deposit(10.0));
+        reported.await();
+        BankSnapshot.write(bank, file, journal);
+        snapshotWritten.countDown();
+        depositor.join();
+        journal.close();
+
+        Bank restored = new Bank(new EmailService());
+        BankJournal.open(journalFile, file, restored, true).close();
+        assertEquals(110.0, find(restored.getClient(john.getId()), 1).getBalance(), 0);
+    }
+
+    @Test
+    public void testChangesDuringSnapshotsAreNeitherLostNorRepeated() throws Exception {
+        Bank bank = new Bank(new EmailService());
+        BankJournal journal = BankJournal.open(journalFile, bank, false);
+        Client client = new Client("Smith John", Gender.MALE);
+        List<SavingAccount> accounts = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            SavingAccount account = new SavingAccount(i, 0);
+            accounts.add(account);
+            client.addAccount(account);
+        }
+        BankService.addClient(bank, client);
+
+        List<Thread> threads = new ArrayList<>();
+        for (SavingAccount account : accounts) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    account.deposit(1.0);
+                }
+            }));
+        }
+        for (int i = 0; i < 5; i++) {
+            BankSnapshot.write(bank, file, journal);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        journal.close();
+
+        Bank restored = new Bank(new EmailService());
+        BankJournal.open(journalFile, file, restored, true).close();
+        for (Account account : restored.getClient(client.getId()).getAccounts()) {
+            assertEquals(2_000.0, account.getBalance(), 0);
+        }
+    }
+
+    @Test
+    public void testJournalOpensOnBankLoadedFromSnapshot() throws Exception {
+        Bank bank = new Bank(new EmailService());
+        Client john = new Client("Smith John", Gender.MALE);
+        john.addAccount(new SavingAccount(1, 100.0));
+        BankService.addClient(bank, john);
+        BankSnapshot.write(bank, file);
+
+        Bank loaded = new Bank(new EmailService());
+        BankSnapshot.load(file, loaded);
+        BankJournal journal = BankJournal.open(journalFile, loaded);
+        ((SavingAccount) find(loaded.getClient(john.getId()), 1)).deposit(5.0);
+        journal.close();
+
+        Bank restored = new Bank(new EmailService());
+        BankJournal.open(journalFile, restored).close();
+        assertEquals(105.0, find(restored.getClient(john.getId()), 1).getBalance(), 0);
+    }
+
+    @Test(expected = IOException.class)
+    public void testTrimmedJournalNeedsItsSnapshot() throws Exception {
+        Bank bank = new Bank(new EmailService());
+        BankJournal journal = BankJournal.open(journalFile, bank);
+        BankService.addClient(bank, new Client("Smith John", Gender.MALE));
+        BankSnapshot.write(bank, file, journal);
+        journal.close();
+
+        BankJournal.open(journalFile, new Bank(new EmailService()));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsOtherFiles() throws Exception {
+        Files.writeString(file, "not a snapshot at all, but long enough");
+        BankSnapshot.readClients(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsTruncatedSnapshot() throws Exception {
+        Bank bank = new Bank(new EmailService());
+        new BankDataGenerator(7).populate(bank, 10);
+        BankSnapshot.write(bank, file);
+        byte[] content = Files.readAllBytes(file);
+        Files.write(file, java.util.Arrays.copyOf(content, content.length - 1));
+        BankSnapshot.readClients(file);
+    }
+
+    private static Account find(Client client, int id) {
+        for (Account account : client.getAccounts()) {
+            if (account.getId() == id) {
+                return account;
+            }
+        }
+        throw new AssertionError("No account " + id);
+    }
+}
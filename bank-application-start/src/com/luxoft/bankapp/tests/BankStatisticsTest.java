@@ -0,0 +1,175 @@
+package com.luxoft.bankapp.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import com.luxoft.bankapp.domain.Bank;
+import com.luxoft.bankapp.domain.BankReport;
+import com.luxoft.bankapp.domain.BankReportInterface;
+import com.luxoft.bankapp.domain.BankReportLive;
+import com.luxoft.bankapp.domain.CheckingAccount;
+import com.luxoft.bankapp.domain.Client;
+import com.luxoft.bankapp.domain.Gender;
+import com.luxoft.bankapp.domain.SavingAccount;
+import com.luxoft.bankapp.exceptions.ClientExistsException;
+import com.luxoft.bankapp.exceptions.NotEnoughFundsException;
+import com.luxoft.bankapp.service.BankService;
+import com.luxoft.bankapp.service.EmailService;
+import com.luxoft.bankapp.utils.BankChangeListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class BankStatisticsTest {
+
+    private final BankReportInterface scanning = new BankReport();
+    private final BankReportInterface live = new BankReportLive();
+    private EmailService emailService;
+    private Bank bank;
+
+    @Before
+    public void setUp() {
+        emailService = new EmailService();
+        bank = new Bank(emailService);
+    }
+
+    @After
+    public void tearDown() {
+        emailService.shutdownNow();
+    }
+
+    @Test
+    public void testStatisticsFollowMutations() throws ClientExistsException, NotEnoughFundsException {
+        Client client1 = new Client("Smith John", Gender.MALE);
+        CheckingAccount checking = new CheckingAccount(1, 100.0, 200.0);
+        client1.addAccount(checking);
+        client1.addAccount(new SavingAccount(2, 50.0));
+        BankService.addClient(bank, client1);
+        assertConsistent();
+
+        Client client2 = new Client("Smith Michelle", Gender.FEMALE);
+        BankService.addClient(bank, client2);
+        SavingAccount saving = new SavingAccount(3, 1000.0);
+        // added after registration
+        client2.addAccount(saving);
+        client2.addAccount(new CheckingAccount(4, -30.0, 50.0));
+        assertConsistent();
+
+        checking.withdraw(250.0);
+        saving.deposit(0.01);
+        saving.withdraw(999.0);
+        assertConsistent();
+        assertEquals(180.0, live.getBankCreditSum(bank), 0);
+
+        checking.deposit(300.0);
+        assertConsistent();
+        assertEquals(30.0, live.getBankCreditSum(bank), 0);
+    }
+
+    @Test
+    public void testStatisticsUnderConcurrentUpdates() throws Exception {
+        List<CheckingAccount> accounts = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Client client = new Client("Client " + i, Gender.MALE);
+            CheckingAccount account = new CheckingAccount(i, 10.0, 100.0);
+            client.addAccount(account);
+            accounts.add(account);
+            BankService.addClient(bank, client);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            SplittableRandom random = new SplittableRandom(t);
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    CheckingAccount account = accounts.get(random.nextInt(accounts.size()));
+                    double amount = random.nextInt(1, 3_000) / 100d;
+                    if (random.nextBoolean()) {
+                        account.deposit(amount);
+                    } else {
+                        try {
+                            account.withdraw(amount);
+                        } catch (NotEnoughFundsException e) {
+                            // declined
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertConsistent();
+    }
+
+    @Test
+    public void testDepositWhileAccountIsAdded() throws ClientExistsException {
+        SavingAccount saving = new SavingAccount(1, 100.0);
+        // Runs after the account joined the bank but before it is announced
+        bank.addChangeListener(new BankChangeListener() {
+            @Override
+            public void onClientAdded(Client client) {
+                saving.deposit(10.0);
+            }
+        });
+
+        Client client = new Client("Smith John", Gender.MALE);
+        client.addAccount(saving);
+        BankService.addClient(bank, client);
+
+        assertEquals(110.0, live.getTotalSumInAccounts(bank), 0);
+        assertConsistent();
+    }
+
+    @Test
+    public void testAccountsAddedWhileClientRegistersAreCountedOnce() throws Exception {
+        final int rounds = 2_000;
+        final int accountsPerClient = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        for (int round = 0; round < rounds; round++) {
+            Client client = new Client("Client " + round, Gender.MALE);
+            CountDownLatch start = new CountDownLatch(1);
+            int firstId = round * accountsPerClient;
+            Future<?> adding = executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < accountsPerClient; i++) {
+                    SavingAccount account = new SavingAccount(firstId + i, 1.0);
+                    client.addAccount(account);
+                    account.deposit(1.0);
+                }
+                return null;
+            });
+            Future<?> registering = executor.submit(() -> {
+                start.await();
+                BankService.addClient(bank, client);
+                return null;
+            });
+            start.countDown();
+            adding.get();
+            registering.get();
+        }
+        executor.shutdown();
+
+        assertEquals(rounds * accountsPerClient, live.getNumberOfAccounts(bank));
+        assertEquals(rounds * accountsPerClient * 2.0, live.getTotalSumInAccounts(bank), 0.001);
+        assertConsistent();
+    }
+
+    private void assertConsistent() {
+        assertEquals(scanning.getNumberOfClients(bank), live.getNumberOfClients(bank));
+        assertEquals(scanning.getNumberOfAccounts(bank), live.getNumberOfAccounts(bank));
+        assertEquals(scanning.getTotalSumInAccounts(bank), live.getTotalSumInAccounts(bank), 0.001);
+        assertEquals(scanning.getBankCreditSum(bank), live.getBankCreditSum(bank), 0.001);
+    }
+}
@@ -0,0 +1,166 @@
+package com.luxoft.bankapp.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.luxoft.bankapp.domain.Account;
+import com.luxoft.bankapp.domain.Bank;
+import com.luxoft.bankapp.domain.BankReportStreams;
+import com.luxoft.bankapp.domain.CachedBankReport;
+import com.luxoft.bankapp.domain.CheckingAccount;
+import com.luxoft.bankapp.domain.Client;
+import com.luxoft.bankapp.domain.Gender;
+import com.luxoft.bankapp.domain.SavingAccount;
+import com.luxoft.bankapp.exceptions.ClientExistsException;
+import com.luxoft.bankapp.main.StatisticsConsole;
+import com.luxoft.bankapp.service.EmailService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CachedBankReportTest {
+    private EmailService emailService;
+    private Bank bank;
+    private Account saving;
+    private Account checking;
+
+    @Before
+    public void setUp() throws ClientExistsException {
+        emailService = new EmailService();
+        bank = new Bank(emailService);
+
+        Client anna = new Client("Anna", Gender.FEMALE, "Kyiv");
+        saving = new SavingAccount(1, 100);
+        anna.addAccount(saving);
+        Client boris = new Client("Boris", Gender.MALE, "Odesa");
+        checking = new CheckingAccount(2, -30, 50);
+        boris.addAccount(checking);
+        bank.addClient(anna);
+        bank.addClient(boris);
+    }
+
+    @After
+    public void tearDown() {
+        emailService.shutdownNow();
+    }
+
+    @Test
+    public void testResultsAreCachedUntilTheBankChanges() {
+        CachedBankReport report = new CachedBankReport(new BankReportStreams());
+        SortedSet<Account> sorted = report.getAccountsSortedBySum(bank);
+        assertSame(sorted, report.getAccountsSortedBySum(bank));
+
+        saving.deposit(10);
+        SortedSet<Account> refreshed = report.getAccountsSortedBySum(bank);
+        assertNotSame(sorted, refreshed);
+        assertEquals(80, report.getTotalSumInAccounts(bank), 0.001);
+        assertEquals(30, report.getBankCreditSum(bank), 0.001);
+    }
+
+    @Test
+    public void testDerivedResultsShareTheInvalidation() {
+        CachedBankReport report = new CachedBankReport();
+        AtomicInteger computed = new AtomicInteger();
+        report.get(bank, "count", b -> computed.incrementAndGet());
+        report.get(bank, "count", b -> computed.incrementAndGet());
+        assertEquals(1, computed.get());
+
+        checking.deposit(5);
+        report.get(bank, "count", b -> computed.incrementAndGet());
+        assertEquals(2, computed.get());
+    }
+
+    @Test
+    public void testStaleResultsAreServedWithinTheWindow() {
+        CachedBankReport report = new CachedBankReport();
+        report.setMaxStaleness(1, TimeUnit.HOURS);
+        List<Account> top = report.getTopAccountsByBalance(bank, 1);
+        checking.deposit(1_000);
+        assertSame(top, report.getTopAccountsByBalance(bank, 1));
+
+        report.setMaxStaleness(0, TimeUnit.SECONDS);
+        assertEquals(checking, report.getTopAccountsByBalance(bank, 1).get(0));
+    }
+
+    @Test
+    public void testOnlyRecentArgumentsAreKept() {
+        CachedBankReport report = new CachedBankReport();
+        List<Account> first = report.getTopAccountsByBalance(bank, 1);
+        for (int k = 2; k <= CachedBankReport.MAX_ARGUMENT_RESULTS; k++) {
+            report.getTopAccountsByBalance(bank, k);
+        }
+        assertSame(first, report.getTopAccountsByBalance(bank, 1));
+
+        // k = 2 is now the least recently used and makes room
+        report.getTopAccountsByBalance(bank, CachedBankReport.MAX_ARGUMENT_RESULTS + 1);
+        assertSame(first, report.getTopAccountsByBalance(bank, 1));
+        List<Account> second = report.getTopAccountsByBalance(bank, 2);
+        assertNotSame(second, report.getTopAccountsByBalance(bank, 3));
+    }
+
+    @Test
+    public void testResultsDoNotKeepTheBankAlive() throws Exception {
+        CachedBankReport report = new CachedBankReport();
+        Bank other = new Bank(emailService);
+        Client client = new Client("Clara", Gender.FEMALE);
+        client.addAccount(new SavingAccount(1, 10));
+        other.addClient(client);
+        report.getClientsSorted(other);
+        WeakReference<Bank> reference = new WeakReference<>(other);
+        other = null;
+        client = null;
+
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(reference.get());
+        assertEquals(70, report.getTotalSumInAccounts(bank), 0.001);
+    }
+
+    @Test
+    public void testInvalidateDropsResultsOfEveryBank() {
+        CachedBankReport report = new CachedBankReport();
+        List<Account> top = report.getTopAccountsByBalance(bank, 1);
+        report.invalidate();
+        assertNotSame(top, report.getTopAccountsByBalance(bank, 1));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testCachedCollectionsAreUnmodifiable() {
+        new CachedBankReport().getClientsSorted(bank).clear();
+    }
+
+    @Test
+    public void testConsoleCommands() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        StatisticsConsole console = new StatisticsConsole(bank, new CachedBankReport(), new PrintStream(output, true));
+        console.run(new BufferedReader(new StringReader("totals\ntop 1\ncities\nrefresh 5\ntop x\nfoo\nexit\ncredit\n")));
+
+        String text = output.toString();
+        assertTrue(text.contains("Number of accounts: 2"));
+        assertTrue(text.contains("Total sum in accounts: 70.00"));
+        assertTrue(text.contains("- Account 1: 100.00"));
+        assertTrue(text.contains("Kyiv: 1 clients, 100.00"));
+        assertTrue(text.contains("Odesa: 1 clients, -30.00"));
+        assertTrue(text.contains("at most every 5 s"));
+        assertTrue(text.contains("Not a number of accounts: x"));
+        assertTrue(text.contains("Unknown command!"));
+        // Nothing runs after exit
+        assertEquals(1, text.split("Total bank credit used").length - 1);
+    }
+}
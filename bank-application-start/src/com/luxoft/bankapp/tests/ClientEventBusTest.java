@@ -0,0 +1,152 @@
+package com.luxoft.bankapp.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.luxoft.bankapp.domain.Bank;
+import com.luxoft.bankapp.domain.Client;
+import com.luxoft.bankapp.domain.Gender;
+import com.luxoft.bankapp.domain.SavingAccount;
+import com.luxoft.bankapp.exceptions.ClientExistsException;
+import com.luxoft.bankapp.service.BankService;
+import com.luxoft.bankapp.service.EmailService;
+import com.luxoft.bankapp.utils.ClientEventBus;
+import com.luxoft.bankapp.utils.ClientRegistrationListener;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ClientEventBusTest {
+
+    @Test
+    public void testAddClientDoesNotWaitForListeners() throws Exception {
+        ClientEventBus eventBus = new ClientEventBus();
+        Bank bank = new Bank(new EmailService(), eventBus);
+        CountDownLatch release = new CountDownLatch(1);
+        bank.addListener(client -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        Client client = new Client("Smith John", Gender.MALE);
+        client.addAccount(new SavingAccount(1, 1000.0));
+        BankService.addClient(bank, client);
+
+        assertFalse(eventBus.awaitIdle(50, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(eventBus.awaitIdle(5, TimeUnit.SECONDS));
+        assertEquals(1, bank.getPrintedClients());
+        assertEquals(1, bank.getEmailedClients());
+        assertEquals(1, bank.getDebuggedClients());
+        eventBus.close();
+    }
+
+    @Test
+    public void testEventsArriveInOrderOnSharedPool() throws Exception {
+        ClientEventBus eventBus = new ClientEventBus();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+        eventBus.register(client -> received.add(client.getName()), pool);
+
+        List<String> published = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            Client client = new Client("Client " + i, Gender.FEMALE);
+            published.add(client.getName());
+            eventBus.publish(client);
+        }
+
+        assertTrue(eventBus.awaitIdle(5, TimeUnit.SECONDS));
+        assertEquals(published, received);
+        pool.shutdown();
+    }
+
+    @Test
+    public void testUnregister() throws Exception {
+        ClientEventBus eventBus = new ClientEventBus();
+        List<Client> received = Collections.synchronizedList(new ArrayList<>());
+        ClientRegistrationListener listener = received::add;
+        eventBus.register(listener);
+
+        eventBus.publish(new Client("Before", Gender.MALE));
+        assertTrue(eventBus.awaitIdle(5, TimeUnit.SECONDS));
+        assertTrue(eventBus.unregister(listener));
+        eventBus.publish(new Client("After", Gender.MALE));
+        assertTrue(eventBus.awaitIdle(5, TimeUnit.SECONDS));
+
+        assertEquals(1, received.size());
+        assertEquals("Before", received.get(0).getName());
+        assertFalse(eventBus.unregister(listener));
+    }
+
+    @Test
+    public void testEventsDeliveredAfterRejectedEvent() throws Exception {
+        ClientEventBus eventBus = new ClientEventBus();
+        AtomicBoolean reject = new AtomicBoolean(true);
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+        eventBus.register(client -> received.add(client.getName()), task -> {
+            if (reject.getAndSet(false)) {
+                throw new RejectedExecutionException("Busy");
+            }
+            task.run();
+        });
+
+        eventBus.publish(new Client("Rejected", Gender.MALE));
+        eventBus.publish(new Client("Delivered", Gender.MALE));
+
+        assertTrue(eventBus.awaitIdle(5, TimeUnit.SECONDS));
+        assertEquals(List.of("Delivered"), received);
+    }
+
+    @Test
+    public void testQueuedEventsDeliveredWhenExecutorStopsTakingDrains() throws Exception {
+        ClientEventBus eventBus = new ClientEventBus();
+        AtomicBoolean accept = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+        // Takes the first drain only, so the drain has to hand its backlog over and is rejected
+        eventBus.register(client -> received.add(client.getName()), task -> {
+            if (!accept.getAndSet(false)) {
+                throw new RejectedExecutionException("Stopped");
+            }
+            new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                task.run();
+            }).start();
+        });
+
+        List<String> published = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            Client client = new Client("Client " + i, Gender.FEMALE);
+            published.add(client.getName());
+            eventBus.publish(client);
+        }
+        start.countDown();
+
+        assertTrue(eventBus.awaitIdle(5, TimeUnit.SECONDS));
+        assertEquals(published, received);
+    }
+
+    @Test(expected = ClientExistsException.class)
+    public void testDuplicateClientStillRejectedSynchronously() throws ClientExistsException {
+        Bank bank = new Bank(new EmailService(), new ClientEventBus());
+        Client client = new Client("Smith John", Gender.MALE);
+        BankService.addClient(bank, client);
+        BankService.addClient(bank, client);
+    }
+}
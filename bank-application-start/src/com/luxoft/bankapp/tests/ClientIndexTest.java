@@ -0,0 +1,101 @@
+package com.luxoft.bankapp.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.luxoft.bankapp.domain.Bank;
+import com.luxoft.bankapp.domain.BankReport;
+import com.luxoft.bankapp.domain.BankReportInterface;
+import com.luxoft.bankapp.domain.BankReportStreams;
+import com.luxoft.bankapp.domain.Client;
+import com.luxoft.bankapp.domain.ClientIndex;
+import com.luxoft.bankapp.domain.Gender;
+import com.luxoft.bankapp.exceptions.ClientExistsException;
+import com.luxoft.bankapp.service.BankService;
+import com.luxoft.bankapp.service.EmailService;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class ClientIndexTest {
+
+    private Bank bank;
+
+    @Before
+    public void setUp() throws ClientExistsException {
+        bank = new Bank(new EmailService());
+        BankService.addClient(bank, new Client("Smith John", Gender.MALE, "New York"));
+        BankService.addClient(bank, new Client("Brown Anna", Gender.FEMALE, "Boston"));
+        BankService.addClient(bank, new Client("Smith Michelle", Gender.FEMALE, "New York"));
+    }
+
+    @Test
+    public void testIndexIsBackfilledAndFollowsAdditions() throws ClientExistsException {
+        assertNull(bank.getClientIndex());
+        ClientIndex index = bank.enableClientIndexes();
+        assertEquals(3, index.size());
+
+        BankService.addClient(bank, new Client("Smith John", Gender.MALE, "Boston"));
+        BankService.addClient(bank, new Client("Adams Kate", Gender.FEMALE));
+
+        assertEquals(5, index.size());
+        assertEquals(List.of("Adams Kate", "Brown Anna", "Smith John", "Smith John", "Smith Michelle"),
+                names(new ArrayList<>(index.getClientsSorted())));
+        assertEquals(List.of("Brown Anna", "Smith John"), names(index.getClientsByCity("Boston")));
+        assertEquals(0, index.getClientsByCity("Chicago").size());
+        assertEquals(List.of("Smith John", "Smith John", "Smith Michelle"), names(index.getClientsByNamePrefix("Smith")));
+        assertEquals(List.of("Smith Michelle"), names(index.getClientsByNamePrefix("Smith M")));
+        assertTrue(index.getClientsByNamePrefix("Z").isEmpty());
+    }
+
+    @Test
+    public void testPrefixLookupFollowsSortedOrder() throws ClientExistsException {
+        ClientIndex index = bank.enableClientIndexes();
+        BankService.addClient(bank, new Client("Smith John", Gender.FEMALE));
+        BankService.addClient(bank, new Client(null, Gender.MALE));
+
+        List<Client> named = new ArrayList<>(index.getClientsSorted());
+        // Clients without a name sort first and match no prefix
+        named.remove(0);
+        assertEquals(named, index.getClientsByNamePrefix(""));
+        assertEquals(named.subList(1, 3), index.getClientsByNamePrefix("Smith J"));
+    }
+
+    @Test
+    public void testReportsServedFromIndexMatchScans() throws ClientExistsException {
+        BankService.addClient(bank, new Client("Smith John", Gender.MALE, "Boston"));
+        BankReportInterface[] reports = {new BankReport(), new BankReportStreams()};
+
+        List<List<Client>> sorted = new ArrayList<>();
+        List<Map<String, List<Client>>> byCity = new ArrayList<>();
+        for (BankReportInterface report : reports) {
+            sorted.add(new ArrayList<>(report.getClientsSorted(bank)));
+            byCity.add(report.getClientsByCity(bank));
+        }
+
+        bank.enableClientIndexes();
+        for (int i = 0; i < reports.length; i++) {
+            assertEquals(sorted.get(i), new ArrayList<>(reports[i].getClientsSorted(bank)));
+            assertEquals(byCity.get(i), reports[i].getClientsByCity(bank));
+        }
+        // Clients sharing a name and gender are both kept
+        assertEquals(4, sorted.get(0).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullPrefixIsRejected() {
+        bank.enableClientIndexes().getClientsByNamePrefix(null);
+    }
+
+    private static List<String> names(List<Client> clients) {
+        List<String> names = new ArrayList<>();
+        for (Client client : clients) {
+            names.add(client.getName());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,82 @@
+package com.luxoft.bankapp.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.luxoft.bankapp.domain.Bank;
+import com.luxoft.bankapp.domain.CheckingAccount;
+import com.luxoft.bankapp.domain.Client;
+import com.luxoft.bankapp.domain.Gender;
+import com.luxoft.bankapp.domain.SavingAccount;
+import com.luxoft.bankapp.exceptions.ClientExistsException;
+import com.luxoft.bankapp.service.BankService;
+import com.luxoft.bankapp.service.EmailService;
+import org.junit.Test;
+
+import java.util.List;
+
+public class ClientLookupTest {
+
+    @Test
+    public void testClientsHaveDistinctStableIds() {
+        Client client1 = new Client("Smith John", Gender.MALE);
+        Client client2 = new Client("Smith John", Gender.MALE);
+        assertNotEquals(client1.getId(), client2.getId());
+        assertNotEquals(client1, client2);
+
+        int hashCode = client1.hashCode();
+        client1.addAccount(new SavingAccount(1, 100.0));
+        assertEquals(hashCode, client1.hashCode());
+    }
+
+    @Test
+    public void testLookupAfterAccountsAdded() throws ClientExistsException {
+        Bank bank = new Bank(new EmailService());
+        Client client = new Client("Smith John", Gender.MALE);
+        client.addAccount(new SavingAccount(1, 1000.0));
+        BankService.addClient(bank, client);
+
+        // Used to change the hash code and make the client unfindable in the bank
+        for (int i = 2; i < 10_000; i++) {
+            client.addAccount(new CheckingAccount(i, 10.0, 5.0));
+        }
+
+        assertTrue(bank.getClients().contains(client));
+        assertSame(client, bank.getClient(client.getId()));
+        assertEquals(List.of(client), bank.getClientsByName("Smith John"));
+    }
+
+    @Test(expected = ClientExistsException.class)
+    public void testClientWithMoreAccountsStillExists() throws ClientExistsException {
+        Bank bank = new Bank(new EmailService());
+        Client client = new Client("Smith John", Gender.MALE);
+        BankService.addClient(bank, client);
+        client.addAccount(new SavingAccount(1, 1000.0));
+        BankService.addClient(bank, client);
+    }
+
+    @Test
+    public void testLookupByName() throws ClientExistsException {
+        Bank bank = new Bank(new EmailService());
+        Client john = new Client("Smith John", Gender.MALE);
+        Client otherJohn = new Client("Smith John", Gender.MALE);
+        Client michelle = new Client("Smith Michelle", Gender.FEMALE);
+        bank.addClients(List.of(john, otherJohn, michelle));
+
+        assertEquals(List.of(john, otherJohn), bank.getClientsByName("Smith John"));
+        assertEquals(List.of(michelle), bank.getClientsByName("Smith Michelle"));
+        assertTrue(bank.getClientsByName("Nobody").isEmpty());
+        assertNull(bank.getClient(-1));
+    }
+
+    @Test
+    public void testRestoredIdIsNotReused() {
+        Client restored = new Client(1_000_000L, "Restored", Gender.FEMALE);
+        Client fresh = new Client("Fresh", Gender.MALE);
+        assertEquals(1_000_000L, restored.getId());
+        assertTrue(fresh.getId() > restored.getId());
+    }
+}
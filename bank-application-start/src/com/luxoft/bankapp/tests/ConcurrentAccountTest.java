@@ -0,0 +1,120 @@
+package com.luxoft.bankapp.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.luxoft.bankapp.domain.Account;
+import com.luxoft.bankapp.domain.CheckingAccount;
+import com.luxoft.bankapp.domain.SavingAccount;
+import com.luxoft.bankapp.exceptions.NotEnoughFundsException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ConcurrentAccountTest {
+
+    private static final int THREADS = 16;
+    private static final int OPERATIONS_PER_THREAD = 50_000;
+
+    @Test
+    public void testSharedCheckingAccountKeepsInvariant() throws Exception {
+        CheckingAccount account = new CheckingAccount(1, 100.0, 50.0);
+        LongAdder deposited = new LongAdder();
+        LongAdder withdrawn = new LongAdder();
+
+        hammer(account, deposited, withdrawn);
+
+        long expected = 100_00 + deposited.sum() - withdrawn.sum();
+        assertEquals(expected, toCents(account.getBalance()));
+        assertTrue(account.getBalance() >= -account.getOverdraft());
+    }
+
+    @Test
+    public void testSharedSavingAccountNeverGoesNegative() throws Exception {
+        SavingAccount account = new SavingAccount(1, 10.0);
+        LongAdder deposited = new LongAdder();
+        LongAdder withdrawn = new LongAdder();
+
+        hammer(account, deposited, withdrawn);
+
+        long expected = 10_00 + deposited.sum() - withdrawn.sum();
+        assertEquals(expected, toCents(account.getBalance()));
+        assertTrue(account.getBalance() >= 0);
+    }
+
+    @Test
+    public void testDistinctAccounts() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        List<SavingAccount> accounts = new ArrayList<>();
+
+        for (int i = 0; i < THREADS; i++) {
+            SavingAccount account = new SavingAccount(i, 0);
+            accounts.add(account);
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < OPERATIONS_PER_THREAD; j++) {
+                    account.deposit(0.03);
+                    account.withdraw(0.01);
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        for (SavingAccount account : accounts) {
+            assertEquals(OPERATIONS_PER_THREAD * 2L, toCents(account.getBalance()));
+        }
+    }
+
+    private void hammer(Account account, LongAdder deposited, LongAdder withdrawn) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < THREADS; i++) {
+            SplittableRandom random = new SplittableRandom(i);
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < OPERATIONS_PER_THREAD; j++) {
+                    long cents = random.nextLong(1, 5_000);
+                    if (random.nextBoolean()) {
+                        account.deposit(cents / 100d);
+                        deposited.add(cents);
+                    } else {
+                        try {
+                            account.withdraw(cents / 100d);
+                            withdrawn.add(cents);
+                        } catch (NotEnoughFundsException e) {
+                            // declined withdrawals must leave the balance untouched
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+    }
+
+    private static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+}
@@ -0,0 +1,241 @@
+package com.luxoft.bankapp.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.luxoft.bankapp.domain.Account;
+import com.luxoft.bankapp.domain.Bank;
+import com.luxoft.bankapp.domain.BankReportLive;
+import com.luxoft.bankapp.domain.BankReportParallel;
+import com.luxoft.bankapp.domain.BankReportStreams;
+import com.luxoft.bankapp.domain.CheckingAccount;
+import com.luxoft.bankapp.domain.Client;
+import com.luxoft.bankapp.domain.Epochs;
+import com.luxoft.bankapp.domain.Gender;
+import com.luxoft.bankapp.domain.OffHeapAccountStore;
+import com.luxoft.bankapp.domain.SavingAccount;
+import com.luxoft.bankapp.exceptions.NotEnoughFundsException;
+import com.luxoft.bankapp.service.TransferService;
+import com.luxoft.bankapp.utils.ClientEventBus;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ConcurrentReportTest {
+
+    @Test
+    public void testClientsViewIsStableWhileClientsAreAdded() {
+        Bank bank = new Bank(null, new ClientEventBus(false));
+        for (int i = 0; i < 10; i++) {
+            bank.restoreClients(List.of(new Client("Client " + i, Gender.MALE)));
+        }
+
+        Set<Client> clients = bank.getClients();
+        Iterator<Client> iterator = clients.iterator();
+        iterator.next();
+        Client added = new Client("Late", Gender.FEMALE);
+        bank.restoreClients(List.of(added));
+
+        int seen = 1;
+        while (iterator.hasNext()) {
+            iterator.next();
+            seen++;
+        }
+        assertEquals(10, seen);
+        assertEquals(10, clients.size());
+        assertFalse(clients.contains(added));
+        assertTrue(bank.getClients().contains(added));
+        assertEquals(added, bank.getClient(added.getId()));
+    }
+
+    @Test
+    public void testClientsWithoutName() {
+        Bank bank = new Bank(null, new ClientEventBus(false));
+        Client first = new Client(null, Gender.MALE);
+        Client second = new Client(null, Gender.FEMALE);
+        bank.restoreClients(List.of(first, second));
+
+        assertEquals(List.of(first, second), bank.getClientsByName(null));
+        assertTrue(bank.getClientsByName("Nobody").isEmpty());
+    }
+
+    @Test
+    public void testReportsWhileClientsAreAdded() throws Exception {
+        Bank bank = new Bank(null, new ClientEventBus(false));
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 20_000; i++) {
+                    Client client = new Client("Client " + i, Gender.MALE, "City " + (i % 10));
+                    client.addAccount(new SavingAccount(1, 100));
+                    bank.restoreClients(List.of(client));
+                }
+            } catch (Throwable e) {
+                failure.set(e);
+            } finally {
+                done.set(true);
+            }
+        });
+        writer.start();
+
+        BankReportStreams streams = new BankReportStreams();
+        BankReportParallel parallel = new BankReportParallel(0, ForkJoinPool.commonPool());
+        while (!done.get()) {
+            Bank snapshot = bank.snapshot();
+            int clients = snapshot.getClients().size();
+            assertEquals(clients, streams.getNumberOfAccounts(snapshot));
+            assertEquals(clients * 100.0, parallel.getTotalSumInAccounts(snapshot), 0);
+            // Reports on the live bank no longer fail while it grows
+            streams.getClientsByCity(bank);
+            parallel.getAccountsSortedBySum(bank);
+        }
+        writer.join();
+        assertNull(failure.get());
+        assertEquals(20_000, bank.getClients().size());
+    }
+
+    @Test
+    public void testSnapshotsBalanceDuringTransfers() throws Exception {
+        Bank bank = new Bank(null, new ClientEventBus(false));
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Client client = new Client("Client " + i, Gender.FEMALE);
+            Account account = i % 2 == 0 ? new SavingAccount(i, 1000) : new CheckingAccount(i, 1000, 500);
+            client.addAccount(account);
+            accounts.add(account);
+            bank.restoreClients(List.of(client));
+        }
+
+        AtomicBoolean stop = new AtomicBoolean();
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+            Random random = new Random(t);
+            Thread writer = new Thread(() -> {
+                while (!stop.get()) {
+                    Account from = accounts.get(random.nextInt(accounts.size()));
+                    Account to = accounts.get(random.nextInt(accounts.size()));
+                    if (from != to) {
+                        try {
+                            TransferService.transfer(from, to, random.nextInt(30_000) / 100.0);
+                        } catch (NotEnoughFundsException e) {
+                            // Declined transfers move nothing
+                        }
+                    }
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+
+        BankReportLive report = new BankReportLive();
+        try {
+            for (int i = 0; i < 200; i++) {
+                Bank snapshot = bank.snapshot();
+                assertEquals(1_000_000.0, new BankReportStreams().getTotalSumInAccounts(snapshot), 0);
+                assertEquals(1_000_000.0, report.getTotalSumInAccounts(snapshot), 0);
+            }
+        } finally {
+            stop.set(true);
+            for (Thread writer : writers) {
+                writer.join();
+            }
+        }
+        assertEquals(1_000_000.0, new BankReportStreams().getTotalSumInAccounts(bank), 0);
+    }
+
+    @Test
+    public void testSnapshotIsDetached() throws NotEnoughFundsException {
+        Bank bank = new Bank(null, new ClientEventBus(false));
+        Client client = new Client("John", Gender.MALE, "Kyiv");
+        CheckingAccount checking = new CheckingAccount(1, 100, 50);
+        client.addAccount(checking);
+        bank.restoreClients(List.of(client));
+
+        Bank snapshot = bank.snapshot();
+        checking.withdraw(120);
+        client.addAccount(new SavingAccount(2, 10));
+        bank.restoreClients(List.of(new Client("Jane", Gender.FEMALE)));
+
+        assertEquals(1, snapshot.getClients().size());
+        Client copy = snapshot.getClient(client.getId());
+        assertNotNull(copy);
+        assertEquals("Kyiv", copy.getCity());
+        assertEquals(1, copy.getAccounts().size());
+        CheckingAccount copied = (CheckingAccount) copy.getAccount(1);
+        assertEquals(100.0, copied.getBalance(), 0);
+        assertEquals(50.0, copied.getOverdraft(), 0);
+        assertEquals(-20.0, checking.getBalance(), 0);
+
+        Bank later = bank.snapshot();
+        assertEquals(2, later.getClients().size());
+        assertEquals(-20.0, later.getClient(client.getId()).getAccount(1).getBalance(), 0);
+        assertEquals(2, later.getClient(client.getId()).getAccounts().size());
+    }
+
+    @Test
+    public void testSnapshotViewReadsTheBankInPlace() throws NotEnoughFundsException {
+        Bank bank = new Bank(null, new ClientEventBus(false));
+        Client client = new Client("John", Gender.MALE, "Kyiv");
+        CheckingAccount checking = new CheckingAccount(1, 100, 50);
+        client.addAccount(checking);
+        bank.restoreClients(List.of(client));
+
+        try (Bank.SnapshotView view = bank.openSnapshotView()) {
+            checking.withdraw(120);
+            client.addAccount(new SavingAccount(2, 10));
+            bank.restoreClients(List.of(new Client("Jane", Gender.FEMALE)));
+
+            assertEquals(List.of(client), new ArrayList<>(view.getClients()));
+            // The same objects as in the bank, with the balance they had when the view was opened
+            assertEquals(List.of(checking), view.getAccounts(client));
+            assertEquals(100_00, view.getBalanceInMinorUnits(checking));
+            assertEquals(-20.0, checking.getBalance(), 0);
+        }
+
+        try (Bank.SnapshotView later = bank.openSnapshotView()) {
+            assertEquals(2, later.getClients().size());
+            assertEquals(2, later.getAccounts(client).size());
+            assertEquals(-20_00, later.getBalanceInMinorUnits(checking));
+        }
+    }
+
+    @Test
+    public void testSnapshotOfStoredAccounts() throws NotEnoughFundsException {
+        Bank bank = new Bank(null, new ClientEventBus(false));
+        OffHeapAccountStore store = new OffHeapAccountStore(16);
+        Client client = new Client("John", Gender.MALE);
+        OffHeapAccountStore.SavingAccountView saving = store.createSavingAccount(1, 100);
+        OffHeapAccountStore.CheckingAccountView checking = store.createCheckingAccount(2, 0, 30);
+        client.addAccount(saving);
+        client.addAccount(checking);
+        bank.restoreClients(List.of(client));
+
+        Bank snapshot = bank.snapshot();
+        TransferService.transfer(checking, saving, 25);
+
+        Client copy = snapshot.getClient(client.getId());
+        assertEquals(100.0, copy.getAccount(1).getBalance(), 0);
+        assertEquals(0.0, copy.getAccount(2).getBalance(), 0);
+        assertTrue(copy.getAccount(2) instanceof CheckingAccount);
+        assertEquals(125.0, saving.getBalance(), 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSnapshotInsideWriteSection() {
+        Bank bank = new Bank(null, new ClientEventBus(false));
+        try (Epochs.Section _ = Epochs.enter()) {
+            bank.snapshot();
+        }
+    }
+}
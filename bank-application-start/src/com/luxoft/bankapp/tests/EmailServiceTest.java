@@ -0,0 +1,172 @@
+package com.luxoft.bankapp.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.luxoft.bankapp.domain.Email;
+import com.luxoft.bankapp.service.EmailService;
+import com.luxoft.bankapp.service.EmailServiceMetrics;
+import com.luxoft.bankapp.service.EmailShutdownReport;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class EmailServiceTest {
+
+    @Test
+    public void testWorkersSendInBatches() throws InterruptedException {
+        EmailService emailService = new EmailService(4, 5, false);
+        for (int i = 0; i < 40; i++) {
+            emailService.sendNotificationEmail(new Email("Client " + i, "Friend"));
+        }
+
+        EmailServiceMetrics metrics = emailService.getMetrics();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (metrics.getSentEmails() < 40 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        emailService.close();
+
+        assertEquals(40, metrics.getSentEmails());
+        assertEquals(0, metrics.getQueueDepth());
+        // 40 emails at most 5 per call
+        assertTrue(metrics.getSendCalls() >= 8);
+        assertTrue(metrics.getAverageSendLatencyMillis() >= 100);
+    }
+
+    @Test
+    public void testVirtualThreadWorkers() throws InterruptedException {
+        EmailService emailService = new EmailService(8, 1, true);
+        for (int i = 0; i < 16; i++) {
+            emailService.sendNotificationEmail(new Email("Client " + i, "Friend"));
+        }
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (emailService.getMetrics().getSentEmails() < 16 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        emailService.close();
+
+        assertEquals(16, emailService.getMetrics().getSentEmails());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSendAfterClose() {
+        EmailService emailService = new EmailService();
+        emailService.close();
+        emailService.sendNotificationEmail(new Email("Client", "Friend"));
+    }
+
+    @Test
+    public void testShutdownDrainsBacklog() {
+        EmailService emailService = new EmailService(4, 2, false);
+        for (int i = 0; i < 24; i++) {
+            emailService.sendNotificationEmail(new Email("Client " + i, "Friend"));
+        }
+
+        EmailShutdownReport report = emailService.shutdown(10, TimeUnit.SECONDS);
+
+        assertTrue(report.isDrained());
+        assertEquals(24, report.getSentEmails());
+        assertEquals(0, report.getAbandonedEmails());
+    }
+
+    @Test
+    public void testShutdownReportsAbandonedEmailsAfterDeadline() {
+        EmailService emailService = new EmailService(1, 1, false);
+        for (int i = 0; i < 50; i++) {
+            emailService.sendNotificationEmail(new Email("Client " + i, "Friend"));
+        }
+
+        long start = System.nanoTime();
+        EmailShutdownReport report = emailService.shutdown(250, TimeUnit.MILLISECONDS);
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        assertFalse(report.isDrained());
+        assertEquals(50, report.getSentEmails() + report.getAbandonedEmails());
+        assertTrue(report.getAbandonedEmails() > 0);
+    }
+
+    @Test
+    public void testEmailsSentDuringShutdownAreAccountedFor() throws InterruptedException {
+        EmailService emailService = new EmailService(1, 1, false);
+        AtomicInteger accepted = new AtomicInteger();
+        List<Thread> senders = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread sender = new Thread(() -> {
+                while (true) {
+                    try {
+                        emailService.sendNotificationEmail(new Email("Client", "Friend"));
+                        accepted.incrementAndGet();
+                    } catch (IllegalStateException e) {
+                        return;
+                    }
+                }
+            });
+            senders.add(sender);
+            sender.start();
+        }
+
+        Thread.sleep(20);
+        EmailShutdownReport report = emailService.shutdownNow();
+        for (Thread sender : senders) {
+            sender.join();
+        }
+
+        assertEquals(accepted.get(), report.getSentEmails() + report.getAbandonedEmails());
+    }
+
+    @Test
+    public void testShutdownDoesNotWaitPastDeadlineForBlockedSenders() throws InterruptedException {
+        // One email per 100 ms leaves the queue, so the senders below stay blocked on it for seconds
+        EmailService emailService = new EmailService(1, 1, false, 1);
+        AtomicInteger accepted = new AtomicInteger();
+        List<Thread> senders = new ArrayList<>();
+        for (int t = 0; t < 30; t++) {
+            Thread sender = new Thread(() -> {
+                emailService.sendNotificationEmail(new Email("Client", "Friend"));
+                accepted.incrementAndGet();
+            });
+            senders.add(sender);
+            sender.start();
+        }
+        Thread.sleep(50);
+
+        long start = System.nanoTime();
+        EmailShutdownReport report = emailService.shutdown(100, TimeUnit.MILLISECONDS);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        for (Thread sender : senders) {
+            sender.join();
+        }
+
+        assertFalse(report.isDrained());
+        assertEquals(30, accepted.get());
+        assertEquals(30, report.getSentEmails() + report.getAbandonedEmails());
+    }
+
+    @Test
+    public void testInterruptedSendIsCountedAsDropped() throws InterruptedException {
+        EmailService emailService = new EmailService(1, 1, false, 1);
+        Thread sender = new Thread(() -> {
+            for (int i = 0; i < 3; i++) {
+                emailService.sendNotificationEmail(new Email("Client " + i, "Friend"));
+            }
+        });
+        sender.start();
+        // The third email at the latest waits for room in the queue
+        while (sender.getState() != Thread.State.WAITING && sender.isAlive()) {
+            Thread.sleep(1);
+        }
+        sender.interrupt();
+        sender.join();
+
+        EmailShutdownReport report = emailService.shutdown(10, TimeUnit.SECONDS);
+        assertTrue(report.getDroppedEmails() > 0);
+        assertEquals(report.getDroppedEmails(), emailService.getMetrics().getDroppedEmails());
+        assertEquals(3, report.getSentEmails() + report.getAbandonedEmails() + report.getDroppedEmails());
+    }
+}
@@ -0,0 +1,155 @@
+package com.luxoft.bankapp.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.luxoft.bankapp.log.AsyncLogSink;
+import com.luxoft.bankapp.log.FlushPolicy;
+import com.luxoft.bankapp.log.Level;
+import com.luxoft.bankapp.log.Log;
+import com.luxoft.bankapp.log.LogSink;
+import com.luxoft.bankapp.log.StreamSink;
+import com.luxoft.bankapp.utils.BackpressurePolicy;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LogTest {
+
+    @Test
+    public void testAsyncSinkWritesEverythingInOrder() throws InterruptedException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream stream = new PrintStream(bytes, true);
+        // Writers outpace the flusher and block on the full buffer, so it has to be woken long before
+        // its flush interval for them to finish
+        AsyncLogSink sink = AsyncLogSink.start(() -> stream, 64, BackpressurePolicy.BLOCK, 16, 60_000,
+                FlushPolicy.EVERY_BATCH);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    sink.write(Level.INFO, "thread %d message %d", thread, i);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join(Duration.ofSeconds(10));
+            assertFalse("writer stalled on a sleeping flusher", thread.isAlive());
+        }
+        sink.flush();
+
+        String[] lines = bytes.toString().split(System.lineSeparator());
+        assertEquals(4_000, lines.length);
+        int[] next = new int[4];
+        for (String line : lines) {
+            String[] words = line.split(" ");
+            int thread = Integer.parseInt(words[1]);
+            assertEquals(next[thread]++, Integer.parseInt(words[3]));
+        }
+        sink.close();
+    }
+
+    @Test
+    public void testFormatting() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        StreamSink sink = new StreamSink(() -> new PrintStream(bytes, true));
+        sink.write(Level.INFO, "100% verbatim");
+        sink.write(Level.INFO, "%s has %d accounts, 100%%", "Anna", 2L);
+        sink.write(Level.INFO, "balance %.2f", 1.5);
+        sink.write(Level.INFO, "missing %s %s", "one");
+
+        String[] lines = bytes.toString().split(System.lineSeparator());
+        assertEquals("100% verbatim", lines[0]);
+        assertEquals("Anna has 2 accounts, 100%", lines[1]);
+        assertEquals(String.format("balance %.2f", 1.5), lines[2]);
+        assertTrue(lines[3].startsWith("missing %s %s ["));
+    }
+
+    @Test
+    public void testDroppedMessagesDoNotBlockFlush() {
+        PrintStream stream = new PrintStream(new ByteArrayOutputStream(), true);
+        AsyncLogSink sink = AsyncLogSink.start(() -> stream, 1, BackpressurePolicy.DROP, 1, 10_000,
+                FlushPolicy.WHEN_IDLE);
+        for (int i = 0; i < 100; i++) {
+            sink.write(Level.INFO, "message");
+        }
+        sink.flush();
+        assertTrue(sink.getDroppedCount() > 0);
+        sink.close();
+    }
+
+    @Test
+    public void testRejectedMessagesDoNotBlockFlush() throws InterruptedException {
+        PrintStream stream = new PrintStream(new ByteArrayOutputStream(), true);
+        AsyncLogSink sink = AsyncLogSink.start(() -> stream, 1, BackpressurePolicy.FAIL_FAST, 1, 10_000,
+                FlushPolicy.WHEN_IDLE);
+        int rejected = 0;
+        for (int i = 0; i < 100; i++) {
+            try {
+                sink.write(Level.INFO, "message");
+            } catch (IllegalStateException e) {
+                rejected++;
+            }
+        }
+        assertTrue(rejected > 0);
+        Thread flushing = Thread.ofPlatform().start(sink::flush);
+        flushing.join(5_000);
+        assertFalse(flushing.isAlive());
+        sink.close();
+    }
+
+    @Test
+    public void testMessagesQueuedWhileClosingAreWritten() throws InterruptedException {
+        for (int round = 0; round < 20; round++) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            PrintStream stream = new PrintStream(bytes, true);
+            AsyncLogSink sink = AsyncLogSink.start(() -> stream, 1_024, BackpressurePolicy.BLOCK, 16, 1,
+                    FlushPolicy.WHEN_IDLE);
+            Thread writer = Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    sink.write(Level.INFO, "message");
+                }
+            });
+            sink.close();
+            writer.join();
+            assertEquals(1_000, bytes.toString().split(System.lineSeparator()).length);
+        }
+    }
+
+    @Test
+    public void testClosedSinkWritesSynchronously() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream stream = new PrintStream(bytes, true);
+        AsyncLogSink sink = AsyncLogSink.start(() -> stream, 16, BackpressurePolicy.BLOCK, 16, 10_000,
+                FlushPolicy.WHEN_IDLE);
+        sink.write(Level.INFO, "queued");
+        sink.close();
+        sink.write(Level.INFO, "after close");
+        assertEquals("queued" + System.lineSeparator() + "after close" + System.lineSeparator(), bytes.toString());
+    }
+
+    @Test
+    public void testLevelFiltering() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        LogSink previous = Log.setSink(new StreamSink(() -> new PrintStream(bytes, true)));
+        Level level = Log.getLevel();
+        try {
+            Log.setLevel(Level.WARN);
+            Log.debug("debug");
+            Log.info("info");
+            Log.warn("warn %d", 1);
+            Log.error("error");
+        } finally {
+            Log.setLevel(level);
+            Log.setSink(previous);
+        }
+        assertEquals("warn 1" + System.lineSeparator() + "error" + System.lineSeparator(), bytes.toString());
+    }
+}
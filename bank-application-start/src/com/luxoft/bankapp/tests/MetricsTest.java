@@ -0,0 +1,142 @@
+package com.luxoft.bankapp.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.luxoft.bankapp.domain.Bank;
+import com.luxoft.bankapp.domain.BankReportStreams;
+import com.luxoft.bankapp.domain.Client;
+import com.luxoft.bankapp.domain.Gender;
+import com.luxoft.bankapp.domain.InstrumentedBankReport;
+import com.luxoft.bankapp.domain.SavingAccount;
+import com.luxoft.bankapp.exceptions.ClientExistsException;
+import com.luxoft.bankapp.metrics.BankMetrics;
+import com.luxoft.bankapp.metrics.Counter;
+import com.luxoft.bankapp.metrics.Gauge;
+import com.luxoft.bankapp.metrics.LatencyHistogram;
+import com.luxoft.bankapp.metrics.Metric;
+import com.luxoft.bankapp.metrics.MetricsRegistry;
+import com.luxoft.bankapp.service.EmailService;
+import org.junit.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+public class MetricsTest {
+
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(1000), histogram.getMax());
+        // Buckets are at most 1/32 wide
+        assertEquals(500_000, histogram.getPercentile(50), 500_000 / 32.0);
+        assertEquals(990_000, histogram.getPercentile(99), 990_000 / 32.0);
+        assertEquals(1_000_000, histogram.getPercentile(100));
+        assertEquals(500_500, histogram.getMean(), 0.001);
+    }
+
+    @Test
+    public void testHistogramSmallAndHugeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(7);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(3, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(0));
+        assertEquals(7, histogram.getPercentile(50));
+        assertEquals(Long.MAX_VALUE, histogram.getPercentile(100));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPercentile() {
+        new LatencyHistogram().getPercentile(101);
+    }
+
+    @Test
+    public void testRegistryReturnsSameMetric() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Counter counter = registry.counter("requests");
+        counter.increment();
+        counter.add(2);
+        assertTrue(counter == registry.counter("requests"));
+        assertEquals(3L, registry.getValues().get("requests"));
+        assertTrue(registry.snapshot().contains("requests count=3"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRegistryRejectsTypeMismatch() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("requests");
+        registry.histogram("requests");
+    }
+
+    @Test
+    public void testGaugeIsReadOnDemand() {
+        MetricsRegistry registry = new MetricsRegistry();
+        long[] depth = {1};
+        registry.gauge("depth", () -> depth[0]);
+        depth[0] = 42;
+        assertEquals(42L, registry.getValues().get("depth"));
+    }
+
+    @Test
+    public void testMBean() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("requests").increment();
+        ObjectName name = registry.registerMBean(new ObjectName("com.luxoft.bankapp:type=Metrics,name=test"));
+        try {
+            assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "requests"));
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+    }
+
+    @Test
+    public void testBankAndReportsAreInstrumented() throws ClientExistsException {
+        EmailService emailService = new EmailService();
+        try {
+            Bank bank = new Bank(emailService);
+            long added = BankMetrics.CLIENTS_ADDED.get();
+            long timed = BankMetrics.ADD_CLIENT_LATENCY.getCount();
+            Client client = new Client("Metrics Client", Gender.FEMALE);
+            client.addAccount(new SavingAccount(1, 100));
+            bank.addClient(client);
+            assertEquals(added + 1, BankMetrics.CLIENTS_ADDED.get());
+            assertEquals(timed + 1, BankMetrics.ADD_CLIENT_LATENCY.getCount());
+
+            MetricsRegistry registry = new MetricsRegistry();
+            InstrumentedBankReport report = new InstrumentedBankReport(new BankReportStreams(), registry);
+            assertEquals(100, report.getTotalSumInAccounts(bank), 0);
+            assertEquals(1, report.getTopAccountsByBalance(bank, 5).size());
+            assertEquals(1, registry.histogram("report.getTotalSumInAccounts.latency").getCount());
+            assertEquals(1, registry.histogram("report.getTopAccountsByBalance.latency").getCount());
+            assertEquals(0, registry.histogram("report.getClientsSorted.latency").getCount());
+
+            assertTrue(MetricsRegistry.getDefault().getMetrics().containsKey(BankMetrics.EMAIL_QUEUE_DEPTH));
+        } finally {
+            emailService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testEmailServicesShareTheirMetrics() {
+        EmailService first = new EmailService(1, 1, false);
+        Metric depth = MetricsRegistry.getDefault().getMetrics().get(BankMetrics.EMAIL_QUEUE_DEPTH);
+        Metric latency = MetricsRegistry.getDefault().getMetrics().get(BankMetrics.EMAIL_SEND_LATENCY);
+        EmailService second = new EmailService(1, 1, false);
+        // a later service does not take the metrics over from the first
+        assertSame(depth, MetricsRegistry.getDefault().getMetrics().get(BankMetrics.EMAIL_QUEUE_DEPTH));
+        assertSame(latency, MetricsRegistry.getDefault().getMetrics().get(BankMetrics.EMAIL_SEND_LATENCY));
+
+        second.shutdownNow();
+        first.shutdownNow();
+        assertSame(depth, MetricsRegistry.getDefault().getMetrics().get(BankMetrics.EMAIL_QUEUE_DEPTH));
+        assertEquals(0, ((Gauge) depth).get());
+    }
+}
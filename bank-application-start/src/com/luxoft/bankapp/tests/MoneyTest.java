@@ -0,0 +1,119 @@
+package com.luxoft.bankapp.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.luxoft.bankapp.domain.Account;
+import com.luxoft.bankapp.domain.Bank;
+import com.luxoft.bankapp.domain.BankReport;
+import com.luxoft.bankapp.domain.BankReportStreams;
+import com.luxoft.bankapp.domain.CheckingAccount;
+import com.luxoft.bankapp.domain.Client;
+import com.luxoft.bankapp.domain.Gender;
+import com.luxoft.bankapp.domain.Money;
+import com.luxoft.bankapp.domain.OffHeapAccountStore;
+import com.luxoft.bankapp.domain.SavingAccount;
+import com.luxoft.bankapp.exceptions.OverdraftLimitExceededException;
+import com.luxoft.bankapp.service.BankService;
+import com.luxoft.bankapp.service.EmailService;
+import org.junit.Test;
+
+import java.util.List;
+
+public class MoneyTest {
+
+    @Test
+    public void testConversions() {
+        assertEquals(1010, Money.toMinorUnits(10.1));
+        assertEquals(-5, Money.toMinorUnits(-0.05));
+        assertEquals(30, Money.toMinorUnits(0.1 + 0.2));
+        assertEquals(0.3, Money.toMajorUnits(30), 0);
+    }
+
+    @Test
+    public void testFormatAndParse() {
+        assertEquals("0.00", Money.format(0));
+        assertEquals("-0.05", Money.format(-5));
+        assertEquals("-1234.05", Money.format(-123405));
+        assertEquals("10.10", Money.format(1010));
+        assertEquals(1010, Money.parse("10.1"));
+        assertEquals(-5, Money.parse("-0.05"));
+        assertEquals(700, Money.parse("7"));
+        assertEquals(50, Money.parse(".5"));
+        for (long amount : new long[] {0, 1, -1, 99, -100, 123456789, Long.MAX_VALUE, -Long.MAX_VALUE}) {
+            assertEquals(amount, Money.parse(Money.format(amount)));
+        }
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testParseRejectsExtraDecimals() {
+        Money.parse("1.005");
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void testAddDetectsOverflow() {
+        Money.add(Long.MAX_VALUE, 1);
+    }
+
+    @Test
+    public void testDepositRejectsBalanceOverflow() throws Exception {
+        Bank bank = new Bank(new EmailService());
+        SavingAccount attached = new SavingAccount(2, 4e16);
+        Client client = new Client("Smith John", Gender.MALE);
+        client.addAccount(attached);
+        BankService.addClient(bank, client);
+        OffHeapAccountStore store = new OffHeapAccountStore();
+
+        List<Account> accounts = List.of(new SavingAccount(1, 4e16), attached, store.createSavingAccount(3, 9e16));
+        for (Account account : accounts) {
+            double balance = account.getBalance();
+            try {
+                account.deposit(9e16);
+                fail("Deposit overflowed the balance of account " + account.getId());
+            } catch (ArithmeticException e) {
+                assertEquals(balance, account.getBalance(), 0);
+            }
+        }
+        assertEquals(4e16, bank.getStatistics().getTotalSumInAccounts(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAccountRejectsBalanceItCannotHold() {
+        new SavingAccount(1, 9e16);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNaN() {
+        Money.toMinorUnits(Double.NaN);
+    }
+
+    @Test
+    public void testReportSumsAreExact() throws Exception {
+        Bank bank = new Bank(new EmailService());
+        Client client = new Client("Smith John", Gender.MALE);
+        for (int i = 0; i < 10_000; i++) {
+            client.addAccount(new SavingAccount(i, 0.1));
+        }
+        BankService.addClient(bank, client);
+
+        double expected = Money.toMajorUnits(100_000);
+        assertEquals(expected, new BankReport().getTotalSumInAccounts(bank), 0);
+        assertEquals(expected, new BankReportStreams().getTotalSumInAccounts(bank), 0);
+        assertEquals(expected, bank.getStatistics().getTotalSumInAccounts(), 0);
+    }
+
+    @Test
+    public void testExceptionsCarryMinorUnits() {
+        CheckingAccount account = new CheckingAccount(1, 10.1, 0.2);
+        try {
+            account.withdraw(10.31);
+        } catch (OverdraftLimitExceededException e) {
+            assertEquals(1010, e.getBalanceInMinorUnits());
+            assertEquals(1031, e.getAmountInMinorUnits());
+            assertEquals(20, e.getOverdraftInMinorUnits());
+            assertEquals(10.31, e.getAmount(), 0);
+            return;
+        }
+        throw new AssertionError("Withdrawal should have been declined");
+    }
+}
@@ -0,0 +1,194 @@
+package com.luxoft.bankapp.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.luxoft.bankapp.domain.Bank;
+import com.luxoft.bankapp.domain.BankReport;
+import com.luxoft.bankapp.domain.BankReportParallel;
+import com.luxoft.bankapp.domain.BankReportStreams;
+import com.luxoft.bankapp.domain.CheckingAccount;
+import com.luxoft.bankapp.domain.Client;
+import com.luxoft.bankapp.domain.Gender;
+import com.luxoft.bankapp.domain.OffHeapAccountStore;
+import com.luxoft.bankapp.domain.OffHeapAccountStore.CheckingAccountView;
+import com.luxoft.bankapp.domain.OffHeapAccountStore.SavingAccountView;
+import com.luxoft.bankapp.exceptions.NotEnoughFundsException;
+import com.luxoft.bankapp.exceptions.OverdraftLimitExceededException;
+import com.luxoft.bankapp.persistence.BankJournal;
+import com.luxoft.bankapp.persistence.BankSnapshot;
+import com.luxoft.bankapp.service.BankService;
+import com.luxoft.bankapp.service.EmailService;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class OffHeapAccountStoreTest {
+
+    @Test
+    public void testAccountsAcrossChunks() throws NotEnoughFundsException {
+        OffHeapAccountStore store = new OffHeapAccountStore(4);
+        for (int i = 0; i < 10; i++) {
+            store.createSavingAccount(i, 10.0);
+        }
+        CheckingAccountView checking = store.createCheckingAccount(100, 5.0, 20.0);
+
+        assertEquals(11, store.size());
+        assertEquals(105.0, store.getTotalBalance(), 0);
+        assertEquals(100, checking.getId());
+        assertEquals(20.0, checking.getOverdraft(), 0);
+        assertEquals(checking, store.view(10));
+        assertEquals(7, store.view(7).getId());
+
+        store.view(3).withdraw(10.0);
+        checking.withdraw(15.5);
+        assertEquals(0.0, store.view(3).getBalance(), 0);
+        assertEquals(-10.5, checking.getBalance(), 0);
+        assertEquals(9.5, checking.maximumAmountToWithdraw(), 0);
+        assertEquals(10.5, store.getCreditSum(), 0);
+    }
+
+    @Test
+    public void testWithdrawalLimits() {
+        OffHeapAccountStore store = new OffHeapAccountStore();
+        SavingAccountView saving = store.createSavingAccount(1, 10.0);
+        CheckingAccountView checking = store.createCheckingAccount(2, 10.0, 5.0);
+        try {
+            saving.withdraw(10.01);
+            fail();
+        } catch (NotEnoughFundsException e) {
+            assertEquals(1, e.getId());
+            assertEquals(10.0, e.getBalance(), 0);
+        }
+        try {
+            checking.withdraw(15.01);
+            fail();
+        } catch (OverdraftLimitExceededException e) {
+            assertEquals(5.0, e.getOverdraft(), 0);
+        }
+        assertEquals(10.0, saving.getBalance(), 0);
+        assertEquals(10.0, checking.getBalance(), 0);
+    }
+
+    @Test
+    public void testConcurrentDeposits() throws InterruptedException {
+        OffHeapAccountStore store = new OffHeapAccountStore();
+        SavingAccountView account = store.createSavingAccount(1, 0);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    account.deposit(0.01);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(400.0, account.getBalance(), 0);
+    }
+
+    @Test
+    public void testBankListenersSeeStoredAccounts() throws Exception {
+        Bank bank = new Bank(new EmailService());
+        OffHeapAccountStore store = new OffHeapAccountStore();
+        Client client = new Client("Smith John", Gender.MALE);
+        SavingAccountView account = store.createSavingAccount(1, 100.0);
+        client.addAccount(account);
+        BankService.addClient(bank, client);
+
+        account.deposit(50.0);
+        account.withdraw(25.0);
+        assertEquals(125.0, bank.getStatistics().getTotalSumInAccounts(), 0);
+        assertTrue(client.getAccounts().contains(store.view(0)));
+    }
+
+    @Test
+    public void testAccountsOutsideTheBankAreNotReported() throws Exception {
+        Bank bank = new Bank(new EmailService());
+        OffHeapAccountStore store = new OffHeapAccountStore();
+        Client client = new Client("Smith John", Gender.MALE);
+        client.addAccount(store.createSavingAccount(1, 100.0));
+        BankService.addClient(bank, client);
+        SavingAccountView outside = store.createSavingAccount(2, 0);
+
+        outside.deposit(1_000_000.0);
+        assertEquals(100.0, bank.getStatistics().getTotalSumInAccounts(), 0);
+        assertEquals(100.0, new BankReportStreams().getTotalSumInAccounts(bank), 0);
+
+        // joining later counts the balance it has by then, once
+        Client other = new Client("Smith Michelle", Gender.FEMALE);
+        other.addAccount(outside);
+        BankService.addClient(bank, other);
+        outside.deposit(1.0);
+        assertEquals(1_000_101.0, bank.getStatistics().getTotalSumInAccounts(), 0);
+    }
+
+    @Test
+    public void testStoredCheckingAccountsCountAsCheckingAccounts() throws Exception {
+        Bank bank = new Bank(new EmailService());
+        OffHeapAccountStore store = new OffHeapAccountStore();
+        Client client = new Client("Smith John", Gender.MALE);
+        CheckingAccountView checking = store.createCheckingAccount(1, 10.0, 100.0);
+        client.addAccount(checking);
+        BankService.addClient(bank, client);
+        checking.withdraw(60.0);
+
+        assertEquals(50.0, bank.getStatistics().getBankCreditSum(), 0);
+        assertEquals(50.0, new BankReport().getBankCreditSum(bank), 0);
+        assertEquals(50.0, new BankReportStreams().getBankCreditSum(bank), 0);
+        assertEquals(50.0, new BankReportParallel(0, ForkJoinPool.commonPool()).getBankCreditSum(bank), 0);
+
+        Path journalFile = Files.createTempFile("bank", ".journal");
+        Path snapshotFile = Files.createTempFile("bank", ".snapshot");
+        try {
+            Files.delete(journalFile);
+            BankJournal journal = BankJournal.open(journalFile, bank);
+            checking.deposit(5.0);
+            journal.close();
+            BankSnapshot.write(bank, snapshotFile);
+            for (List<Client> restored : List.of(BankJournal.readClients(journalFile), BankSnapshot.readClients(snapshotFile))) {
+                CheckingAccount account = (CheckingAccount) restored.get(0).getAccounts().get(0);
+                assertEquals(-45.0, account.getBalance(), 0);
+                assertEquals(100.0, account.getOverdraft(), 0);
+                assertEquals(55.0, account.maximumAmountToWithdraw(), 0);
+            }
+        } finally {
+            Files.deleteIfExists(journalFile);
+            Files.deleteIfExists(snapshotFile);
+        }
+    }
+
+    @Test
+    public void testFileBackedStoreSurvivesReopen() throws Exception {
+        Path file = Files.createTempFile("accounts", ".store");
+        Files.delete(file);
+        try {
+            try (OffHeapAccountStore store = new OffHeapAccountStore(file, 8)) {
+                for (int i = 0; i < 20; i++) {
+                    store.createCheckingAccount(i, i, 1.0).deposit(0.5);
+                }
+            }
+            try (OffHeapAccountStore store = new OffHeapAccountStore(file, 8)) {
+                assertEquals(20, store.size());
+                assertEquals(200.0, store.getTotalBalance(), 0);
+                assertEquals(13, store.view(13).getId());
+                assertEquals(1.0, ((CheckingAccountView) store.view(13)).getOverdraft(), 0);
+                store.createSavingAccount(20, 1.0);
+                assertEquals(21, store.size());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testChunkSizeMustBePowerOfTwo() {
+        new OffHeapAccountStore(1000);
+    }
+}
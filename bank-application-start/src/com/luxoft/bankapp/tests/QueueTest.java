@@ -0,0 +1,113 @@
+package com.luxoft.bankapp.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.luxoft.bankapp.utils.BackpressurePolicy;
+import com.luxoft.bankapp.utils.Queue;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class QueueTest {
+
+    @Test
+    public void testFifoAcrossWrapAround() {
+        Queue<Integer> queue = new Queue<>(3);
+        for (int i = 0; i < 10; i++) {
+            queue.add(i);
+            queue.add(i + 100);
+            assertEquals(Integer.valueOf(i), queue.peek());
+            assertEquals(Integer.valueOf(i), queue.poll());
+            assertEquals(Integer.valueOf(i + 100), queue.poll());
+        }
+        assertTrue(queue.isEmpty());
+        assertNull(queue.peek());
+    }
+
+    @Test
+    public void testDropPolicy() {
+        Queue<String> queue = new Queue<>(2, BackpressurePolicy.DROP);
+        assertTrue(queue.add("a"));
+        assertTrue(queue.add("b"));
+        assertFalse(queue.add("c"));
+        assertEquals(2, queue.size());
+        assertEquals(1, queue.getDroppedCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFailFastPolicy() {
+        Queue<String> queue = new Queue<>(1, BackpressurePolicy.FAIL_FAST);
+        queue.add("a");
+        queue.add("b");
+    }
+
+    @Test
+    public void testTimedPoll() {
+        Queue<String> queue = new Queue<>(1);
+        long start = System.nanoTime();
+        assertNull(queue.poll(50, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    public void testDrainTo() {
+        Queue<Integer> queue = new Queue<>(10);
+        for (int i = 0; i < 5; i++) {
+            queue.add(i);
+        }
+        List<Integer> batch = new ArrayList<>();
+        assertEquals(3, queue.drainTo(batch, 3));
+        assertEquals(List.of(0, 1, 2), batch);
+        assertEquals(2, queue.size());
+        assertEquals(0, queue.drainTo(batch, 0));
+        assertEquals(2, queue.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDrainToRejectsNegativeMax() {
+        Queue<Integer> queue = new Queue<>(10);
+        queue.add(1);
+        queue.drainTo(new ArrayList<>(), -1);
+    }
+
+    @Test
+    public void testBlockingProducersAndConsumers() throws Exception {
+        Queue<Integer> queue = new Queue<>(16);
+        int producers = 4;
+        int perProducer = 25_000;
+        ExecutorService executor = Executors.newFixedThreadPool(producers * 2);
+        ConcurrentHashMap<Integer, Boolean> seen = new ConcurrentHashMap<>();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    queue.add(base + i);
+                }
+            }));
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    seen.put(queue.poll(), Boolean.TRUE);
+                }
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(producers * perProducer, seen.size());
+        assertTrue(queue.isEmpty());
+    }
+}
@@ -0,0 +1,71 @@
+package com.luxoft.bankapp.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.luxoft.bankapp.utils.SortedArraySet;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+public class SortedArraySetTest {
+
+    private final SortedSet<Integer> set = new SortedArraySet<>(new Integer[] {10, 20, 30, 40, 50, 99}, 5,
+            Comparator.naturalOrder());
+
+    @Test
+    public void testRangeViewsMatchTreeSet() {
+        TreeSet<Integer> expected = new TreeSet<>(List.of(10, 20, 30, 40, 50));
+        assertEquals(expected, set);
+        for (int from = 5; from <= 55; from += 5) {
+            assertEquals(List.copyOf(expected.headSet(from)), new ArrayList<>(set.headSet(from)));
+            assertEquals(List.copyOf(expected.tailSet(from)), new ArrayList<>(set.tailSet(from)));
+            for (int to = from; to <= 55; to += 5) {
+                assertEquals(List.copyOf(expected.subSet(from, to)), new ArrayList<>(set.subSet(from, to)));
+            }
+        }
+    }
+
+    @Test
+    public void testViewsOfViews() {
+        SortedSet<Integer> view = set.subSet(15, 45);
+        assertEquals(3, view.size());
+        assertEquals(Integer.valueOf(20), view.first());
+        assertEquals(Integer.valueOf(40), view.last());
+        assertTrue(view.contains(30));
+        assertFalse(view.contains(10));
+        assertFalse(view.contains(50));
+
+        assertEquals(List.of(20, 30), new ArrayList<>(view.headSet(40)));
+        assertEquals(List.of(30, 40), new ArrayList<>(view.tailSet(25)));
+        assertEquals(List.of(30), new ArrayList<>(view.tailSet(25).headSet(35)));
+        // the upper bound of a range is exclusive, so it is still a valid key
+        assertTrue(view.headSet(45).containsAll(view));
+        assertTrue(view.subSet(30, 30).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testViewRejectsKeyBelowItsRange() {
+        set.tailSet(20).headSet(15);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testViewRejectsKeyAboveItsRange() {
+        set.headSet(30).subSet(20, 35);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSubSetRejectsReversedBounds() {
+        set.subSet(40, 20);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testReadOnly() {
+        set.add(60);
+    }
+}
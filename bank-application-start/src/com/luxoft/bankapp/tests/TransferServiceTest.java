@@ -0,0 +1,126 @@
+package com.luxoft.bankapp.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import com.luxoft.bankapp.domain.Account;
+import com.luxoft.bankapp.domain.Bank;
+import com.luxoft.bankapp.domain.CheckingAccount;
+import com.luxoft.bankapp.domain.Client;
+import com.luxoft.bankapp.domain.Gender;
+import com.luxoft.bankapp.domain.SavingAccount;
+import com.luxoft.bankapp.exceptions.NotEnoughFundsException;
+import com.luxoft.bankapp.exceptions.OverdraftLimitExceededException;
+import com.luxoft.bankapp.service.BankService;
+import com.luxoft.bankapp.service.EmailService;
+import com.luxoft.bankapp.service.TransferService;
+import com.luxoft.bankapp.utils.BankChangeListener;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class TransferServiceTest {
+
+    @Test
+    public void testTransfer() throws NotEnoughFundsException {
+        SavingAccount from = new SavingAccount(1, 1000.0);
+        CheckingAccount to = new CheckingAccount(2, 0.0, 100.0);
+
+        TransferService.transfer(from, to, 250.0);
+
+        assertEquals(750.0, from.getBalance(), 0);
+        assertEquals(250.0, to.getBalance(), 0);
+    }
+
+    @Test
+    public void testTransferUsesOverdraft() throws NotEnoughFundsException {
+        CheckingAccount from = new CheckingAccount(1, 100.0, 50.0);
+        SavingAccount to = new SavingAccount(2, 0.0);
+
+        TransferService.transfer(from, to, 150.0);
+
+        assertEquals(-50.0, from.getBalance(), 0);
+        assertEquals(150.0, to.getBalance(), 0);
+    }
+
+    @Test
+    public void testListenersRunAfterTheTransfer() throws Exception {
+        Bank bank = new Bank(new EmailService());
+        Client client = new Client("Smith John", Gender.MALE);
+        SavingAccount from = new SavingAccount(1, 100.0);
+        SavingAccount to = new SavingAccount(2, 0.0);
+        client.addAccount(from);
+        client.addAccount(to);
+        BankService.addClient(bank, client);
+        List<Double> totals = new ArrayList<>();
+        bank.addChangeListener(new BankChangeListener() {
+            @Override
+            public void onBalanceChanged(Account account, long oldBalance, long newBalance) {
+                // Snapshots cannot be taken inside a write section, so this fails if the transfer's is open
+                totals.add(bank.snapshot().getStatistics().getTotalSumInAccounts());
+            }
+        });
+
+        TransferService.transfer(from, to, 40.0);
+
+        assertEquals(List.of(100.0, 100.0), totals);
+    }
+
+    @Test
+    public void testDeclinedTransferLeavesAccountsUntouched() {
+        CheckingAccount from = new CheckingAccount(1, 100.0, 50.0);
+        SavingAccount to = new SavingAccount(2, 10.0);
+
+        try {
+            TransferService.transfer(from, to, 150.01);
+        } catch (NotEnoughFundsException e) {
+            assertEquals(OverdraftLimitExceededException.class, e.getClass());
+        }
+
+        assertEquals(100.0, from.getBalance(), 0);
+        assertEquals(10.0, to.getBalance(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTransferToSameAccount() throws NotEnoughFundsException {
+        SavingAccount account = new SavingAccount(1, 100.0);
+        TransferService.transfer(account, account, 10.0);
+    }
+
+    @Test
+    public void testOppositeConcurrentTransfersConserveMoney() throws Exception {
+        SavingAccount a = new SavingAccount(1, 500.0);
+        SavingAccount b = new SavingAccount(2, 500.0);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        Future<?>[] futures = new Future<?>[8];
+
+        for (int i = 0; i < futures.length; i++) {
+            SavingAccount from = i % 2 == 0 ? a : b;
+            SavingAccount to = i % 2 == 0 ? b : a;
+            futures[i] = executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < 20_000; j++) {
+                    try {
+                        TransferService.transfer(from, to, 1.25);
+                    } catch (NotEnoughFundsException e) {
+                        // the other direction will refill the account
+                    }
+                }
+                return null;
+            });
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(1000.0, a.getBalance() + b.getBalance(), 0);
+    }
+}
@@ -0,0 +1,79 @@
+package com.luxoft.bankapp.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.luxoft.bankapp.domain.Account;
+import com.luxoft.bankapp.domain.CheckingAccount;
+import com.luxoft.bankapp.domain.OffHeapAccountStore;
+import com.luxoft.bankapp.domain.SavingAccount;
+import com.luxoft.bankapp.domain.WithdrawResult;
+import com.luxoft.bankapp.exceptions.NotEnoughFundsException;
+import com.luxoft.bankapp.exceptions.OverdraftLimitExceededException;
+import org.junit.Test;
+
+public class TryWithdrawTest {
+
+    @Test
+    public void testResults() {
+        SavingAccount saving = new SavingAccount(1, 100.0);
+        CheckingAccount checking = new CheckingAccount(2, 100.0, 50.0);
+
+        assertEquals(WithdrawResult.APPROVED, saving.tryWithdraw(60.0));
+        assertEquals(WithdrawResult.INSUFFICIENT_FUNDS, saving.tryWithdraw(40.01));
+        assertEquals(40.0, saving.getBalance(), 0);
+
+        assertEquals(WithdrawResult.APPROVED, checking.tryWithdraw(140.0));
+        assertEquals(WithdrawResult.OVERDRAFT_EXCEEDED, checking.tryWithdraw(10.01));
+        assertEquals(-40.0, checking.getBalance(), 0);
+    }
+
+    @Test
+    public void testStoredAccountResults() {
+        OffHeapAccountStore store = new OffHeapAccountStore();
+        assertEquals(WithdrawResult.INSUFFICIENT_FUNDS, store.createSavingAccount(1, 10.0).tryWithdraw(10.5));
+        assertEquals(WithdrawResult.OVERDRAFT_EXCEEDED, store.createCheckingAccount(2, 10.0, 0.25).tryWithdraw(10.5));
+        assertTrue(store.createCheckingAccount(3, 10.0, 0.5).tryWithdraw(10.5).isApproved());
+    }
+
+    @Test
+    public void testCheckingAccountThrowsOneOverdraftException() {
+        CheckingAccount checking = new CheckingAccount(2, 10.0, 5.0);
+        try {
+            checking.withdraw(20.0);
+        } catch (OverdraftLimitExceededException e) {
+            assertEquals(2, e.getId());
+            assertEquals(10.0, e.getBalance(), 0);
+            assertEquals(20.0, e.getAmount(), 0);
+            assertEquals(5.0, e.getOverdraft(), 0);
+            assertEquals(null, e.getCause());
+            return;
+        }
+        throw new AssertionError("Withdrawal should have been declined");
+    }
+
+    @Test
+    public void testDefaultMethodMapsExceptions() {
+        Account account = new Account() {
+            public void deposit(double amount) {
+            }
+
+            public void withdraw(double amount) throws NotEnoughFundsException {
+                throw new NotEnoughFundsException(1, 0, amount, "declined");
+            }
+
+            public int getId() {
+                return 1;
+            }
+
+            public double getBalance() {
+                return 0;
+            }
+
+            public double maximumAmountToWithdraw() {
+                return 0;
+            }
+        };
+        assertEquals(WithdrawResult.INSUFFICIENT_FUNDS, account.tryWithdraw(1.0));
+    }
+}
@@ -0,0 +1,10 @@
+package com.luxoft.bankapp.utils;
+
+public enum BackpressurePolicy {
+    // Wait for free space
+    BLOCK,
+    // Discard the new item
+    DROP,
+    // Throw IllegalStateException
+    FAIL_FAST
+}
@@ -0,0 +1,20 @@
+package com.luxoft.bankapp.utils;
+
+import com.luxoft.bankapp.domain.Account;
+import com.luxoft.bankapp.domain.Client;
+
+/**
+ * Synchronous hook into every mutation of a bank. Called on the mutating thread, so
+ * implementations must be cheap and thread-safe. Balances are in minor units.
+ */
+public interface BankChangeListener {
+	default void onClientAdded(Client client) {
+	}
+
+	// The balance the account joined with; every later change is reported by onBalanceChanged
+	default void onAccountAdded(Client client, Account account, long balance) {
+	}
+
+	default void onBalanceChanged(Account account, long oldBalance, long newBalance) {
+	}
+}
@@ -0,0 +1,204 @@
+package com.luxoft.bankapp.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import com.luxoft.bankapp.domain.Account;
+import com.luxoft.bankapp.domain.Bank;
+import com.luxoft.bankapp.domain.CheckingAccount;
+import com.luxoft.bankapp.domain.Client;
+import com.luxoft.bankapp.domain.ClientImportResult;
+import com.luxoft.bankapp.domain.Gender;
+import com.luxoft.bankapp.domain.Money;
+import com.luxoft.bankapp.domain.SavingAccount;
+
+/**
+ * Deterministic generator of synthetic clients and accounts for benchmarks and soak runs.
+ * <p>
+ * Client {@code i} is derived only from the seed and {@code i}, so the same settings always produce
+ * the same bank, whether clients are generated sequentially, in parallel or in any order. Client ids
+ * are {@code firstClientId + i}, by default {@code i + 1}, and account ids {@code i * maxAccountsPerClient + j}.
+ * Give generators filling the same bank, or a bank that already has clients, ranges of ids that do
+ * not overlap.
+ */
+public class BankDataGenerator {
+
+    private static final String[] FIRST_NAMES = {"John", "Michelle", "Andrei", "Maria", "Bob", "Alice", "Elena", "Mihai",
+            "Ana", "George", "Ioana", "David", "Laura", "Paul", "Diana", "Victor"};
+    private static final String[] LAST_NAMES = {"Smith", "Popescu", "Johnson", "Ionescu", "Brown", "Dumitru", "White",
+            "Stan", "Green", "Matei", "Doe", "Radu", "Black", "Constantin", "Taylor", "Marin"};
+    private static final String[] DEFAULT_CITIES = {"Bucharest", "Cluj", "Iasi", "Timisoara", "Brasov", "Constanta",
+            "Sibiu", "Oradea", "New York", "Los Angeles", "London", "Paris"};
+    private static final int IMPORT_CHUNK = 1 << 16;
+
+    private final long seed;
+    private long firstClientId = 1;
+    private int minAccountsPerClient = 1;
+    private int maxAccountsPerClient = 3;
+    private long minBalance = 0;
+    private long maxBalance = 10_000_00;
+    private double checkingShare = 0.5;
+    private double overdrawnShare = 0.1;
+    private long overdraft = 1_000_00;
+    private double femaleShare = 0.5;
+    private String[] cities = DEFAULT_CITIES;
+
+    public BankDataGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public BankDataGenerator withFirstClientId(long id) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("Client ids must be positive");
+        }
+        this.firstClientId = id;
+        return this;
+    }
+
+    public BankDataGenerator withAccountsPerClient(int min, int max) {
+        if (min < 0 || max < min) {
+            throw new IllegalArgumentException("Invalid accounts per client range");
+        }
+        this.minAccountsPerClient = min;
+        this.maxAccountsPerClient = max;
+        return this;
+    }
+
+    // Balances of non-overdrawn accounts, uniformly distributed, in major units
+    public BankDataGenerator withBalanceRange(double min, double max) {
+        if (min < 0 || max < min) {
+            throw new IllegalArgumentException("Invalid balance range");
+        }
+        this.minBalance = Money.toMinorUnits(min);
+        this.maxBalance = Money.toMinorUnits(max);
+        return this;
+    }
+
+    public BankDataGenerator withCheckingShare(double share) {
+        this.checkingShare = share(share);
+        return this;
+    }
+
+    // Share of checking accounts that are below zero, within their overdraft
+    public BankDataGenerator withOverdrawnShare(double share) {
+        this.overdrawnShare = share(share);
+        return this;
+    }
+
+    public BankDataGenerator withOverdraft(double overdraft) {
+        if (overdraft < 0) {
+            throw new IllegalArgumentException("Overdraft must not be negative");
+        }
+        this.overdraft = Money.toMinorUnits(overdraft);
+        return this;
+    }
+
+    public BankDataGenerator withFemaleShare(double share) {
+        this.femaleShare = share(share);
+        return this;
+    }
+
+    public BankDataGenerator withCities(String... cities) {
+        if (cities.length == 0) {
+            throw new IllegalArgumentException("At least one city is required");
+        }
+        this.cities = cities.clone();
+        return this;
+    }
+
+    public int getMaxAccountsPerClient() {
+        return maxAccountsPerClient;
+    }
+
+    // Number of clients needed for roughly the given number of accounts
+    public long clientsForAccounts(long accounts) {
+        double average = (minAccountsPerClient + maxAccountsPerClient) / 2d;
+        return average == 0 ? 0 : (long) Math.ceil(accounts / average);
+    }
+
+    public Client client(long index) {
+        if ((index + 1) * maxAccountsPerClient > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Client index " + index + " would overflow account ids");
+        }
+        if (index > Long.MAX_VALUE - firstClientId) {
+            throw new IllegalArgumentException("Client index " + index + " would overflow client ids");
+        }
+
+        SplittableRandom random = new SplittableRandom(mix(seed, index));
+        String name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        Gender gender = random.nextDouble() < femaleShare ? Gender.FEMALE : Gender.MALE;
+        Client client = new Client(firstClientId + index, name, gender, cities[random.nextInt(cities.length)]);
+
+        int accounts = random.nextInt(minAccountsPerClient, maxAccountsPerClient + 1);
+        for (int j = 0; j < accounts; j++) {
+            client.addAccount(account((int) (index * maxAccountsPerClient + j), random));
+        }
+        return client;
+    }
+
+    /**
+     * Lazily generated clients {@code 0..count-1}; call {@code parallel()} on the result to generate on all cores.
+     */
+    public Stream<Client> clients(long count) {
+        return LongStream.range(0, count).mapToObj(this::client);
+    }
+
+    public List<Client> clientList(int count) {
+        List<Client> result = new ArrayList<>(count);
+        clients(count).parallel().forEachOrdered(result::add);
+        return result;
+    }
+
+    /**
+     * Adds {@code count} clients to the bank. Clients are generated in parallel one chunk at a time,
+     * so memory beyond the bank itself stays bounded.
+     *
+     * @return the number of clients added
+     * @throws IllegalArgumentException if the bank already has a client with one of the generated
+     *         ids; the clients of the chunks before it stay added
+     */
+    public long populate(Bank bank, long count) {
+        long added = 0;
+        for (long start = 0; start < count; start += IMPORT_CHUNK) {
+            long end = Math.min(count, start + IMPORT_CHUNK);
+            Client[] chunk = LongStream.range(start, end).parallel().mapToObj(this::client).toArray(Client[]::new);
+            ClientImportResult result = bank.addClients(Arrays.asList(chunk));
+            if (result.hasConflicts()) {
+                throw new IllegalArgumentException("The bank already has client " + result.getConflicts().get(0).getId()
+                        + "; start the generated ids after the existing ones with withFirstClientId");
+            }
+            added += result.getAddedClients();
+        }
+        return added;
+    }
+
+    private Account account(int id, SplittableRandom random) {
+        long balance = minBalance == maxBalance ? minBalance : random.nextLong(minBalance, maxBalance + 1);
+        if (random.nextDouble() >= checkingShare) {
+            return new SavingAccount(id, Money.toMajorUnits(balance));
+        }
+        if (overdraft > 0 && random.nextDouble() < overdrawnShare) {
+            balance = -random.nextLong(1, overdraft + 1);
+        }
+        return new CheckingAccount(id, Money.toMajorUnits(balance), Money.toMajorUnits(overdraft));
+    }
+
+    private static double share(double share) {
+        if (share < 0 || share > 1) {
+            throw new IllegalArgumentException("Share must be between 0 and 1");
+        }
+        return share;
+    }
+
+    // SplitMix64 finalizer, decorrelates the per-client seeds
+    private static long mix(long seed, long index) {
+        long z = seed + (index + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,248 @@
+package com.luxoft.bankapp.utils;
+
+import com.luxoft.bankapp.domain.Client;
+import com.luxoft.bankapp.log.Log;
+import com.luxoft.bankapp.metrics.BankMetrics;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Dispatches client registration events to listeners.
+ * <p>
+ * In asynchronous mode {@link #publish} only enqueues the event: every listener has its own
+ * executor and receives events one at a time in publication order. In synchronous mode listeners
+ * run on the publishing thread, as {@code Bank} always did before.
+ */
+public class ClientEventBus implements AutoCloseable {
+
+    private final boolean async;
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final AtomicLong pending = new AtomicLong();
+    private final Object idleMonitor = new Object();
+
+    public ClientEventBus() {
+        this(true);
+    }
+
+    public ClientEventBus(boolean async) {
+        this.async = async;
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * Registers a listener on its own dispatch thread (or on the publishing thread if the bus is synchronous).
+     */
+    public void register(ClientRegistrationListener listener) {
+        if (async) {
+            ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "ClientEventBus-" + listener.getClass().getSimpleName());
+                thread.setDaemon(true);
+                return thread;
+            });
+            add(new Subscription(listener, executor, executor));
+        } else {
+            add(new Subscription(listener, null, null));
+        }
+    }
+
+    /**
+     * Registers a listener dispatched on the given executor. Events for the listener are still
+     * delivered one at a time and in order, even if the executor is a shared pool.
+     */
+    public void register(ClientRegistrationListener listener, Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor must not be null");
+        }
+        add(new Subscription(listener, new SerialExecutor(executor), null));
+    }
+
+    private void add(Subscription subscription) {
+        if (subscription.listener == null) {
+            throw new IllegalArgumentException("Listener must not be null");
+        }
+        subscriptions.add(subscription);
+    }
+
+    public boolean unregister(ClientRegistrationListener listener) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.listener == listener && subscriptions.remove(subscription)) {
+                subscription.shutdown();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void publish(Client client) {
+        dispatch(listener -> listener.onClientAdded(client), client.getName());
+    }
+
+    // Delivers a whole batch as one event per listener
+    public void publishAll(Collection<Client> clients) {
+        if (clients.isEmpty()) {
+            return;
+        }
+        List<Client> batch = List.copyOf(clients);
+        dispatch(listener -> listener.onClientsAdded(batch), batch.size() + " clients");
+    }
+
+    private void dispatch(Consumer<ClientRegistrationListener> event, String description) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.executor == null) {
+                deliver(event, subscription.listener);
+                continue;
+            }
+
+            pending.incrementAndGet();
+            try {
+                subscription.executor.execute(() -> {
+                    try {
+                        deliver(event, subscription.listener);
+                    } catch (RuntimeException e) {
+                        BankMetrics.LISTENER_ERRORS.increment();
+                        Log.error("Listener %s failed for %s: %s", subscription.listener, description, e);
+                    } finally {
+                        completed();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // The listener was unregistered while publishing
+                BankMetrics.EVENTS_REJECTED.increment();
+                completed();
+            }
+        }
+    }
+
+    private static void deliver(Consumer<ClientRegistrationListener> event, ClientRegistrationListener listener) {
+        long start = System.nanoTime();
+        try {
+            event.accept(listener);
+        } finally {
+            BankMetrics.LISTENER_LATENCY.recordSince(start);
+        }
+    }
+
+    private void completed() {
+        if (pending.decrementAndGet() == 0) {
+            synchronized (idleMonitor) {
+                idleMonitor.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Waits until every published event has been handled by every listener.
+     *
+     * @return {@code false} if the timeout expired first
+     */
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (idleMonitor) {
+            while (pending.get() != 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(idleMonitor, remaining);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        for (Subscription subscription : subscriptions) {
+            subscription.shutdown();
+        }
+        subscriptions.clear();
+    }
+
+    private static class Subscription {
+        private final ClientRegistrationListener listener;
+        private final Executor executor;
+        private final ExecutorService owned;
+
+        Subscription(ClientRegistrationListener listener, Executor executor, ExecutorService owned) {
+            this.listener = listener;
+            this.executor = executor;
+            this.owned = owned;
+        }
+
+        void shutdown() {
+            // Already queued events are still delivered
+            if (owned != null) {
+                owned.shutdown();
+            }
+        }
+    }
+
+    // Runs tasks one at a time, in submission order, on top of any executor
+    private static class SerialExecutor implements Executor {
+        // Tasks run per turn, so a listener with a backlog does not hold a thread of a shared pool
+        private static final int BATCH = 64;
+
+        private final Executor delegate;
+        private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        SerialExecutor(Executor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+            try {
+                schedule();
+            } catch (RejectedExecutionException e) {
+                tasks.remove(task);
+                throw e;
+            }
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    delegate.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // No drain is coming, so the next event has to schedule one
+                    scheduled.set(false);
+                    throw e;
+                }
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                Runnable task;
+                for (int i = 0; i < BATCH && (task = tasks.poll()) != null; i++) {
+                    task.run();
+                }
+                scheduled.set(false);
+                if (tasks.isEmpty() || !scheduled.compareAndSet(false, true)) {
+                    return;
+                }
+                try {
+                    delegate.execute(this::drain);
+                    return;
+                } catch (RejectedExecutionException e) {
+                    // Nobody else would run the queued tasks, so they are delivered on this thread
+                }
+            }
+        }
+    }
+}
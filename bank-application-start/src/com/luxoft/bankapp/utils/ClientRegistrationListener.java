@@ -1,7 +1,16 @@
 package com.luxoft.bankapp.utils;
 
+import java.util.Collection;
+
 import com.luxoft.bankapp.domain.Client;
 
 public interface ClientRegistrationListener {
 	 void onClientAdded(Client client);
+
+	 // Called once for a bulk import; override to handle the batch as a single event
+	 default void onClientsAdded(Collection<Client> clients) {
+		 for (Client client : clients) {
+			 onClientAdded(client);
+		 }
+	 }
 }
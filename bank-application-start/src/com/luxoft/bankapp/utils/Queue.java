@@ -1,41 +1,207 @@
 package com.luxoft.bankapp.utils;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Bounded multi-producer/multi-consumer FIFO queue backed by a ring buffer.
+ * All operations are O(1) (O(n) for {@link #drainTo}) and waiting threads are woken one at a time.
+ */
 public class Queue<T> {
 
-    private final List<T> items = new ArrayList<>();
+    public static final int DEFAULT_CAPACITY = 1 << 16;
 
-    public synchronized void add(T item) {
-        items.add(item);
-        notifyAll();
+    private final Object[] items;
+    private final BackpressurePolicy policy;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    private int head;
+    private int tail;
+    private int count;
+    private long dropped;
+
+    public Queue() {
+        this(DEFAULT_CAPACITY, BackpressurePolicy.BLOCK);
+    }
+
+    public Queue(int capacity) {
+        this(capacity, BackpressurePolicy.BLOCK);
+    }
+
+    public Queue(int capacity, BackpressurePolicy policy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        if (policy == null) {
+            throw new IllegalArgumentException("Backpressure policy must not be null");
+        }
+        this.items = new Object[capacity];
+        this.policy = policy;
+    }
+
+    /**
+     * Adds an item, applying the backpressure policy when the queue is full.
+     *
+     * @return {@code false} if the item was dropped, or the thread was interrupted while waiting for space
+     */
+    public boolean add(T item) {
+        if (item == null) {
+            throw new IllegalArgumentException("Item must not be null");
+        }
+
+        lock.lock();
+        try {
+            while (count == items.length) {
+                switch (policy) {
+                    case DROP:
+                        dropped++;
+                        return false;
+                    case FAIL_FAST:
+                        throw new IllegalStateException("Queue is full");
+                    default:
+                        try {
+                            notFull.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return false;
+                        }
+                }
+            }
+            enqueue(item);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until an item is available. Returns {@code null} if the thread is interrupted.
+     */
+    public T poll() {
+        lock.lock();
+        try {
+            while (count == 0) {
+                try {
+                    notEmpty.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
     }
 
-    public synchronized T poll() {
-        while (items.isEmpty()) {
-            try {
-                wait();
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                return null;
+    /**
+     * Waits up to the given time for an item. Returns {@code null} on timeout or interruption.
+     */
+    public T poll(long timeout, TimeUnit unit) {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (count == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                try {
+                    nanos = notEmpty.awaitNanos(nanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
             }
+            return dequeue();
+        } finally {
+            lock.unlock();
         }
-        return items.removeFirst();
     }
 
-    public synchronized T peek() {
-        if (items.isEmpty()) {
-            return null;
+    /**
+     * Moves up to {@code maxItems} available items into {@code target} without waiting.
+     *
+     * @return the number of items moved
+     */
+    public int drainTo(Collection<? super T> target, int maxItems) {
+        if (maxItems < 0) {
+            throw new IllegalArgumentException("Max items must not be negative");
         }
-        return items.getFirst();
+        lock.lock();
+        try {
+            int n = Math.min(maxItems, count);
+            for (int i = 0; i < n; i++) {
+                target.add(dequeue());
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public T peek() {
+        lock.lock();
+        try {
+            return count == 0 ? null : (T) items[head];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
     }
 
-    public synchronized int size() {
-        return items.size();
+    public int getCapacity() {
+        return items.length;
     }
 
-    public synchronized boolean isEmpty() {
-        return items.isEmpty();
+    public BackpressurePolicy getPolicy() {
+        return policy;
+    }
+
+    public long getDroppedCount() {
+        lock.lock();
+        try {
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void enqueue(T item) {
+        items[tail] = item;
+        if (++tail == items.length) {
+            tail = 0;
+        }
+        count++;
+        notEmpty.signal();
+    }
+
+    @SuppressWarnings("unchecked")
+    private T dequeue() {
+        T item = (T) items[head];
+        items[head] = null;
+        if (++head == items.length) {
+            head = 0;
+        }
+        count--;
+        notFull.signal();
+        return item;
     }
 }
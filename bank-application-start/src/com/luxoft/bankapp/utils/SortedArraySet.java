@@ -0,0 +1,142 @@
+package com.luxoft.bankapp.utils;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+
+/**
+ * Read-only sorted set over an array already sorted by the comparator, without equal elements.
+ * Lookups and range views use binary search, and views share the array instead of copying it.
+ * Like the views of a {@link java.util.TreeSet}, a view rejects keys outside its range.
+ */
+public class SortedArraySet<T> extends AbstractSet<T> implements SortedSet<T> {
+
+    private final T[] elements;
+    private final int from;
+    private final int to;
+    private final Comparator<? super T> comparator;
+
+    // Range of a view, inclusive below and exclusive above
+    private final boolean hasLow;
+    private final T low;
+    private final boolean hasHigh;
+    private final T high;
+
+    // The set takes the first size elements of the array, which must not change afterwards
+    public SortedArraySet(T[] sorted, int size, Comparator<? super T> comparator) {
+        this(sorted, 0, checkSize(sorted, size), comparator(comparator), false, null, false, null);
+    }
+
+    private SortedArraySet(T[] elements, int from, int to, Comparator<? super T> comparator,
+                           boolean hasLow, T low, boolean hasHigh, T high) {
+        this.elements = elements;
+        this.from = from;
+        this.to = to;
+        this.comparator = comparator;
+        this.hasLow = hasLow;
+        this.low = low;
+        this.hasHigh = hasHigh;
+        this.high = high;
+    }
+
+    private static int checkSize(Object[] sorted, int size) {
+        if (size < 0 || size > sorted.length) {
+            throw new IllegalArgumentException("Size must be between 0 and the array length");
+        }
+        return size;
+    }
+
+    private static <T> Comparator<? super T> comparator(Comparator<? super T> comparator) {
+        if (comparator == null) {
+            throw new IllegalArgumentException("Comparator must not be null");
+        }
+        return comparator;
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+        return comparator;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return Arrays.asList(elements).subList(from, to).iterator();
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o) {
+        // Throws ClassCastException for an element the comparator cannot take, like TreeSet
+        return Arrays.binarySearch(elements, from, to, (T) o, comparator) >= 0;
+    }
+
+    @Override
+    public T first() {
+        if (from == to) {
+            throw new NoSuchElementException();
+        }
+        return elements[from];
+    }
+
+    @Override
+    public T last() {
+        if (from == to) {
+            throw new NoSuchElementException();
+        }
+        return elements[to - 1];
+    }
+
+    @Override
+    public SortedSet<T> subSet(T fromElement, T toElement) {
+        if (comparator.compare(fromElement, toElement) > 0) {
+            throw new IllegalArgumentException("fromElement is greater than toElement");
+        }
+        checkInRange(fromElement);
+        checkInRange(toElement);
+        return new SortedArraySet<>(elements, lowerBound(fromElement), lowerBound(toElement), comparator,
+                true, fromElement, true, toElement);
+    }
+
+    @Override
+    public SortedSet<T> headSet(T toElement) {
+        checkInRange(toElement);
+        return new SortedArraySet<>(elements, from, lowerBound(toElement), comparator,
+                hasLow, low, true, toElement);
+    }
+
+    @Override
+    public SortedSet<T> tailSet(T fromElement) {
+        checkInRange(fromElement);
+        return new SortedArraySet<>(elements, lowerBound(fromElement), to, comparator,
+                true, fromElement, hasHigh, high);
+    }
+
+    private void checkInRange(T key) {
+        if (hasLow && comparator.compare(key, low) < 0 || hasHigh && comparator.compare(key, high) > 0) {
+            throw new IllegalArgumentException("Key out of range");
+        }
+    }
+
+    // Index of the first element not less than the key
+    private int lowerBound(T key) {
+        int lo = from;
+        int hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (comparator.compare(elements[mid], key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}